@@ -9,6 +9,7 @@ plugins {
   id("org.sonatype.gradle.plugins.scan") version "4.0.0"
   id("io.freefair.maven-central.validate-poms") version "9.5.0"
   id("io.github.gradle-nexus.publish-plugin") version "2.0.0"
+  id("me.champeau.jmh") version "0.7.3"
 }
 
 repositories {
@@ -137,9 +138,43 @@ tasks {
   }
   withType<Test> {
     useJUnitPlatform()
+    // e.g. `./gradlew test -Dfilesocket.loadtest.streams=5000`
+    System.getProperties().stringPropertyNames()
+      .filter { it.startsWith("filesocket.") }
+      .forEach { systemProperty(it, System.getProperty(it)) }
   }
 }
 
+val virtualThreadTest by tasks.registering(Test::class) {
+  description = "Runs the virtual thread tests on Java 21 with a single carrier thread."
+  group = "verification"
+  testClassesDirs = sourceSets.test.get().output.classesDirs
+  classpath = sourceSets.test.get().runtimeClasspath
+  javaLauncher.set(javaToolchains.launcherFor {
+    languageVersion.set(JavaLanguageVersion.of(21))
+  })
+  filter {
+    includeTestsMatching("*VirtualThreadTest")
+  }
+  jvmArgs(
+    "-Djdk.tracePinnedThreads=full",
+    "-Djdk.virtualThreadScheduler.parallelism=1",
+    "-Djdk.virtualThreadScheduler.maxPoolSize=1",
+  )
+}
+tasks.check {
+  dependsOn(virtualThreadTest)
+}
+
+jmh {
+  jmhVersion.set(libs.versions.jmh.get())
+  // e.g. `./gradlew jmh -Pjmh.includes=UnixSocketRoundTrip`
+  findProperty("jmh.includes")?.let { includes.add(it) }
+  // e.g. `./gradlew jmh -Pjmh.profilers=gc` to report allocations per operation
+  findProperty("jmh.profilers")?.let { profilers.addAll(it.split(",")) }
+  resultFormat.set("JSON")
+}
+
 val javadocJar by tasks.registering(Jar::class) {
   dependsOn("classes")
   archiveClassifier.set("javadoc")
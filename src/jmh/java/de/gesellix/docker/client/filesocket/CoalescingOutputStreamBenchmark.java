@@ -0,0 +1,147 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Feeds 1 MiB in small chunks, like stdin of a hijacked <code>exec</code> session, to a {@link UnixSocket}
+ * with and without a {@link CoalescingOutputStream}. One operation sends 1 MiB, so the <code>writes</code> counter
+ * divided by the primary score gives the writes reaching the socket, i.e. syscalls, per MiB.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoalescingOutputStreamBenchmark {
+
+  private static final int BODY_SIZE = 1024 * 1024;
+
+  @Param({"direct", "coalescing"})
+  public String mode;
+
+  @Param({"1", "80", "1024"})
+  public int chunkSize;
+
+  private HttpStandInServer server;
+  private UnixSocket socket;
+  private InputStream in;
+  private OutputStream out;
+  private CountingOutputStream counting;
+  private byte[] header;
+  private byte[] chunk;
+  private final byte[] response = new byte[256];
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Counters {
+
+    public long writes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      writes = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    server = HttpStandInServer.unix();
+    UnixSocketFactory factory = new UnixSocketFactory(UnixSocketBackend.JDK);
+    InetAddress address = factory.lookup(server.url().host()).get(0);
+    socket = (UnixSocket) factory.createSocket();
+    socket.connect(new InetSocketAddress(address, 0), 0);
+    in = socket.getInputStream();
+    counting = new CountingOutputStream(socket.getOutputStream());
+    out = "coalescing".equals(mode)
+          ? new CoalescingOutputStream(counting, 16 * 1024, Duration.ofMillis(5))
+          : counting;
+    header = ("POST /_ping HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + BODY_SIZE + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    chunk = new byte[chunkSize];
+    Arrays.fill(chunk, (byte) 'x');
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    socket.close();
+    server.close();
+  }
+
+  @Benchmark
+  public int send(Counters counters) throws IOException {
+    long writesBefore = counting.writes;
+    out.write(header);
+    for (int sent = 0; sent < BODY_SIZE; sent += chunk.length) {
+      out.write(chunk, 0, Math.min(chunk.length, BODY_SIZE - sent));
+    }
+    out.flush();
+    counters.writes += counting.writes - writesBefore;
+    return readResponse();
+  }
+
+  /**
+   * Reads the fixed size <code>/_ping</code> response.
+   */
+  private int readResponse() throws IOException {
+    int total = 0;
+    int expected = -1;
+    while (expected < 0 || total < expected) {
+      int read = in.read(response, total, response.length - total);
+      if (read == -1) {
+        throw new IOException("Unexpected end of stream");
+      }
+      total += read;
+      String received = new String(response, 0, total, StandardCharsets.US_ASCII);
+      int headerEnd = received.indexOf("\r\n\r\n");
+      if (headerEnd >= 0) {
+        expected = headerEnd + 4 + 2;
+      }
+    }
+    return total;
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+
+    long writes;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      writes++;
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      writes++;
+      out.write(b, off, len);
+    }
+  }
+}
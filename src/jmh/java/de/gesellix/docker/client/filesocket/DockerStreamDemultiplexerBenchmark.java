@@ -0,0 +1,95 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okio.Buffer;
+
+/**
+ * Demultiplexing a log stream of short lines alternating between stdout and stderr,
+ * compared to a parser allocating a byte array per frame.
+ * The gc profiler shows the allocations: <code>./gradlew jmh -Pjmh.includes=DockerStreamDemultiplexer -Pjmh.profilers=gc</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DockerStreamDemultiplexerBenchmark {
+
+  @Param({"100", "4096"})
+  public int lineLength;
+
+  private static final int FRAMES = 1_000;
+
+  private byte[] stream;
+  private final OutputStream discard = OutputStream.nullOutputStream();
+  private DockerStreamDemultiplexer demultiplexer;
+
+  @Setup
+  public void setup() {
+    byte[] line = new byte[lineLength];
+    for (int i = 0; i < lineLength; i++) {
+      line[i] = (byte) ('a' + i % 26);
+    }
+    line[lineLength - 1] = '\n';
+    Buffer frames = new Buffer();
+    for (int i = 0; i < FRAMES; i++) {
+      frames.writeByte(i % 2 == 0 ? 1 : 2).writeByte(0).writeByte(0).writeByte(0).writeInt(line.length).write(line);
+    }
+    stream = frames.readByteArray();
+    demultiplexer = new DockerStreamDemultiplexer(discard, discard);
+  }
+
+  @Benchmark
+  public long demultiplexer() throws IOException {
+    return demultiplexer.demultiplex(new ByteArrayInputStream(stream));
+  }
+
+  /**
+   * A typical hand-written parser as baseline.
+   */
+  @Benchmark
+  public long allocatingParser() throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(stream));
+    long total = 0;
+    byte[] header = new byte[8];
+    while (readHeader(in, header)) {
+      int size = ((header[4] & 0xff) << 24) | ((header[5] & 0xff) << 16) | ((header[6] & 0xff) << 8) | (header[7] & 0xff);
+      byte[] payload = new byte[size];
+      in.readFully(payload);
+      String text = new String(payload, StandardCharsets.UTF_8);
+      discard.write(text.getBytes(StandardCharsets.UTF_8));
+      total += size;
+    }
+    return total;
+  }
+
+  private static boolean readHeader(InputStream in, byte[] header) throws IOException {
+    try {
+      new DataInputStream(in).readFully(header);
+      return true;
+    } catch (EOFException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnixDomainSocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okio.ByteString;
+
+/**
+ * Address resolution on the connection path: OkHttp's lookup, then decoding the hostname and creating the endpoint on connect.
+ * Run with the gc profiler to see the allocations per operation, which should be zero for the cached benchmarks:
+ * <code>./gradlew jmh -Pjmh.includes=FileSocketAddress -Pjmh.profilers=gc</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileSocketAddressBenchmark {
+
+  private static final String SOCKET_PATH = "/var/run/docker.sock";
+
+  private final UnixSocketFactory factory = new UnixSocketFactory();
+  private final UnixSocket socket = new UnixSocket();
+  private final HostnameEncoder hostnameEncoder = new HostnameEncoder();
+  private String hostname;
+  private String encodedPath;
+  private InetAddress inetAddress;
+
+  @Setup
+  public void setup() throws UnknownHostException {
+    hostname = socket.encodeHostname(SOCKET_PATH);
+    encodedPath = hostname.substring(0, hostname.length() - FileSocket.SOCKET_MARKER.length());
+    inetAddress = factory.lookup(hostname).get(0);
+  }
+
+  @Benchmark
+  public List<InetAddress> cachedLookup() throws UnknownHostException {
+    return factory.lookup(hostname);
+  }
+
+  @Benchmark
+  public UnixDomainSocketAddress cachedResolveOnConnect() throws IOException {
+    return socket.resolveAddress(inetAddress).endpoint(UnixDomainSocketAddress.class, UnixDomainSocketAddress::of);
+  }
+
+  /**
+   * The miss path, only the decoded string is allocated.
+   */
+  @Benchmark
+  public String decodeHostname() {
+    return hostnameEncoder.decode(encodedPath);
+  }
+
+  /**
+   * The previous decoding via split, join and {@link ByteString} as baseline.
+   */
+  @Benchmark
+  public String decodeHostnameViaByteString() {
+    String decoded = encodedPath;
+    if (encodedPath.contains(".")) {
+      decoded = String.join("", encodedPath.split("\\."));
+    }
+    return ByteString.decodeHex(decoded).utf8();
+  }
+}
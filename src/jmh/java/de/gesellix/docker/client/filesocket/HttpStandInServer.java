@@ -0,0 +1,238 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+/**
+ * Minimal HTTP/1.1 server standing in for the Docker daemon.
+ * It serves keep-alive connections either on a Unix domain socket or on TCP loopback,
+ * so that benchmarks can compare both transports against the very same request handling.
+ * <p>
+ * Supported requests:
+ * <ul>
+ *   <li><code>GET /_ping</code> responds with a tiny <code>OK</code> body</li>
+ *   <li><code>GET /stream?bytes=n</code> responds with a body of <code>n</code> bytes</li>
+ * </ul>
+ * Request bodies are consumed according to their <code>Content-Length</code> and discarded.
+ */
+public class HttpStandInServer implements Closeable {
+
+  private static final byte[] PING_RESPONSE = ("HTTP/1.1 200 OK\r\n"
+                                               + "Content-Type: text/plain\r\n"
+                                               + "Content-Length: 2\r\n"
+                                               + "\r\n"
+                                               + "OK").getBytes(StandardCharsets.US_ASCII);
+
+  private final ServerSocketChannel serverChannel;
+  private final Path socketFile;
+  private final ExecutorService executor;
+  private final byte[] chunk = new byte[64 * 1024];
+
+  private HttpStandInServer(ServerSocketChannel serverChannel, Path socketFile) {
+    this.serverChannel = serverChannel;
+    this.socketFile = socketFile;
+    this.executor = Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, "http-stand-in");
+      thread.setDaemon(true);
+      return thread;
+    });
+    Arrays.fill(chunk, (byte) 'x');
+    executor.submit(this::acceptLoop);
+  }
+
+  public static HttpStandInServer unix() throws IOException {
+    Path socketFile = Files.createTempFile("filesocket-jmh", ".sock");
+    Files.delete(socketFile);
+    ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    channel.bind(UnixDomainSocketAddress.of(socketFile));
+    return new HttpStandInServer(channel, socketFile);
+  }
+
+  public static HttpStandInServer tcp() throws IOException {
+    ServerSocketChannel channel = ServerSocketChannel.open();
+    channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    return new HttpStandInServer(channel, null);
+  }
+
+  /**
+   * Parses a benchmark's <code>transport</code> parameter, like <code>tcp</code>, <code>unix</code>
+   * or <code>unix-JUNIXSOCKET</code> for a specific Unix domain socket backend.
+   * A single parameter keeps the TCP baseline from running once per backend.
+   */
+  public static HttpStandInServer forTransport(String transport) throws IOException {
+    return "tcp".equals(transport) ? tcp() : unix();
+  }
+
+  /**
+   * @return the Unix domain socket backend named by the <code>transport</code> parameter, the preferred one by default.
+   */
+  public static UnixSocketBackend backendOf(String transport) {
+    int separator = transport.indexOf('-');
+    if (separator < 0) {
+      return UnixSocketBackend.preferred();
+    }
+    return UnixSocketBackend.valueOf(transport.substring(separator + 1));
+  }
+
+  public boolean isUnix() {
+    return socketFile != null;
+  }
+
+  public String getSocketPath() {
+    return socketFile.toString();
+  }
+
+  /**
+   * @return the base url to be used with an OkHttpClient.
+   * For Unix domain sockets the client needs to be configured with a {@link UnixSocketFactory} as socket factory and dns.
+   */
+  public HttpUrl url() throws IOException {
+    if (isUnix()) {
+      return new HttpUrl.Builder()
+          .scheme("http")
+          .host(new UnixSocket().encodeHostname(getSocketPath()))
+          .build();
+    }
+    InetSocketAddress address = (InetSocketAddress) serverChannel.getLocalAddress();
+    return new HttpUrl.Builder()
+        .scheme("http")
+        .host(address.getHostString())
+        .port(address.getPort())
+        .build();
+  }
+
+  /**
+   * @return a client builder which is already configured to reach this server.
+   */
+  public OkHttpClient.Builder newClientBuilder() {
+    return newClientBuilder(UnixSocketBackend.preferred());
+  }
+
+  /**
+   * @param backend the Unix domain socket implementation, ignored for TCP
+   * @return a client builder which is already configured to reach this server.
+   */
+  public OkHttpClient.Builder newClientBuilder(UnixSocketBackend backend) {
+    OkHttpClient.Builder builder = new OkHttpClient.Builder();
+    if (isUnix()) {
+      UnixSocketFactory factory = new UnixSocketFactory(backend);
+      builder.socketFactory(factory).dns(factory);
+    }
+    return builder;
+  }
+
+  private void acceptLoop() {
+    while (serverChannel.isOpen()) {
+      try {
+        SocketChannel connection = serverChannel.accept();
+        executor.submit(() -> serve(connection));
+      } catch (IOException e) {
+        return;
+      }
+    }
+  }
+
+  private void serve(SocketChannel connection) {
+    try (SocketChannel ignored = connection) {
+      InputStream in = new BufferedInputStream(Channels.newInputStream(connection));
+      OutputStream out = new BufferedOutputStream(Channels.newOutputStream(connection), chunk.length);
+      ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+      while (true) {
+        String requestLine = readLine(in, line);
+        if (requestLine == null) {
+          return;
+        }
+        long contentLength = 0;
+        String header;
+        while ((header = readLine(in, line)) != null && !header.isEmpty()) {
+          if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+            contentLength = Long.parseLong(header.substring(15).trim());
+          }
+        }
+        skipFully(in, contentLength);
+
+        String target = requestLine.split(" ")[1];
+        if (target.startsWith("/stream")) {
+          long bytes = Long.parseLong(target.substring(target.indexOf("bytes=") + 6));
+          writeStream(out, bytes);
+        } else {
+          out.write(PING_RESPONSE);
+        }
+        out.flush();
+      }
+    } catch (IOException ignored) {
+      // client went away
+    }
+  }
+
+  private void writeStream(OutputStream out, long bytes) throws IOException {
+    out.write(("HTTP/1.1 200 OK\r\n"
+               + "Content-Type: application/octet-stream\r\n"
+               + "Content-Length: " + bytes + "\r\n"
+               + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    long remaining = bytes;
+    while (remaining > 0) {
+      int count = (int) Math.min(chunk.length, remaining);
+      out.write(chunk, 0, count);
+      remaining -= count;
+    }
+  }
+
+  private static String readLine(InputStream in, ByteArrayOutputStream line) throws IOException {
+    line.reset();
+    int b;
+    while ((b = in.read()) != -1) {
+      if (b == '\n') {
+        int length = line.size();
+        byte[] bytes = line.toByteArray();
+        return new String(bytes, 0, length > 0 && bytes[length - 1] == '\r' ? length - 1 : length, StandardCharsets.US_ASCII);
+      }
+      line.write(b);
+    }
+    return null;
+  }
+
+  private static void skipFully(InputStream in, long count) throws IOException {
+    long remaining = count;
+    while (remaining > 0) {
+      long skipped = in.skip(remaining);
+      if (skipped <= 0) {
+        if (in.read() == -1) {
+          return;
+        }
+        skipped = 1;
+      }
+      remaining -= skipped;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverChannel.close();
+    executor.shutdownNow();
+    if (socketFile != null) {
+      Files.deleteIfExists(socketFile);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Raw streaming throughput of a {@link UnixSocket} via its heap streams compared to its channels,
+ * reading into a heap buffer or a pooled direct buffer. The <code>bytes</code> counter is reported in bytes per second.
+ * Run with <code>-Pjmh.profilers=gc</code> to compare the allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnixSocketChannelBenchmark {
+
+  private static final long BODY_SIZE = 64 * 1024 * 1024;
+
+  @Param({"stream", "heapChannel", "directChannel"})
+  public String mode;
+
+  @Param({"JDK", "JUNIXSOCKET"})
+  public UnixSocketBackend backend;
+
+  private HttpStandInServer server;
+  private UnixSocket socket;
+  private InputStream inputStream;
+  private ReadableByteChannel channel;
+  private byte[] request;
+  private long responseSize;
+  private final byte[] heapArray = new byte[DirectBufferPool.DEFAULT_BUFFER_SIZE];
+  private final ByteBuffer heapBuffer = ByteBuffer.wrap(heapArray);
+  private DirectBufferPool.Lease directBuffer;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Counters {
+
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    server = HttpStandInServer.unix();
+    UnixSocketFactory factory = new UnixSocketFactory(backend);
+    InetAddress address = factory.lookup(server.url().host()).get(0);
+    socket = (UnixSocket) factory.createSocket();
+    socket.connect(new InetSocketAddress(address, 0), 0);
+    inputStream = socket.getInputStream();
+    channel = socket.getReadableChannel();
+    directBuffer = DirectBufferPool.shared().acquire();
+    request = ("GET /stream?bytes=" + BODY_SIZE + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    responseSize = ("HTTP/1.1 200 OK\r\n"
+                    + "Content-Type: application/octet-stream\r\n"
+                    + "Content-Length: " + BODY_SIZE + "\r\n"
+                    + "\r\n").length() + BODY_SIZE;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    directBuffer.close();
+    socket.close();
+    server.close();
+  }
+
+  @Benchmark
+  public long read(Counters counters) throws IOException {
+    socket.getOutputStream().write(request);
+    long total = 0;
+    while (total < responseSize) {
+      int read;
+      switch (mode) {
+        case "stream":
+          read = inputStream.read(heapArray, 0, (int) Math.min(heapArray.length, responseSize - total));
+          break;
+        case "heapChannel":
+          heapBuffer.clear().limit((int) Math.min(heapArray.length, responseSize - total));
+          read = channel.read(heapBuffer);
+          break;
+        default:
+          ByteBuffer buffer = directBuffer.buffer();
+          buffer.clear().limit((int) Math.min(buffer.capacity(), responseSize - total));
+          read = channel.read(buffer);
+      }
+      if (read == -1) {
+        throw new IOException("Unexpected end of stream");
+      }
+      total += read;
+    }
+    counters.bytes += total;
+    return total;
+  }
+}
@@ -0,0 +1,76 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Cost of establishing (and closing) a connection, including address lookup,
+ * hostname decoding and socket creation the way OkHttp performs them.
+ * The <code>tcp</code> transport serves as baseline, the <code>unix-*</code> transports compare the Unix domain socket backends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnixSocketConnectBenchmark {
+
+  @Param({"unix-JDK", "unix-JUNIXSOCKET", "tcp"})
+  public String transport;
+
+  private HttpStandInServer server;
+  private UnixSocketFactory factory;
+  private String host;
+  private int port;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    server = HttpStandInServer.forTransport(transport);
+    factory = new UnixSocketFactory(HttpStandInServer.backendOf(transport));
+    HttpUrl url = server.url();
+    host = url.host();
+    port = url.port();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    server.close();
+  }
+
+  @Benchmark
+  public boolean connect() throws IOException {
+    InetAddress address;
+    Socket socket;
+    if (server.isUnix()) {
+      address = factory.lookup(host).get(0);
+      socket = factory.createSocket();
+    } else {
+      address = InetAddress.getByName(host);
+      socket = new Socket();
+    }
+    try (Socket ignored = socket) {
+      socket.connect(new InetSocketAddress(address, port), 10_000);
+      return socket.isConnected();
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the checks OkHttp runs before reusing a pooled connection.
+ * {@link UnixSocket#isInputShutdown()} probes the connection with a non-blocking read,
+ * a TCP {@link Socket} only reads its state and serves as baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnixSocketLivenessBenchmark {
+
+  @Param({"unix", "tcp"})
+  public String transport;
+
+  private HttpStandInServer server;
+  private Socket socket;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    if ("unix".equals(transport)) {
+      server = HttpStandInServer.unix();
+      UnixSocketFactory factory = new UnixSocketFactory(UnixSocketBackend.JDK);
+      InetAddress address = factory.lookup(server.url().host()).get(0);
+      socket = factory.createSocket();
+      socket.connect(new InetSocketAddress(address, 0), 0);
+    } else {
+      server = HttpStandInServer.tcp();
+      socket = new Socket(server.url().host(), server.url().port());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    socket.close();
+    server.close();
+  }
+
+  @Benchmark
+  public boolean reuseCheck() {
+    return socket.isClosed() || socket.isInputShutdown() || socket.isOutputShutdown();
+  }
+}
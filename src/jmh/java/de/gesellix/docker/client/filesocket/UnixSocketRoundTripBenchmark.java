@@ -0,0 +1,64 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Latency of small requests on a pooled (keep-alive) connection, comparable to <code>GET /_ping</code>.
+ * The sample mode reports percentiles, look for <code>p0.50</code> and <code>p0.99</code>.
+ * The <code>tcp</code> transport serves as baseline, the <code>unix-*</code> transports compare the Unix domain socket backends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnixSocketRoundTripBenchmark {
+
+  @Param({"unix-JDK", "unix-JUNIXSOCKET", "tcp"})
+  public String transport;
+
+  private HttpStandInServer server;
+  private OkHttpClient client;
+  private Request ping;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    server = HttpStandInServer.forTransport(transport);
+    client = server.newClientBuilder(HttpStandInServer.backendOf(transport)).build();
+    ping = new Request.Builder().url(server.url().resolve("/_ping")).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    client.connectionPool().evictAll();
+    client.dispatcher().executorService().shutdown();
+    server.close();
+  }
+
+  @Benchmark
+  public int ping() throws IOException {
+    try (Response response = client.newCall(ping).execute()) {
+      return response.body().bytes().length;
+    }
+  }
+}
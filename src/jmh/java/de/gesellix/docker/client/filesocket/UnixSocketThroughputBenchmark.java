@@ -0,0 +1,94 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSource;
+
+/**
+ * Streaming throughput for large response bodies, comparable to <code>docker save</code> or <code>docker export</code>.
+ * The <code>bytes</code> counter is reported in bytes per second, divide by 10^6 to get MB/s.
+ * The <code>tcp</code> transport serves as baseline, the <code>unix-*</code> transports compare the Unix domain socket backends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnixSocketThroughputBenchmark {
+
+  @Param({"unix-JDK", "unix-JUNIXSOCKET", "tcp"})
+  public String transport;
+
+  @Param({"1048576", "67108864"})
+  public long bodySize;
+
+  private HttpStandInServer server;
+  private OkHttpClient client;
+  private Request stream;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Counters {
+
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ReadBuffer {
+
+    public final byte[] buffer = new byte[64 * 1024];
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    server = HttpStandInServer.forTransport(transport);
+    client = server.newClientBuilder(HttpStandInServer.backendOf(transport)).build();
+    stream = new Request.Builder().url(server.url().resolve("/stream?bytes=" + bodySize)).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    client.connectionPool().evictAll();
+    client.dispatcher().executorService().shutdown();
+    server.close();
+  }
+
+  @Benchmark
+  public long stream(Counters counters, ReadBuffer readBuffer) throws IOException {
+    long total = 0;
+    try (Response response = client.newCall(stream).execute()) {
+      BufferedSource source = response.body().source();
+      int read;
+      while ((read = source.read(readBuffer.buffer)) != -1) {
+        total += read;
+      }
+    }
+    counters.bytes += total;
+    return total;
+  }
+}
@@ -0,0 +1,517 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AlreadyConnectedException;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.ConnectionPendingException;
+import java.nio.channels.NotYetConnectedException;
+import java.nio.channels.ReadPendingException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritePendingException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AsynchronousByteChannel} for Unix domain sockets, the counterpart of the named pipes' {@link AsynchronousFileByteChannel}.
+ * <p>
+ * Connects, reads and writes are performed by a selector thread of a {@link UnixSocketEventLoopGroup},
+ * so that no thread needs to wait for in-flight calls. Completion handlers and dependent stages of the returned futures
+ * run on that selector thread and must not block. At most one read and one write may be pending at a time.
+ * <p>
+ * Connects which find the daemon's accept backlog full are retried as blocking connect on a helper thread,
+ * because non-blocking Unix domain socket connects fail instead of waiting for space in the backlog.
+ * The blocking connect waits for the {@link #setConnectTimeout(Duration) connect timeout} at most.
+ * Requires the JDK's Unix domain socket support (Java 16+).
+ */
+public class AsynchronousUnixSocketChannel implements AsynchronousByteChannel {
+
+  private static final Logger log = LoggerFactory.getLogger(AsynchronousUnixSocketChannel.class);
+
+  public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+  private static class ConnectExecutorHolder {
+
+    // the threads terminate when idle
+    private static final Executor INSTANCE = new ThreadPoolExecutor(0, 2, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "unix-socket-blocking-connect");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // replaced by the blocking connect's channel
+  private volatile SocketChannel channel;
+  // the blocking connect's channel while it's connecting, so that close() can cancel it
+  private volatile SocketChannel blockingConnect;
+  private volatile Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+  private final SelectorLoop loop;
+  private final Handler handler = new Handler();
+  private final AtomicBoolean connectPending = new AtomicBoolean(false);
+  private final AtomicBoolean readPending = new AtomicBoolean(false);
+  private final AtomicBoolean writePending = new AtomicBoolean(false);
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  private AsynchronousUnixSocketChannel(SocketChannel channel, SelectorLoop loop) {
+    this.channel = channel;
+    this.loop = loop;
+  }
+
+  /**
+   * Opens a channel served by a small group of selector threads shared by all channels opened this way.
+   */
+  public static AsynchronousUnixSocketChannel open() throws IOException {
+    return open(UnixSocketEventLoopGroup.shared());
+  }
+
+  /**
+   * Opens a channel served by the given group, which must not be closed while the channel is in use.
+   */
+  public static AsynchronousUnixSocketChannel open(UnixSocketEventLoopGroup group) throws IOException {
+    SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+    try {
+      channel.configureBlocking(false);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return new AsynchronousUnixSocketChannel(channel, group.nextLoop());
+  }
+
+  /**
+   * @param socketPath e.g. <code>/var/run/docker.sock</code>
+   * @throws AlreadyConnectedException  if the channel is already connected
+   * @throws ConnectionPendingException if a connect is already in progress
+   */
+  public CompletableFuture<Void> connect(String socketPath) {
+    FutureHandler<Void> future = new FutureHandler<>();
+    connect(socketPath, null, future);
+    return future;
+  }
+
+  /**
+   * @param socketPath e.g. <code>/var/run/docker.sock</code>
+   * @throws AlreadyConnectedException  if the channel is already connected
+   * @throws ConnectionPendingException if a connect is already in progress
+   */
+  public <A> void connect(String socketPath, A attachment, CompletionHandler<Void, ? super A> handler) {
+    if (channel.isConnected()) {
+      throw new AlreadyConnectedException();
+    }
+    if (!connectPending.compareAndSet(false, true)) {
+      throw new ConnectionPendingException();
+    }
+    Operation<Void> operation = new Operation<>(null, attachment, handler);
+    UnixDomainSocketAddress endpoint;
+    try {
+      endpoint = FileSocketAddress.forSocketPath(socketPath).endpoint(UnixDomainSocketAddress.class, UnixDomainSocketAddress::of);
+    } catch (IOException | RuntimeException e) {
+      connectPending.set(false);
+      operation.failed(e);
+      return;
+    }
+    submit(operation, connectPending, () -> {
+      this.handler.pendingConnect = operation;
+      this.handler.connect(endpoint);
+    });
+  }
+
+  /**
+   * @throws ReadPendingException if a read is already pending
+   */
+  @Override
+  public <A> void read(ByteBuffer dst, A attachment, CompletionHandler<Integer, ? super A> handler) {
+    if (dst.isReadOnly()) {
+      throw new IllegalArgumentException("Read-only buffer");
+    }
+    if (!readPending.compareAndSet(false, true)) {
+      throw new ReadPendingException();
+    }
+    Operation<Integer> operation = new Operation<>(dst, attachment, handler);
+    submit(operation, readPending, () -> {
+      this.handler.pendingRead = operation;
+      this.handler.read();
+    });
+  }
+
+  /**
+   * @throws ReadPendingException if a read is already pending
+   */
+  @Override
+  public CompletableFuture<Integer> read(ByteBuffer dst) {
+    FutureHandler<Integer> future = new FutureHandler<>();
+    read(dst, null, future);
+    return future;
+  }
+
+  /**
+   * Completes once some bytes have been written, which may be less than the remaining bytes of the buffer.
+   *
+   * @throws WritePendingException if a write is already pending
+   */
+  @Override
+  public <A> void write(ByteBuffer src, A attachment, CompletionHandler<Integer, ? super A> handler) {
+    if (!writePending.compareAndSet(false, true)) {
+      throw new WritePendingException();
+    }
+    Operation<Integer> operation = new Operation<>(src, attachment, handler);
+    submit(operation, writePending, () -> {
+      this.handler.pendingWrite = operation;
+      this.handler.write();
+    });
+  }
+
+  /**
+   * @throws WritePendingException if a write is already pending
+   */
+  @Override
+  public CompletableFuture<Integer> write(ByteBuffer src) {
+    FutureHandler<Integer> future = new FutureHandler<>();
+    write(src, null, future);
+    return future;
+  }
+
+  /**
+   * @param connectTimeout limits the wait of a connect for space in the daemon's accept backlog,
+   *                       <code>Duration.ZERO</code> waits without limit
+   */
+  public void setConnectTimeout(Duration connectTimeout) {
+    if (connectTimeout.isNegative()) {
+      throw new IllegalArgumentException("connectTimeout must not be negative");
+    }
+    this.connectTimeout = connectTimeout;
+  }
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public boolean isConnected() {
+    return channel.isConnected();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return !closed.get();
+  }
+
+  /**
+   * Closes the socket, pending operations fail with an {@link AsynchronousCloseException}.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      channel.close();
+    } finally {
+      closeQuietly(blockingConnect);
+      try {
+        loop.execute(handler::failPending);
+      } catch (IllegalStateException e) {
+        // the loop is gone, nothing will complete the pending operations
+        handler.failPending();
+      }
+    }
+  }
+
+  private void submit(Operation<?> operation, AtomicBoolean pending, Runnable task) {
+    if (closed.get()) {
+      pending.set(false);
+      operation.failed(new ClosedChannelException());
+      return;
+    }
+    try {
+      loop.execute(task);
+    } catch (IllegalStateException e) {
+      pending.set(false);
+      operation.failed(new IOException("The event loop group has been closed", e));
+    }
+  }
+
+  /**
+   * Performs the operations, only to be used on the loop thread.
+   */
+  private class Handler implements SelectorLoop.ReadyHandler {
+
+    private SelectionKey key = null;
+    private Operation<Void> pendingConnect = null;
+    private Operation<Integer> pendingRead = null;
+    private Operation<Integer> pendingWrite = null;
+
+    void connect(UnixDomainSocketAddress endpoint) {
+      try {
+        if (!channel.connect(endpoint)) {
+          interest(SelectionKey.OP_CONNECT, true);
+          return;
+        }
+      } catch (ConnectException e) {
+        completeConnect(e);
+        return;
+      } catch (SocketException e) {
+        // either a full accept backlog (EAGAIN) or a terminal error like a missing socket file,
+        // a blocking connect waits for the former and fails fast on the latter
+        if (closed.get()) {
+          completeConnect(e);
+        } else {
+          connectBlocking(endpoint);
+        }
+        return;
+      } catch (IOException | RuntimeException e) {
+        completeConnect(e);
+        return;
+      }
+      completeConnect(null);
+    }
+
+    private void connectBlocking(UnixDomainSocketAddress endpoint) {
+      log.debug("retrying connect to '{}' as blocking connect", endpoint);
+      try {
+        ConnectExecutorHolder.INSTANCE.execute(() -> {
+          SocketChannel connected = null;
+          IOException error = null;
+          try {
+            SocketChannel connecting = SocketChannel.open(StandardProtocolFamily.UNIX);
+            connected = connecting;
+            blockingConnect = connecting;
+            if (closed.get()) {
+              throw new AsynchronousCloseException();
+            }
+            long deadline = connectTimeout.isZero() ? 0 : System.nanoTime() + connectTimeout.toNanos();
+            UnixSocketTransport.withDeadline(deadline, "Connect timed out", connecting, () -> connecting.connect(endpoint));
+            connecting.configureBlocking(false);
+          } catch (IOException e) {
+            closeQuietly(connected);
+            connected = null;
+            error = e;
+          } finally {
+            blockingConnect = null;
+          }
+          SocketChannel result = connected;
+          IOException failure = error;
+          try {
+            loop.execute(() -> {
+              if (failure != null) {
+                completeConnect(failure);
+              } else if (closed.get()) {
+                closeQuietly(result);
+                completeConnect(new AsynchronousCloseException());
+              } else {
+                // the failed non-blocking connect leaves the original channel unusable
+                SocketChannel replaced = channel;
+                channel = result;
+                if (key != null) {
+                  key.cancel();
+                  key = null;
+                }
+                closeQuietly(replaced);
+                completeConnect(null);
+              }
+            });
+          } catch (IllegalStateException e) {
+            closeQuietly(result);
+            failPending();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        completeConnect(new IOException("Connect rejected", e));
+      }
+    }
+
+    private void finishConnect() {
+      try {
+        if (!channel.finishConnect()) {
+          return;
+        }
+        interest(SelectionKey.OP_CONNECT, false);
+      } catch (IOException | RuntimeException e) {
+        completeConnect(e);
+        return;
+      }
+      completeConnect(null);
+    }
+
+    private void completeConnect(Throwable error) {
+      Operation<Void> operation = pendingConnect;
+      if (operation == null) {
+        // already failed by close()
+        return;
+      }
+      pendingConnect = null;
+      connectPending.set(false);
+      if (error == null) {
+        operation.completed(null);
+      } else {
+        operation.failed(closed.get() ? new AsynchronousCloseException() : error);
+      }
+    }
+
+    void read() {
+      Operation<Integer> operation = pendingRead;
+      int read;
+      try {
+        if (!channel.isConnected()) {
+          throw new NotYetConnectedException();
+        }
+        read = channel.read(operation.buffer);
+        if (read == 0 && operation.buffer.hasRemaining()) {
+          interest(SelectionKey.OP_READ, true);
+          return;
+        }
+        interest(SelectionKey.OP_READ, false);
+      } catch (IOException | RuntimeException e) {
+        pendingRead = null;
+        readPending.set(false);
+        operation.failed(closed.get() ? new AsynchronousCloseException() : e);
+        return;
+      }
+      // allows the handler to start the next operation
+      pendingRead = null;
+      readPending.set(false);
+      operation.completed(read);
+    }
+
+    void write() {
+      Operation<Integer> operation = pendingWrite;
+      int written;
+      try {
+        if (!channel.isConnected()) {
+          throw new NotYetConnectedException();
+        }
+        written = channel.write(operation.buffer);
+        if (written == 0 && operation.buffer.hasRemaining()) {
+          interest(SelectionKey.OP_WRITE, true);
+          return;
+        }
+        interest(SelectionKey.OP_WRITE, false);
+      } catch (IOException | RuntimeException e) {
+        pendingWrite = null;
+        writePending.set(false);
+        operation.failed(closed.get() ? new AsynchronousCloseException() : e);
+        return;
+      }
+      // allows the handler to start the next operation
+      pendingWrite = null;
+      writePending.set(false);
+      operation.completed(written);
+    }
+
+    void failPending() {
+      if (closed.get()) {
+        // the blocking connect may have replaced the channel closed by close()
+        closeQuietly(channel);
+      }
+      if (pendingConnect != null) {
+        completeConnect(new AsynchronousCloseException());
+      }
+      if (pendingRead != null) {
+        Operation<Integer> operation = pendingRead;
+        pendingRead = null;
+        readPending.set(false);
+        operation.failed(new AsynchronousCloseException());
+      }
+      if (pendingWrite != null) {
+        Operation<Integer> operation = pendingWrite;
+        pendingWrite = null;
+        writePending.set(false);
+        operation.failed(new AsynchronousCloseException());
+      }
+      // lets the selector release the closed channel
+      loop.wakeup();
+    }
+
+    private void interest(int op, boolean enabled) throws ClosedChannelException {
+      if (key == null) {
+        if (enabled) {
+          key = loop.registerInLoop(channel, op, this);
+        }
+        return;
+      }
+      int ops = key.interestOps();
+      key.interestOps(enabled ? ops | op : ops & ~op);
+    }
+
+    @Override
+    public void ready(SelectionKey key) {
+      int readyOps;
+      try {
+        readyOps = key.readyOps();
+      } catch (CancelledKeyException e) {
+        failPending();
+        return;
+      }
+      if ((readyOps & SelectionKey.OP_CONNECT) != 0 && pendingConnect != null) {
+        finishConnect();
+      }
+      if ((readyOps & SelectionKey.OP_READ) != 0 && pendingRead != null) {
+        read();
+      }
+      if ((readyOps & SelectionKey.OP_WRITE) != 0 && pendingWrite != null) {
+        write();
+      }
+    }
+  }
+
+  private static class Operation<V> {
+
+    private final ByteBuffer buffer;
+    private final Object attachment;
+    private final CompletionHandler<V, Object> handler;
+
+    @SuppressWarnings("unchecked")
+    Operation(ByteBuffer buffer, Object attachment, CompletionHandler<V, ?> handler) {
+      this.buffer = buffer;
+      this.attachment = attachment;
+      this.handler = (CompletionHandler<V, Object>) handler;
+    }
+
+    void completed(V result) {
+      handler.completed(result, attachment);
+    }
+
+    void failed(Throwable error) {
+      handler.failed(error, attachment);
+    }
+  }
+
+  private static class FutureHandler<V> extends CompletableFuture<V> implements CompletionHandler<V, Object> {
+
+    @Override
+    public void completed(V result, Object attachment) {
+      complete(result);
+    }
+
+    @Override
+    public void failed(Throwable exc, Object attachment) {
+      completeExceptionally(exc);
+    }
+  }
+
+  private static void closeQuietly(SocketChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+}
@@ -0,0 +1,289 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spreads connections across several daemon compatible endpoints, e.g. rootful and rootless Docker,
+ * or dockerd and a read-only API proxy. Connects to any of the endpoints, e.g. via {@link #getHostname()},
+ * go to the endpoint with the fewest open connections. As OkHttp reuses idle connections first,
+ * open connections follow the concurrent requests. Other socket paths are connected as usual.
+ * <p>
+ * An endpoint which fails to connect is taken out of rotation and the connect moves on to the next endpoint.
+ * Once its backoff has passed, a single connect probes the endpoint: success puts it back into rotation,
+ * failure doubles the backoff up to the maximum. Endpoints out of rotation are only tried when no other endpoint is left.
+ * Connects which time out, or which are rejected by a {@link FileSocketBulkhead}, move on as well,
+ * but leave the busy endpoint in rotation.
+ */
+public class BalancingUnixSocketFactory extends UnixSocketFactory {
+
+  private static final Logger log = LoggerFactory.getLogger(BalancingUnixSocketFactory.class);
+
+  public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofSeconds(1);
+  public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(30);
+
+  private final List<Endpoint> endpoints;
+  private final Map<String, Endpoint> endpointsBySocketPath;
+  // rotates the start of the search, so that endpoints with equal load take turns
+  private final AtomicInteger nextStart = new AtomicInteger();
+  private volatile Duration initialBackoff = DEFAULT_INITIAL_BACKOFF;
+  private volatile Duration maxBackoff = DEFAULT_MAX_BACKOFF;
+
+  public BalancingUnixSocketFactory(Collection<String> socketPaths) {
+    this(UnixSocketBackend.preferred(), socketPaths);
+  }
+
+  /**
+   * @param socketPaths the endpoints, e.g. <code>/var/run/docker.sock</code> and <code>$XDG_RUNTIME_DIR/docker.sock</code>
+   */
+  public BalancingUnixSocketFactory(UnixSocketBackend backend, Collection<String> socketPaths) {
+    super(backend);
+    if (socketPaths.isEmpty()) {
+      throw new IllegalArgumentException("socketPaths must not be empty");
+    }
+    Map<String, Endpoint> bySocketPath = new LinkedHashMap<>();
+    for (String socketPath : socketPaths) {
+      bySocketPath.putIfAbsent(socketPath, new Endpoint(socketPath));
+    }
+    this.endpointsBySocketPath = Collections.unmodifiableMap(bySocketPath);
+    this.endpoints = List.copyOf(bySocketPath.values());
+  }
+
+  /**
+   * @return the encoded hostname of the first endpoint, to be used as host of the client's base url.
+   * Requests to any other endpoint's hostname are balanced as well.
+   */
+  public String getHostname() {
+    return FileSocketAddress.forSocketPath(endpoints.get(0).socketPath).getHostname();
+  }
+
+  public List<String> getSocketPaths() {
+    return new ArrayList<>(endpointsBySocketPath.keySet());
+  }
+
+  /**
+   * @param initialBackoff time an endpoint is out of rotation after its first failed connect
+   * @param maxBackoff     limit for the backoff, which doubles with each failed probe
+   */
+  public void setBackoff(Duration initialBackoff, Duration maxBackoff) {
+    if (initialBackoff.isNegative() || initialBackoff.isZero()) {
+      throw new IllegalArgumentException("initialBackoff must be positive");
+    }
+    if (maxBackoff.compareTo(initialBackoff) < 0) {
+      throw new IllegalArgumentException("maxBackoff must not be less than initialBackoff");
+    }
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = maxBackoff;
+  }
+
+  public Duration getInitialBackoff() {
+    return initialBackoff;
+  }
+
+  public Duration getMaxBackoff() {
+    return maxBackoff;
+  }
+
+  /**
+   * @return the open connections of sockets created by this factory, including those being connected
+   */
+  public int getOpenConnections(String socketPath) {
+    return endpoint(socketPath).openConnections.get();
+  }
+
+  /**
+   * @return <code>false</code> while the endpoint is out of rotation after a failed connect
+   */
+  public boolean isInRotation(String socketPath) {
+    return endpoint(socketPath).failures == 0;
+  }
+
+  private Endpoint endpoint(String socketPath) {
+    Endpoint endpoint = endpointsBySocketPath.get(socketPath);
+    if (endpoint == null) {
+      throw new IllegalArgumentException("Unknown endpoint '" + socketPath + "'");
+    }
+    return endpoint;
+  }
+
+  @Override
+  UnixSocket newSocket(UnixSocketBackend backend, PrewarmedUnixSocketPool pool) {
+    return new BalancedUnixSocket(backend, pool);
+  }
+
+  /**
+   * Picks an endpoint which is due for a probe, otherwise the one with the fewest open connections,
+   * and only when all endpoints are out of rotation the one which returns first.
+   * The connection is counted right away, so that concurrent connects spread as well.
+   *
+   * @return <code>null</code> when all endpoints have been tried
+   */
+  private Endpoint select(Set<Endpoint> tried) {
+    long now = System.nanoTime();
+    int start = Math.floorMod(nextStart.getAndIncrement(), endpoints.size());
+    Endpoint leastConnections = null;
+    Endpoint returningFirst = null;
+    for (int i = 0; i < endpoints.size(); i++) {
+      Endpoint endpoint = endpoints.get((start + i) % endpoints.size());
+      if (tried.contains(endpoint)) {
+        continue;
+      }
+      if (endpoint.failures == 0) {
+        if (leastConnections == null || endpoint.openConnections.get() < leastConnections.openConnections.get()) {
+          leastConnections = endpoint;
+        }
+      } else if (now - endpoint.retryAt >= 0 && endpoint.probing.compareAndSet(false, true)) {
+        endpoint.openConnections.incrementAndGet();
+        return endpoint;
+      } else if (returningFirst == null || endpoint.retryAt - returningFirst.retryAt < 0) {
+        returningFirst = endpoint;
+      }
+    }
+    Endpoint selected = leastConnections != null ? leastConnections : returningFirst;
+    if (selected != null) {
+      selected.openConnections.incrementAndGet();
+    }
+    return selected;
+  }
+
+  private static class Endpoint {
+
+    private final String socketPath;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicBoolean probing = new AtomicBoolean();
+    // a lock instead of synchronized, so that virtual threads don't pin their carrier
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private volatile int failures = 0;
+    private volatile long retryAt = 0;
+
+    Endpoint(String socketPath) {
+      this.socketPath = socketPath;
+    }
+
+    void connected() {
+      stateLock.lock();
+      try {
+        if (failures > 0) {
+          log.info("'{}' is back in rotation", socketPath);
+        }
+        failures = 0;
+        probing.set(false);
+      } finally {
+        stateLock.unlock();
+      }
+    }
+
+    void connectFailed(Duration initialBackoff, Duration maxBackoff) {
+      openConnections.decrementAndGet();
+      stateLock.lock();
+      try {
+        long backoffNanos = maxBackoff.toNanos();
+        if (failures < 62 && initialBackoff.toNanos() <= backoffNanos >> failures) {
+          backoffNanos = initialBackoff.toNanos() << failures;
+        }
+        failures++;
+        retryAt = System.nanoTime() + backoffNanos;
+        probing.set(false);
+        log.info("taking '{}' out of rotation for {} ms", socketPath, TimeUnit.NANOSECONDS.toMillis(backoffNanos));
+      } finally {
+        stateLock.unlock();
+      }
+    }
+
+    /**
+     * Like {@link #connectFailed(Duration, Duration)}, but for an endpoint which is busy rather than failing.
+     */
+    void connectAborted() {
+      openConnections.decrementAndGet();
+      if (failures > 0) {
+        // the probe is due again
+        probing.set(false);
+      }
+    }
+
+    void closed() {
+      openConnections.decrementAndGet();
+    }
+  }
+
+  private class BalancedUnixSocket extends UnixSocket {
+
+    private final AtomicBoolean counted = new AtomicBoolean();
+    private volatile Endpoint endpoint = null;
+
+    BalancedUnixSocket(UnixSocketBackend backend, PrewarmedUnixSocketPool pool) {
+      super(backend, pool);
+    }
+
+    /**
+     * Moves on to the next endpoint when connecting fails, the first failure is thrown when all endpoints have failed.
+     */
+    @Override
+    public void connect(SocketAddress endpoint, int timeout) throws IOException {
+      Endpoint requested = endpoint instanceof InetSocketAddress
+                           ? endpointsBySocketPath.get(resolveAddress(((InetSocketAddress) endpoint).getAddress()).getSocketPath())
+                           : null;
+      if (requested == null) {
+        super.connect(endpoint, timeout);
+        return;
+      }
+      int port = ((InetSocketAddress) endpoint).getPort();
+      Set<Endpoint> tried = new HashSet<>();
+      IOException failure = null;
+      Endpoint selected;
+      while ((selected = select(tried)) != null) {
+        tried.add(selected);
+        try {
+          super.connect(new InetSocketAddress(FileSocketAddress.forSocketPath(selected.socketPath).getInetAddresses().get(0), port), timeout);
+        } catch (IOException e) {
+          if (e instanceof SocketTimeoutException || FileSocketBulkhead.isBulkheadFailure(e)) {
+            selected.connectAborted();
+          } else {
+            selected.connectFailed(initialBackoff, maxBackoff);
+          }
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e);
+          }
+          continue;
+        }
+        selected.connected();
+        this.endpoint = selected;
+        counted.set(true);
+        return;
+      }
+      throw failure;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        Endpoint connected = endpoint;
+        if (connected != null && counted.compareAndSet(true, false)) {
+          connected.closed();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces small writes, e.g. single keystrokes or lines sent to the stdin of a hijacked <code>exec</code> session,
+ * into fewer writes to the underlying stream, and thus fewer syscalls or <code>WriteFile</code> calls.
+ * <p>
+ * Like Nagle's algorithm, buffered bytes are written once the batch is full or once the first of them has waited for the maximum delay.
+ * Writes of at least a full batch and {@link #flush()} always pass through immediately.
+ * Failures of delayed writes are reported by the next call.
+ */
+public class CoalescingOutputStream extends FilterOutputStream {
+
+  private static class SchedulerHolder {
+
+    private static final ScheduledThreadPoolExecutor INSTANCE = newScheduler();
+
+    private static ScheduledThreadPoolExecutor newScheduler() {
+      ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "coalescing-output-scheduler");
+        thread.setDaemon(true);
+        return thread;
+      });
+      scheduler.setRemoveOnCancelPolicy(true);
+      return scheduler;
+    }
+  }
+
+  private static class FlushExecutorHolder {
+
+    // delayed writes may block on a slow peer, so they don't run on the scheduler thread; idle threads terminate
+    private static final Executor INSTANCE = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "coalescing-output-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // a lock instead of synchronized, so that virtual threads don't pin their carrier
+  private final ReentrantLock lock = new ReentrantLock();
+  private final byte[] buffer;
+  private final long maxDelayNanos;
+  private int count = 0;
+  private Future<?> scheduledFlush = null;
+  private IOException delayedFailure = null;
+  private boolean closed = false;
+
+  /**
+   * @param maxBatchSize bytes which are buffered at most
+   * @param maxDelay     time the first buffered byte waits at most
+   */
+  public CoalescingOutputStream(OutputStream out, int maxBatchSize, Duration maxDelay) {
+    super(out);
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("maxBatchSize must be positive");
+    }
+    if (maxDelay.isNegative() || maxDelay.isZero()) {
+      throw new IllegalArgumentException("maxDelay must be positive");
+    }
+    this.buffer = new byte[maxBatchSize];
+    this.maxDelayNanos = maxDelay.toNanos();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    lock.lock();
+    try {
+      ensureOpen();
+      if (count == buffer.length) {
+        writeBuffer();
+      }
+      buffer[count++] = (byte) b;
+      batched();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, b.length);
+    if (len == 0) {
+      return;
+    }
+    lock.lock();
+    try {
+      ensureOpen();
+      if (len >= buffer.length) {
+        writeBuffer();
+        out.write(b, off, len);
+        return;
+      }
+      if (len > buffer.length - count) {
+        writeBuffer();
+      }
+      System.arraycopy(b, off, buffer, count, len);
+      count += len;
+      batched();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    lock.lock();
+    try {
+      ensureOpen();
+      writeBuffer();
+      out.flush();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        writeBuffer();
+      } finally {
+        out.close();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes buffered bytes before the socket is closed, without waiting for a concurrent write and without failing.
+   */
+  void flushQuietly() {
+    if (!lock.tryLock()) {
+      return;
+    }
+    try {
+      if (!closed && delayedFailure == null) {
+        writeBuffer();
+      }
+    } catch (IOException ignored) {
+    } finally {
+      count = 0;
+      cancelScheduledFlush();
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of buffered bytes
+   */
+  int getBufferedCount() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void batched() throws IOException {
+    if (count == buffer.length) {
+      writeBuffer();
+    } else if (scheduledFlush == null) {
+      scheduledFlush = SchedulerHolder.INSTANCE.schedule(
+          () -> FlushExecutorHolder.INSTANCE.execute(this::delayedFlush),
+          maxDelayNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void delayedFlush() {
+    lock.lock();
+    try {
+      scheduledFlush = null;
+      if (!closed && delayedFailure == null) {
+        writeBuffer();
+        out.flush();
+      }
+    } catch (IOException e) {
+      delayedFailure = e;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void writeBuffer() throws IOException {
+    cancelScheduledFlush();
+    if (count > 0) {
+      int length = count;
+      // the bytes are dropped on failure, like those of a failed unbuffered write
+      count = 0;
+      out.write(buffer, 0, length);
+    }
+  }
+
+  private void cancelScheduledFlush() {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (delayedFailure != null) {
+      throw new IOException("A delayed write failed: " + delayedFailure.getMessage(), delayedFailure);
+    }
+  }
+}
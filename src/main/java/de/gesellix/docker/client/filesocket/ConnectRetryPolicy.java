@@ -0,0 +1,207 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Retries failed connects of {@link FileSocket}s with an exponential, jittered backoff until an overall deadline,
+ * e.g. while the daemon starts up or while all instances of a named pipe are busy,
+ * see {@link FileSocketFactory#setConnectRetryPolicy(ConnectRetryPolicy)}.
+ * <p>
+ * Where the platform signals readiness, like a newly created Unix domain socket file or
+ * a free named pipe instance, the sockets wait for that signal instead of sleeping the full delay.
+ */
+public final class ConnectRetryPolicy {
+
+  /**
+   * Fails on the first error.
+   */
+  public static final ConnectRetryPolicy NONE = new ConnectRetryPolicy(Duration.ZERO, Duration.ofMillis(1), Duration.ofMillis(1), 0);
+
+  public static final Duration DEFAULT_INITIAL_DELAY = Duration.ofMillis(10);
+  public static final Duration DEFAULT_MAX_DELAY = Duration.ofMillis(250);
+  public static final double DEFAULT_JITTER = 0.2;
+
+  /**
+   * Retries for up to 10 seconds, the default of named pipe sockets.
+   */
+  public static final ConnectRetryPolicy DEFAULT = retryFor(Duration.ofSeconds(10));
+
+  /**
+   * Attempts to connect once.
+   */
+  interface Attempt {
+
+    void connect() throws IOException;
+  }
+
+  private final long timeoutNanos;
+  private final long initialDelayNanos;
+  private final long maxDelayNanos;
+  private final double jitter;
+  private final Predicate<IOException> retryable;
+  private final DoubleSupplier random;
+
+  /**
+   * Uses the default backoff and classifier.
+   */
+  public static ConnectRetryPolicy retryFor(Duration timeout) {
+    return new ConnectRetryPolicy(timeout, DEFAULT_INITIAL_DELAY, DEFAULT_MAX_DELAY, DEFAULT_JITTER);
+  }
+
+  public ConnectRetryPolicy(Duration timeout, Duration initialDelay, Duration maxDelay, double jitter) {
+    this(timeout, initialDelay, maxDelay, jitter, ConnectRetryPolicy::isTransient);
+  }
+
+  /**
+   * @param timeout      overall time for all attempts of a connect, {@link Duration#ZERO} disables retries
+   * @param initialDelay delay after the first failure, doubled after each further failure
+   * @param maxDelay     cap of the delay between attempts
+   * @param jitter       fraction of each delay which is randomly shortened, from <code>0</code> to <code>1</code>
+   * @param retryable    classifies failures which may resolve by waiting
+   */
+  public ConnectRetryPolicy(Duration timeout, Duration initialDelay, Duration maxDelay, double jitter, Predicate<IOException> retryable) {
+    this(timeout, initialDelay, maxDelay, jitter, retryable, () -> ThreadLocalRandom.current().nextDouble());
+  }
+
+  ConnectRetryPolicy(Duration timeout, Duration initialDelay, Duration maxDelay, double jitter, Predicate<IOException> retryable, DoubleSupplier random) {
+    if (timeout.isNegative()) {
+      throw new IllegalArgumentException("timeout must not be negative");
+    }
+    if (initialDelay.isNegative() || initialDelay.isZero()) {
+      throw new IllegalArgumentException("initialDelay must be positive");
+    }
+    if (maxDelay.compareTo(initialDelay) < 0) {
+      throw new IllegalArgumentException("maxDelay must not be less than initialDelay");
+    }
+    if (!(jitter >= 0 && jitter <= 1)) {
+      throw new IllegalArgumentException("jitter must be between 0 and 1");
+    }
+    if (retryable == null) {
+      throw new NullPointerException("retryable");
+    }
+    this.timeoutNanos = timeout.toNanos();
+    this.initialDelayNanos = initialDelay.toNanos();
+    this.maxDelayNanos = maxDelay.toNanos();
+    this.jitter = jitter;
+    this.retryable = retryable;
+    this.random = random;
+  }
+
+  /**
+   * The default classifier: refused connects, full accept backlogs, missing socket files and busy pipes are retried,
+   * timeouts, missing permissions and other failures are not.
+   */
+  public static boolean isTransient(IOException e) {
+    if (e instanceof SocketTimeoutException || e instanceof AccessDeniedException) {
+      return false;
+    }
+    return e instanceof SocketException || e instanceof FileSystemException;
+  }
+
+  public Duration getTimeout() {
+    return Duration.ofNanos(timeoutNanos);
+  }
+
+  public Duration getInitialDelay() {
+    return Duration.ofNanos(initialDelayNanos);
+  }
+
+  public Duration getMaxDelay() {
+    return Duration.ofNanos(maxDelayNanos);
+  }
+
+  public double getJitter() {
+    return jitter;
+  }
+
+  boolean isRetryEnabled() {
+    return timeoutNanos > 0;
+  }
+
+  boolean isRetryable(IOException e) {
+    return retryable.test(e);
+  }
+
+  /**
+   * Starts the deadline of a single connect.
+   */
+  Attempts start() {
+    return new Attempts(System.nanoTime() + timeoutNanos);
+  }
+
+  /**
+   * Connects via the attempt, sleeping between failed attempts.
+   *
+   * @throws IOException the last failure once the deadline has passed, or the first one which isn't retryable
+   */
+  void connect(Attempt attempt) throws IOException {
+    Attempts attempts = start();
+    while (true) {
+      try {
+        attempt.connect();
+        return;
+      } catch (IOException e) {
+        if (!attempts.shouldRetry(e)) {
+          throw e;
+        }
+      }
+      attempts.sleep();
+    }
+  }
+
+  /**
+   * Tracks the deadline and backoff of a single connect, not thread safe.
+   */
+  final class Attempts {
+
+    private final long deadline;
+    private long delayNanos = initialDelayNanos;
+
+    private Attempts(long deadline) {
+      this.deadline = deadline;
+    }
+
+    boolean shouldRetry(IOException e) {
+      return remainingNanos() > 0 && isRetryable(e);
+    }
+
+    long remainingNanos() {
+      return deadline - System.nanoTime();
+    }
+
+    /**
+     * @return the jittered delay before the next attempt, at most the remaining time, at least one millisecond.
+     */
+    long nextDelayMillis() {
+      long delay = delayNanos - (long) (delayNanos * jitter * random.getAsDouble());
+      delayNanos = delayNanos > maxDelayNanos / 2 ? maxDelayNanos : delayNanos * 2;
+      long millis = Math.min(delay, Math.max(0, remainingNanos())) / 1_000_000L;
+      return Math.max(1, millis);
+    }
+
+    /**
+     * Restarts the backoff with the initial delay, e.g. after the platform signalled readiness.
+     */
+    void resetBackoff() {
+      delayNanos = initialDelayNanos;
+    }
+
+    void sleep() throws InterruptedIOException {
+      try {
+        Thread.sleep(nextDelayMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting to reconnect");
+      }
+    }
+  }
+}
@@ -0,0 +1,254 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded pool of direct {@link ByteBuffer}s for channel I/O, see {@link UnixSocket#getReadableChannel()}.
+ * <p>
+ * Idle buffers are kept in stripes chosen by the current thread, so that a thread usually gets back the buffer
+ * it has released before, without per-thread caches growing with the number of (virtual) threads.
+ * Buffers released to a full stripe are left to the garbage collector.
+ * <p>
+ * Every n-th lease is tracked: a lease which becomes unreachable without being closed is counted
+ * and logged as leak, together with the stack trace of its acquisition.
+ */
+public final class DirectBufferPool {
+
+  private static final Logger log = LoggerFactory.getLogger(DirectBufferPool.class);
+
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  public static final int DEFAULT_MAX_POOLED_BUFFERS = 64;
+  static final int DEFAULT_LEAK_DETECTION_INTERVAL = 128;
+
+  private static class Holder {
+
+    private static final DirectBufferPool INSTANCE = new DirectBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS, DEFAULT_LEAK_DETECTION_INTERVAL);
+  }
+
+  private static class CleanerHolder {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+  }
+
+  private final int bufferSize;
+  private final Stripe[] stripes;
+  private final int leakDetectionInterval;
+  private final AtomicLong acquisitions = new AtomicLong();
+  private final AtomicInteger leased = new AtomicInteger();
+  private final LongAdder allocations = new LongAdder();
+  private final LongAdder leaks = new LongAdder();
+
+  public DirectBufferPool(int bufferSize, int maxPooledBuffers) {
+    this(bufferSize, maxPooledBuffers, DEFAULT_LEAK_DETECTION_INTERVAL);
+  }
+
+  /**
+   * @param leakDetectionInterval tracks every n-th lease, <code>1</code> tracks all leases, <code>0</code> disables leak detection
+   */
+  DirectBufferPool(int bufferSize, int maxPooledBuffers, int leakDetectionInterval) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be positive");
+    }
+    if (maxPooledBuffers < 0) {
+      throw new IllegalArgumentException("maxPooledBuffers must not be negative");
+    }
+    this.bufferSize = bufferSize;
+    this.leakDetectionInterval = leakDetectionInterval;
+    int stripeCount = Math.max(1, Math.min(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1), Integer.highestOneBit(Math.max(1, maxPooledBuffers))));
+    this.stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new Stripe(maxPooledBuffers / stripeCount + (i < maxPooledBuffers % stripeCount ? 1 : 0));
+    }
+  }
+
+  /**
+   * @return the pool used by {@link UnixSocket}, holding up to {@value #DEFAULT_MAX_POOLED_BUFFERS} idle buffers
+   * of {@value #DEFAULT_BUFFER_SIZE} bytes.
+   */
+  public static DirectBufferPool shared() {
+    return Holder.INSTANCE;
+  }
+
+  /**
+   * @return a cleared buffer of {@link #getBufferSize()} bytes, to be released by closing the lease.
+   */
+  public Lease acquire() {
+    ByteBuffer buffer = stripe().pop();
+    if (buffer == null) {
+      buffer = ByteBuffer.allocateDirect(bufferSize);
+      allocations.increment();
+    }
+    leased.incrementAndGet();
+    LeakTracker tracker = null;
+    if (leakDetectionInterval > 0 && acquisitions.getAndIncrement() % leakDetectionInterval == 0) {
+      tracker = new LeakTracker(this);
+    }
+    return new Lease(this, buffer, tracker);
+  }
+
+  private void release(ByteBuffer buffer) {
+    leased.decrementAndGet();
+    buffer.clear();
+    stripe().push(buffer);
+  }
+
+  private Stripe stripe() {
+    return stripes[(int) (Thread.currentThread().getId() & (stripes.length - 1))];
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * @return the number of idle buffers
+   */
+  public int getPooledCount() {
+    int count = 0;
+    for (Stripe stripe : stripes) {
+      count += stripe.size();
+    }
+    return count;
+  }
+
+  /**
+   * @return the number of buffers currently in use
+   */
+  public int getLeasedCount() {
+    return leased.get();
+  }
+
+  /**
+   * @return the number of buffers allocated because the pool had no idle buffer
+   */
+  public long getAllocationCount() {
+    return allocations.sum();
+  }
+
+  /**
+   * @return the number of tracked leases which haven't been closed
+   */
+  public long getLeakCount() {
+    return leaks.sum();
+  }
+
+  /**
+   * A buffer borrowed from the pool. Neither the lease nor its buffer must be used after {@link #close()},
+   * and the buffer must not be used after the lease has become unreachable.
+   */
+  public static final class Lease implements AutoCloseable {
+
+    private final DirectBufferPool pool;
+    private final ByteBuffer buffer;
+    private final LeakTracker tracker;
+    private final Cleaner.Cleanable cleanable;
+    private boolean released = false;
+
+    private Lease(DirectBufferPool pool, ByteBuffer buffer, LeakTracker tracker) {
+      this.pool = pool;
+      this.buffer = buffer;
+      this.tracker = tracker;
+      this.cleanable = tracker == null ? null : CleanerHolder.CLEANER.register(this, tracker);
+    }
+
+    public ByteBuffer buffer() {
+      if (released) {
+        throw new IllegalStateException("The buffer has already been released");
+      }
+      return buffer;
+    }
+
+    /**
+     * Returns the buffer to the pool, subsequent calls are ignored.
+     */
+    @Override
+    public void close() {
+      if (released) {
+        return;
+      }
+      released = true;
+      if (tracker != null) {
+        tracker.released = true;
+        cleanable.clean();
+      }
+      pool.release(buffer);
+    }
+  }
+
+  /**
+   * Runs when a tracked lease has been closed or has become unreachable, must not reference the lease.
+   */
+  private static final class LeakTracker implements Runnable {
+
+    private final DirectBufferPool pool;
+    private final Throwable acquiredAt = new Throwable("Direct buffer acquired here");
+    private volatile boolean released = false;
+
+    LeakTracker(DirectBufferPool pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    public void run() {
+      if (!released) {
+        // the buffer itself is left to the garbage collector
+        pool.leased.decrementAndGet();
+        pool.leaks.increment();
+        log.warn("A direct buffer lease has not been closed before it became unreachable", acquiredAt);
+      }
+    }
+  }
+
+  private static final class Stripe {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer[] buffers;
+    private int size = 0;
+
+    Stripe(int capacity) {
+      this.buffers = new ByteBuffer[capacity];
+    }
+
+    ByteBuffer pop() {
+      lock.lock();
+      try {
+        if (size == 0) {
+          return null;
+        }
+        ByteBuffer buffer = buffers[--size];
+        buffers[size] = null;
+        return buffer;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void push(ByteBuffer buffer) {
+      lock.lock();
+      try {
+        if (size < buffers.length) {
+          buffers[size++] = buffer;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    int size() {
+      lock.lock();
+      try {
+        return size;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
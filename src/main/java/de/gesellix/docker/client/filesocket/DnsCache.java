@@ -0,0 +1,207 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import okhttp3.Dns;
+
+/**
+ * In-process cache for {@link Dns} lookups with separate TTLs for resolved and unknown hosts,
+ * see {@link FileSocketFactory#setDnsCache(DnsCache)}.
+ * <p>
+ * Hostnames which have been looked up repeatedly are refreshed in the background
+ * during the last part of their TTL, so that they don't expire on the connection path.
+ */
+public class DnsCache implements Dns {
+
+  private static final Logger log = LoggerFactory.getLogger(DnsCache.class);
+
+  /**
+   * Refreshes start during this fraction of the positive TTL before expiry.
+   */
+  static final double REFRESH_AHEAD_RATIO = 0.2;
+  /**
+   * Lookups of a cached entry required for a background refresh.
+   */
+  static final int REFRESH_MIN_HITS = 2;
+  static final int MAX_ENTRIES = 1024;
+
+  private final Dns delegate;
+  private final long positiveTtlNanos;
+  private final long negativeTtlNanos;
+  private final LongSupplier nanoClock;
+  private final Executor refreshExecutor;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder refreshes = new LongAdder();
+
+  /**
+   * Caches lookups of {@link Dns#SYSTEM}.
+   *
+   * @param negativeTtl {@link Duration#ZERO} doesn't cache unknown hosts
+   */
+  public DnsCache(Duration positiveTtl, Duration negativeTtl) {
+    this(Dns.SYSTEM, positiveTtl, negativeTtl);
+  }
+
+  public DnsCache(Dns delegate, Duration positiveTtl, Duration negativeTtl) {
+    this(delegate, positiveTtl, negativeTtl, System::nanoTime, newRefreshExecutor());
+  }
+
+  DnsCache(Dns delegate, Duration positiveTtl, Duration negativeTtl, LongSupplier nanoClock, Executor refreshExecutor) {
+    if (positiveTtl.isNegative() || positiveTtl.isZero()) {
+      throw new IllegalArgumentException("positiveTtl must be positive");
+    }
+    if (negativeTtl.isNegative()) {
+      throw new IllegalArgumentException("negativeTtl must not be negative");
+    }
+    this.delegate = delegate;
+    this.positiveTtlNanos = positiveTtl.toNanos();
+    this.negativeTtlNanos = negativeTtl.toNanos();
+    this.nanoClock = nanoClock;
+    this.refreshExecutor = refreshExecutor;
+  }
+
+  private static Executor newRefreshExecutor() {
+    // the thread terminates when idle
+    return new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "filesocket-dns-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+    long now = nanoClock.getAsLong();
+    Entry entry = entries.get(hostname);
+    if (entry != null && now - entry.expiresAt < 0) {
+      hits.increment();
+      if (entry.addresses == null) {
+        throw new UnknownHostException(entry.failure);
+      }
+      if (entry.hits.incrementAndGet() >= REFRESH_MIN_HITS && now - entry.refreshAt >= 0) {
+        scheduleRefresh(hostname, entry);
+      }
+      return entry.addresses;
+    }
+    misses.increment();
+    return resolve(hostname, now, true);
+  }
+
+  private List<InetAddress> resolve(String hostname, long now, boolean cacheFailure) throws UnknownHostException {
+    List<InetAddress> addresses;
+    try {
+      addresses = Collections.unmodifiableList(delegate.lookup(hostname));
+    } catch (UnknownHostException e) {
+      if (!cacheFailure) {
+        throw e;
+      }
+      if (negativeTtlNanos > 0) {
+        put(hostname, new Entry(null, e.getMessage(), now + negativeTtlNanos, now + negativeTtlNanos));
+      } else {
+        entries.remove(hostname);
+      }
+      throw e;
+    }
+    long refreshAhead = (long) (positiveTtlNanos * REFRESH_AHEAD_RATIO);
+    put(hostname, new Entry(addresses, null, now + positiveTtlNanos, now + positiveTtlNanos - refreshAhead));
+    return addresses;
+  }
+
+  private void scheduleRefresh(String hostname, Entry entry) {
+    if (!entry.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(() -> {
+        try {
+          resolve(hostname, nanoClock.getAsLong(), false);
+          refreshes.increment();
+        } catch (UnknownHostException | RuntimeException e) {
+          // keeps the current entry until it expires, the next lookup may retry
+          entry.refreshing.set(false);
+          log.debug("refreshing '{}' failed", hostname, e);
+        }
+      });
+    } catch (RuntimeException e) {
+      entry.refreshing.set(false);
+      log.debug("refreshing '{}' rejected", hostname, e);
+    }
+  }
+
+  private void put(String hostname, Entry entry) {
+    if (entries.size() >= MAX_ENTRIES && !entries.containsKey(hostname)) {
+      Iterator<String> hostnames = entries.keySet().iterator();
+      if (hostnames.hasNext()) {
+        hostnames.next();
+        hostnames.remove();
+      }
+    }
+    entries.put(hostname, entry);
+  }
+
+  /**
+   * Removes all entries, the counters are kept.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of successful background refreshes
+   */
+  public long getRefreshes() {
+    return refreshes.sum();
+  }
+
+  private static class Entry {
+
+    /**
+     * <code>null</code> for unknown hosts
+     */
+    private final List<InetAddress> addresses;
+    private final String failure;
+    private final long expiresAt;
+    private final long refreshAt;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    Entry(List<InetAddress> addresses, String failure, long expiresAt, long refreshAt) {
+      this.addresses = addresses;
+      this.failure = failure;
+      this.expiresAt = expiresAt;
+      this.refreshAt = refreshAt;
+    }
+  }
+}
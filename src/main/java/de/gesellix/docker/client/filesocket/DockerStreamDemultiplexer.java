@@ -0,0 +1,157 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Sink;
+
+/**
+ * Splits Docker's multiplexed attach, logs and exec output (without TTY) into stdout and stderr.
+ * <p>
+ * Each frame consists of an 8 byte header, the stream type followed by three zero bytes and the big-endian payload size,
+ * and the payload. Payloads are written straight from the source's buffer segments to the target streams, so that demultiplexing
+ * neither allocates per frame nor keeps segments from being recycled.
+ * Instances reuse their buffers and are not thread-safe.
+ */
+public class DockerStreamDemultiplexer {
+
+  public static final int HEADER_SIZE = 8;
+
+  static final int STREAM_TYPE_STDIN = 0;
+  static final int STREAM_TYPE_STDOUT = 1;
+  static final int STREAM_TYPE_STDERR = 2;
+  static final int STREAM_TYPE_SYSTEMERR = 3;
+
+  private final Target stdout;
+  private final Target stderr;
+  private final Buffer.UnsafeCursor cursor = new Buffer.UnsafeCursor();
+  private final Buffer sinkBuffer = new Buffer();
+
+  /**
+   * @param stdout receives stdin and stdout frames, <code>null</code> discards them
+   * @param stderr receives stderr frames, <code>null</code> discards them
+   */
+  public DockerStreamDemultiplexer(OutputStream stdout, OutputStream stderr) {
+    this.stdout = new Target(stdout, null);
+    this.stderr = new Target(stderr, null);
+  }
+
+  /**
+   * @param stdout receives stdin and stdout frames, <code>null</code> discards them
+   * @param stderr receives stderr frames, <code>null</code> discards them
+   */
+  public DockerStreamDemultiplexer(Sink stdout, Sink stderr) {
+    this.stdout = new Target(null, stdout);
+    this.stderr = new Target(null, stderr);
+  }
+
+  /**
+   * Reads frames until the end of stream, e.g. from a {@link FileSocket}'s InputStream.
+   *
+   * @return the number of payload bytes
+   */
+  public long demultiplex(InputStream in) throws IOException {
+    return demultiplex(Okio.buffer(Okio.source(in)));
+  }
+
+  /**
+   * Reads frames until the end of stream. The targets are flushed whenever the source has no more buffered data,
+   * so that output isn't held back while waiting for the daemon.
+   *
+   * @return the number of payload bytes
+   * @throws EOFException if the stream ends within a frame
+   * @throws IOException  if the daemon reports an error via the systemerr stream
+   */
+  public long demultiplex(BufferedSource source) throws IOException {
+    long total = 0;
+    while (source.request(HEADER_SIZE)) {
+      int streamType = source.readByte() & 0xff;
+      source.skip(3);
+      long size = source.readInt() & 0xffffffffL;
+
+      Target target;
+      switch (streamType) {
+        case STREAM_TYPE_STDIN:
+        case STREAM_TYPE_STDOUT:
+          target = stdout;
+          break;
+        case STREAM_TYPE_STDERR:
+          target = stderr;
+          break;
+        case STREAM_TYPE_SYSTEMERR:
+          source.require(size);
+          throw new IOException("Error from daemon: " + source.readUtf8(size));
+        default:
+          throw new IOException("Unrecognized stream type: " + streamType);
+      }
+
+      long remaining = size;
+      while (remaining > 0) {
+        if (!source.request(1)) {
+          throw new EOFException("Stream ended within a frame, " + remaining + " of " + size + " bytes missing");
+        }
+        Buffer buffered = source.getBuffer();
+        int count;
+        buffered.readUnsafe(cursor);
+        try {
+          cursor.seek(0);
+          count = (int) Math.min(remaining, cursor.end - cursor.start);
+          target.write(cursor.data, cursor.start, count);
+        } finally {
+          cursor.close();
+        }
+        // fully consumed segments go back to the pool
+        buffered.skip(count);
+        remaining -= count;
+      }
+      total += size;
+
+      if (source.getBuffer().size() == 0) {
+        flush();
+      }
+    }
+    if (source.getBuffer().size() > 0) {
+      throw new EOFException("Stream ended within a frame header");
+    }
+    flush();
+    return total;
+  }
+
+  private void flush() throws IOException {
+    stdout.flush();
+    stderr.flush();
+  }
+
+  private final class Target {
+
+    private final OutputStream stream;
+    private final Sink sink;
+
+    Target(OutputStream stream, Sink sink) {
+      this.stream = stream;
+      this.sink = sink;
+    }
+
+    void write(byte[] data, int offset, int count) throws IOException {
+      if (stream != null) {
+        stream.write(data, offset, count);
+      } else if (sink != null) {
+        sinkBuffer.write(data, offset, count);
+        sink.write(sinkBuffer, count);
+      }
+    }
+
+    void flush() throws IOException {
+      if (stream != null) {
+        stream.flush();
+      } else if (sink != null) {
+        sink.flush();
+      }
+    }
+  }
+}
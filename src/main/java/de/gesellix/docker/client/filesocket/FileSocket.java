@@ -1,12 +1,34 @@
 package de.gesellix.docker.client.filesocket;
 
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 public abstract class FileSocket extends Socket {
 
   public final static String SOCKET_MARKER = ".socket";
 
+  FileSocketListener listener = FileSocketListener.NONE;
+  private volatile String socketPath = null;
+  private volatile boolean connected = false;
+  private volatile boolean firstByteRead = false;
+  private volatile boolean closeReported = false;
+  private volatile FileSocketListener.CloseReason closeReason = FileSocketListener.CloseReason.LOCAL;
+  private volatile ConnectRetryPolicy connectRetryPolicy = null;
+  private volatile int coalescingBatchSize = 0;
+  private volatile Duration coalescingDelay = Duration.ZERO;
+  private final ReentrantLock coalescingLock = new ReentrantLock();
+  private CoalescingOutputStream coalescingOutputStream = null;
+  private volatile FileSocketBulkhead bulkhead = null;
+  private final AtomicReference<FileSocketBulkhead.Permit> bulkheadPermit = new AtomicReference<>();
+
   public String encodeHostname(String hostname) {
     return new HostnameEncoder().encode(hostname) + SOCKET_MARKER;
   }
@@ -16,6 +38,321 @@ public abstract class FileSocket extends Socket {
     if (!hostName.endsWith(SOCKET_MARKER)) {
       return hostName;
     }
-    return new HostnameEncoder().decode(hostName.substring(0, hostName.indexOf(SOCKET_MARKER)));
+    return FileSocketAddress.resolve(hostName).getSocketPath();
+  }
+
+  /**
+   * Like {@link #decodeHostname(InetAddress)}, but returns the cached resolved address.
+   */
+  FileSocketAddress resolveAddress(InetAddress address) {
+    String hostName = address.getHostName();
+    if (!hostName.endsWith(SOCKET_MARKER)) {
+      return FileSocketAddress.forSocketPath(hostName);
+    }
+    return FileSocketAddress.resolve(hostName);
+  }
+
+  /**
+   * @return the decoded socket path once connecting has started, <code>null</code> before.
+   */
+  public String getSocketPath() {
+    return socketPath;
+  }
+
+  void setListener(FileSocketListener listener) {
+    this.listener = listener == null ? FileSocketListener.NONE : listener;
+  }
+
+  /**
+   * @param connectRetryPolicy <code>null</code> restores the socket's default
+   * @see FileSocketFactory#setConnectRetryPolicy(ConnectRetryPolicy)
+   */
+  public void setConnectRetryPolicy(ConnectRetryPolicy connectRetryPolicy) {
+    this.connectRetryPolicy = connectRetryPolicy;
+  }
+
+  public ConnectRetryPolicy getConnectRetryPolicy() {
+    ConnectRetryPolicy policy = connectRetryPolicy;
+    return policy != null ? policy : defaultConnectRetryPolicy();
+  }
+
+  /**
+   * @param connectTimeout the timeout passed to <code>connect()</code>, in milliseconds
+   * @return the explicitly configured policy, otherwise the default for the connect timeout
+   */
+  ConnectRetryPolicy getConnectRetryPolicy(int connectTimeout) {
+    ConnectRetryPolicy policy = connectRetryPolicy;
+    return policy != null ? policy : defaultConnectRetryPolicy(connectTimeout);
+  }
+
+  /**
+   * Coalesces small writes to {@link #getOutputStream()}, see {@link CoalescingOutputStream}.
+   * Has to be configured before the output stream is requested.
+   *
+   * @param maxBatchSize <code>0</code> disables coalescing
+   * @see FileSocketFactory#setWriteCoalescing(int, Duration)
+   */
+  public void setWriteCoalescing(int maxBatchSize, Duration maxDelay) {
+    if (maxBatchSize < 0) {
+      throw new IllegalArgumentException("maxBatchSize must not be negative");
+    }
+    if (maxBatchSize > 0 && (maxDelay.isNegative() || maxDelay.isZero())) {
+      throw new IllegalArgumentException("maxDelay must be positive");
+    }
+    this.coalescingBatchSize = maxBatchSize;
+    this.coalescingDelay = maxDelay;
+  }
+
+  /**
+   * @return the policy used without explicit configuration
+   */
+  ConnectRetryPolicy defaultConnectRetryPolicy() {
+    return ConnectRetryPolicy.NONE;
+  }
+
+  /**
+   * @param connectTimeout the timeout passed to <code>connect()</code>, in milliseconds
+   * @return the policy used without explicit configuration
+   */
+  ConnectRetryPolicy defaultConnectRetryPolicy(int connectTimeout) {
+    return defaultConnectRetryPolicy();
+  }
+
+  /**
+   * @param bulkhead <code>null</code> doesn't limit the open sockets
+   * @see FileSocketFactory#setBulkhead(FileSocketBulkhead)
+   */
+  void setBulkhead(FileSocketBulkhead bulkhead) {
+    this.bulkhead = bulkhead;
+  }
+
+  /**
+   * Waits for a slot of the {@link FileSocketBulkhead}, which is held until {@link #connectFailed(long, IOException)} or {@link #closed()}.
+   *
+   * @return the start time for {@link #connectEnd(long)} and {@link #connectFailed(long, IOException)}
+   */
+  long connectStart(String socketPath) throws IOException {
+    this.socketPath = socketPath;
+    listener.connectStart(this, socketPath);
+    long startedAt = System.nanoTime();
+    FileSocketBulkhead limit = bulkhead;
+    if (limit != null) {
+      try {
+        releaseBulkheadPermit();
+        bulkheadPermit.set(limit.acquire(socketPath));
+      } catch (IOException e) {
+        connectFailed(startedAt, e);
+        throw e;
+      }
+    }
+    return startedAt;
+  }
+
+  void connectEnd(long startedAt) {
+    connected = true;
+    if (listener != FileSocketListener.NONE) {
+      listener.connectEnd(this, socketPath, System.nanoTime() - startedAt);
+    }
+  }
+
+  void connectFailed(long startedAt, IOException error) {
+    releaseBulkheadPermit();
+    if (listener != FileSocketListener.NONE) {
+      listener.connectFailed(this, socketPath, System.nanoTime() - startedAt, error);
+    }
+  }
+
+  void bytesRead(long byteCount) {
+    if (byteCount > 0 && listener != FileSocketListener.NONE) {
+      if (!firstByteRead) {
+        firstByteRead = true;
+        listener.firstByteRead(this);
+      }
+      listener.bytesRead(this, byteCount);
+    }
+  }
+
+  void bytesWritten(long byteCount) {
+    if (byteCount > 0 && listener != FileSocketListener.NONE) {
+      listener.bytesWritten(this, byteCount);
+    }
+  }
+
+  void endOfStream() {
+    if (closeReason == FileSocketListener.CloseReason.LOCAL) {
+      closeReason = FileSocketListener.CloseReason.END_OF_STREAM;
+    }
+  }
+
+  void failed() {
+    closeReason = FileSocketListener.CloseReason.ERROR;
+  }
+
+  /**
+   * To be called by {@link #close()}, reports the first call only.
+   */
+  void closed() {
+    releaseBulkheadPermit();
+    if (connected && !closeReported) {
+      closeReported = true;
+      listener.closed(this, closeReason);
+    }
+  }
+
+  private void releaseBulkheadPermit() {
+    FileSocketBulkhead.Permit permit = bulkheadPermit.getAndSet(null);
+    if (permit != null) {
+      permit.release();
+    }
+  }
+
+  /**
+   * To wrap the {@link #listening(OutputStream) listening} stream, so that the listener sees the actual writes,
+   * including the delayed flushes.
+   *
+   * @return the stream itself without write coalescing, otherwise the socket's single coalescing stream wrapping it
+   */
+  OutputStream coalescing(OutputStream out) {
+    if (coalescingBatchSize == 0) {
+      return out;
+    }
+    coalescingLock.lock();
+    try {
+      if (coalescingOutputStream == null) {
+        coalescingOutputStream = new CoalescingOutputStream(out, coalescingBatchSize, coalescingDelay);
+      }
+      return coalescingOutputStream;
+    } finally {
+      coalescingLock.unlock();
+    }
+  }
+
+  /**
+   * Writes coalesced bytes before the output is shut down.
+   */
+  void flushCoalesced() throws IOException {
+    CoalescingOutputStream out = coalescingOutputStream();
+    if (out != null) {
+      out.flush();
+    }
+  }
+
+  /**
+   * Writes coalesced bytes before the socket is closed, to be called by {@link #close()}.
+   * Doesn't wait for a pending write, which the close has to interrupt.
+   */
+  void flushCoalescedQuietly() {
+    CoalescingOutputStream out = coalescingOutputStream();
+    if (out != null) {
+      out.flushQuietly();
+    }
+  }
+
+  private CoalescingOutputStream coalescingOutputStream() {
+    coalescingLock.lock();
+    try {
+      return coalescingOutputStream;
+    } finally {
+      coalescingLock.unlock();
+    }
+  }
+
+  /**
+   * @return the stream itself when no listener is installed
+   */
+  InputStream listening(InputStream in) {
+    return listener == FileSocketListener.NONE ? in : new ListeningInputStream(in);
+  }
+
+  /**
+   * @return the stream itself when no listener is installed
+   */
+  OutputStream listening(OutputStream out) {
+    return listener == FileSocketListener.NONE ? out : new ListeningOutputStream(out);
+  }
+
+  private class ListeningInputStream extends FilterInputStream {
+
+    ListeningInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      long startedAt = System.nanoTime();
+      int read;
+      try {
+        read = in.read();
+      } catch (IOException e) {
+        failed();
+        throw e;
+      }
+      listener.readBlocked(FileSocket.this, System.nanoTime() - startedAt);
+      if (read == -1) {
+        endOfStream();
+      } else {
+        bytesRead(1);
+      }
+      return read;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      long startedAt = System.nanoTime();
+      int read;
+      try {
+        read = in.read(b, off, len);
+      } catch (IOException e) {
+        failed();
+        throw e;
+      }
+      listener.readBlocked(FileSocket.this, System.nanoTime() - startedAt);
+      if (read == -1) {
+        endOfStream();
+      } else {
+        bytesRead(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = in.skip(n);
+      bytesRead(skipped);
+      return skipped;
+    }
+  }
+
+  private class ListeningOutputStream extends FilterOutputStream {
+
+    ListeningOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      long startedAt = System.nanoTime();
+      try {
+        out.write(b);
+      } catch (IOException e) {
+        failed();
+        throw e;
+      }
+      listener.writeBlocked(FileSocket.this, System.nanoTime() - startedAt);
+      bytesWritten(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      long startedAt = System.nanoTime();
+      try {
+        out.write(b, off, len);
+      } catch (IOException e) {
+        failed();
+        throw e;
+      }
+      listener.writeBlocked(FileSocket.this, System.nanoTime() - startedAt);
+      bytesWritten(len);
+    }
   }
 }
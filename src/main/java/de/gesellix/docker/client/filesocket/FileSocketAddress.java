@@ -0,0 +1,113 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The resolved form of an encoded socket hostname, see {@link FileSocket#encodeHostname(String)}.
+ * <p>
+ * Connects and lookups of the same hostname share a cached instance, so that decoding the hostname,
+ * creating the {@link InetAddress} and the backend's endpoint only happens once.
+ */
+final class FileSocketAddress {
+
+  static final int MAX_CACHED_ADDRESSES = 256;
+
+  private static final HostnameEncoder hostnameEncoder = new HostnameEncoder();
+  private static final ConcurrentMap<String, FileSocketAddress> cache = new ConcurrentHashMap<>();
+
+  interface EndpointFactory<T> {
+
+    T create(String socketPath) throws IOException;
+  }
+
+  private final String hostname;
+  private final String socketPath;
+  private final List<InetAddress> inetAddresses;
+  private volatile Object endpoint = null;
+
+  private FileSocketAddress(String hostname, String socketPath) {
+    this.hostname = hostname;
+    this.socketPath = socketPath;
+    try {
+      this.inetAddresses = Collections.singletonList(InetAddress.getByAddress(hostname, new byte[]{0, 0, 0, 0}));
+    } catch (UnknownHostException e) {
+      // only thrown for an invalid address length
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param hostname an encoded hostname ending with {@link FileSocket#SOCKET_MARKER}
+   * @throws IllegalArgumentException if the hostname isn't a valid encoded socket path
+   */
+  static FileSocketAddress resolve(String hostname) {
+    FileSocketAddress address = cache.get(hostname);
+    if (address == null) {
+      String socketPath = hostnameEncoder.decode(hostname, 0, hostname.length() - FileSocket.SOCKET_MARKER.length());
+      address = new FileSocketAddress(hostname, socketPath);
+      if (cache.size() >= MAX_CACHED_ADDRESSES) {
+        evictOne();
+      }
+      FileSocketAddress existing = cache.putIfAbsent(hostname, address);
+      if (existing != null) {
+        address = existing;
+      }
+    }
+    return address;
+  }
+
+  static FileSocketAddress forSocketPath(String socketPath) {
+    return resolve(hostnameEncoder.encode(socketPath) + FileSocket.SOCKET_MARKER);
+  }
+
+  static int cacheSize() {
+    return cache.size();
+  }
+
+  private static void evictOne() {
+    Iterator<String> hostnames = cache.keySet().iterator();
+    if (hostnames.hasNext()) {
+      hostnames.next();
+      hostnames.remove();
+    }
+  }
+
+  String getHostname() {
+    return hostname;
+  }
+
+  /**
+   * @return the decoded socket path, e.g. <code>/var/run/docker.sock</code>
+   */
+  String getSocketPath() {
+    return socketPath;
+  }
+
+  /**
+   * @return the result of {@link FileSocketFactory#lookup(String)}
+   */
+  List<InetAddress> getInetAddresses() {
+    return inetAddresses;
+  }
+
+  /**
+   * @return the backend specific endpoint, created on first use.
+   * Only one endpoint type is kept, alternating backends recreate their endpoint.
+   */
+  <T> T endpoint(Class<T> type, EndpointFactory<T> factory) throws IOException {
+    Object current = endpoint;
+    if (type.isInstance(current)) {
+      return type.cast(current);
+    }
+    T created = factory.create(socketPath);
+    endpoint = created;
+    return created;
+  }
+}
@@ -0,0 +1,258 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the concurrently open sockets per socket path, e.g. to protect the daemon behind <code>/var/run/docker.sock</code>
+ * from bursts of parallel connections. Connects beyond the limit wait in a bounded queue and are served in arrival order.
+ * A connect fails with a {@link ConnectException} when the queue is full, and with a {@link SocketTimeoutException} when
+ * it has waited for the maximum time. Sockets hold their slot from <code>connect()</code> until they're closed.
+ * <p>
+ * Installed via {@link FileSocketFactory#setBulkhead(FileSocketBulkhead)}, a bulkhead can be shared by several factories.
+ */
+public final class FileSocketBulkhead {
+
+  private final int maxOpenSockets;
+  private final int maxQueued;
+  private final Duration maxWait;
+  private final ConcurrentMap<String, PathBulkhead> paths = new ConcurrentHashMap<>();
+
+  /**
+   * @param maxOpenSockets concurrently open sockets per socket path
+   * @param maxQueued      connects per socket path which wait for a slot, <code>0</code> fails right away
+   * @param maxWait        time a connect waits for a slot at most
+   */
+  public FileSocketBulkhead(int maxOpenSockets, int maxQueued, Duration maxWait) {
+    if (maxOpenSockets <= 0) {
+      throw new IllegalArgumentException("maxOpenSockets must be positive");
+    }
+    if (maxQueued < 0) {
+      throw new IllegalArgumentException("maxQueued must not be negative");
+    }
+    if (maxWait.isNegative()) {
+      throw new IllegalArgumentException("maxWait must not be negative");
+    }
+    this.maxOpenSockets = maxOpenSockets;
+    this.maxQueued = maxQueued;
+    this.maxWait = maxWait;
+  }
+
+  public int getMaxOpenSockets() {
+    return maxOpenSockets;
+  }
+
+  public int getMaxQueued() {
+    return maxQueued;
+  }
+
+  public Duration getMaxWait() {
+    return maxWait;
+  }
+
+  public Set<String> getSocketPaths() {
+    return Collections.unmodifiableSet(paths.keySet());
+  }
+
+  /**
+   * @return <code>null</code> when no socket has connected to the path yet
+   */
+  public PathMetrics getPathMetrics(String socketPath) {
+    return paths.get(socketPath);
+  }
+
+  /**
+   * Waits for a slot of the socket path, to be released by {@link Permit#release()}.
+   */
+  Permit acquire(String socketPath) throws IOException {
+    return paths.computeIfAbsent(socketPath, PathBulkhead::new).acquire();
+  }
+
+  /**
+   * @return <code>true</code> if the connect failed because of the bulkhead, without trying the socket path
+   */
+  static boolean isBulkheadFailure(IOException e) {
+    return e instanceof RejectedException || e instanceof WaitTimeoutException;
+  }
+
+  /**
+   * Statistics of a single socket path.
+   */
+  public interface PathMetrics {
+
+    /**
+     * @return the decoded socket path, e.g. <code>/var/run/docker.sock</code>
+     */
+    String getSocketPath();
+
+    int getOpenSockets();
+
+    /**
+     * @return the connects currently waiting for a slot
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the connects which had to wait for a slot
+     */
+    long getQueuedConnects();
+
+    /**
+     * @return the connects which failed because the queue was full
+     */
+    long getRejectedConnects();
+
+    /**
+     * @return the connects which failed after waiting for the maximum time
+     */
+    long getTimedOutConnects();
+
+    /**
+     * @return the mean time waited by queued connects
+     */
+    double getMeanWaitTimeMillis();
+
+    double getMaxWaitTimeMillis();
+  }
+
+  static final class Permit {
+
+    private final Semaphore slots;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(Semaphore slots) {
+      this.slots = slots;
+    }
+
+    /**
+     * Frees the slot, repeated calls are ignored.
+     */
+    void release() {
+      if (released.compareAndSet(false, true)) {
+        slots.release();
+      }
+    }
+  }
+
+  private static final class RejectedException extends ConnectException {
+
+    private static final long serialVersionUID = 1L;
+
+    RejectedException(String message) {
+      super(message);
+    }
+  }
+
+  private static final class WaitTimeoutException extends SocketTimeoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    WaitTimeoutException(String message) {
+      super(message);
+    }
+  }
+
+  private final class PathBulkhead implements PathMetrics {
+
+    private final String socketPath;
+    // fair, so that queued connects are served in arrival order
+    private final Semaphore slots = new Semaphore(maxOpenSockets, true);
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder queuedConnects = new LongAdder();
+    private final LongAdder rejectedConnects = new LongAdder();
+    private final LongAdder timedOutConnects = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    PathBulkhead(String socketPath) {
+      this.socketPath = socketPath;
+    }
+
+    Permit acquire() throws IOException {
+      try {
+        // unlike tryAcquire(), a zero timeout doesn't overtake queued connects
+        if (slots.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+          return new Permit(slots);
+        }
+        if (queueDepth.incrementAndGet() > maxQueued) {
+          queueDepth.decrementAndGet();
+          rejectedConnects.increment();
+          throw new RejectedException("Too many connections to '" + socketPath + "', " + maxOpenSockets + " open and " + maxQueued + " waiting");
+        }
+        queuedConnects.increment();
+        long startedAt = System.nanoTime();
+        boolean acquired;
+        try {
+          acquired = slots.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } finally {
+          queueDepth.decrementAndGet();
+          long waited = System.nanoTime() - startedAt;
+          waitNanos.add(waited);
+          maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+        if (!acquired) {
+          timedOutConnects.increment();
+          throw new WaitTimeoutException("Timed out waiting " + maxWait.toMillis() + " ms for a connection to '" + socketPath + "'");
+        }
+        return new Permit(slots);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for a connection to '" + socketPath + "'");
+      }
+    }
+
+    @Override
+    public String getSocketPath() {
+      return socketPath;
+    }
+
+    @Override
+    public int getOpenSockets() {
+      return maxOpenSockets - slots.availablePermits();
+    }
+
+    @Override
+    public int getQueueDepth() {
+      return queueDepth.get();
+    }
+
+    @Override
+    public long getQueuedConnects() {
+      return queuedConnects.sum();
+    }
+
+    @Override
+    public long getRejectedConnects() {
+      return rejectedConnects.sum();
+    }
+
+    @Override
+    public long getTimedOutConnects() {
+      return timedOutConnects.sum();
+    }
+
+    @Override
+    public double getMeanWaitTimeMillis() {
+      long count = queuedConnects.sum();
+      return count == 0 ? 0 : waitNanos.sum() / (double) count / 1_000_000;
+    }
+
+    @Override
+    public double getMaxWaitTimeMillis() {
+      return maxWaitNanos.get() / 1_000_000d;
+    }
+  }
+}
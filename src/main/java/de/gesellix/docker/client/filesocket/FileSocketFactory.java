@@ -3,7 +3,7 @@ package de.gesellix.docker.client.filesocket;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
-import java.util.Collections;
+import java.time.Duration;
 import java.util.List;
 
 import javax.net.SocketFactory;
@@ -12,12 +12,117 @@ import okhttp3.Dns;
 
 public abstract class FileSocketFactory extends SocketFactory implements Dns {
 
+  private volatile FileSocketListener listener = FileSocketListener.NONE;
+  private volatile DnsCache dnsCache = null;
+  private volatile ConnectRetryPolicy connectRetryPolicy = null;
+  private volatile int coalescingBatchSize = 0;
+  private volatile Duration coalescingDelay = Duration.ZERO;
+  private volatile FileSocketBulkhead bulkhead = null;
+
+  /**
+   * Installs a listener on all sockets created afterwards.
+   *
+   * @param listener <code>null</code> or {@link FileSocketListener#NONE} remove the listener
+   */
+  public void setListener(FileSocketListener listener) {
+    this.listener = listener == null ? FileSocketListener.NONE : listener;
+  }
+
+  public FileSocketListener getListener() {
+    return listener;
+  }
+
+  /**
+   * Caches lookups of hostnames which aren't socket paths, e.g. of a remote daemon or registry
+   * reached via the same client.
+   *
+   * @param dnsCache <code>null</code> disables caching, lookups use {@link Dns#SYSTEM}
+   */
+  public void setDnsCache(DnsCache dnsCache) {
+    this.dnsCache = dnsCache;
+  }
+
+  public DnsCache getDnsCache() {
+    return dnsCache;
+  }
+
+  /**
+   * Retries failed connects of all sockets created afterwards, e.g. while the daemon starts up.
+   * Unix domain sockets don't retry by default, named pipes retry for 10 s.
+   *
+   * @param connectRetryPolicy <code>null</code> restores the sockets' defaults
+   */
+  public void setConnectRetryPolicy(ConnectRetryPolicy connectRetryPolicy) {
+    this.connectRetryPolicy = connectRetryPolicy;
+  }
+
+  public ConnectRetryPolicy getConnectRetryPolicy() {
+    return connectRetryPolicy;
+  }
+
+  /**
+   * Coalesces small writes of all sockets created afterwards, e.g. keystrokes sent to a hijacked <code>exec</code> session,
+   * see {@link CoalescingOutputStream}. Explicit flushes still pass through immediately.
+   *
+   * @param maxBatchSize bytes which are buffered at most, <code>0</code> disables coalescing
+   * @param maxDelay     time the first buffered byte waits at most
+   */
+  public void setWriteCoalescing(int maxBatchSize, Duration maxDelay) {
+    if (maxBatchSize < 0) {
+      throw new IllegalArgumentException("maxBatchSize must not be negative");
+    }
+    if (maxBatchSize > 0 && (maxDelay.isNegative() || maxDelay.isZero())) {
+      throw new IllegalArgumentException("maxDelay must be positive");
+    }
+    this.coalescingBatchSize = maxBatchSize;
+    this.coalescingDelay = maxDelay;
+  }
+
+  public int getWriteCoalescingBatchSize() {
+    return coalescingBatchSize;
+  }
+
+  public Duration getWriteCoalescingDelay() {
+    return coalescingDelay;
+  }
+
+  /**
+   * Limits the concurrently open sockets per socket path of all sockets created afterwards,
+   * connects beyond the limit wait for a slot, see {@link FileSocketBulkhead}.
+   *
+   * @param bulkhead <code>null</code> removes the limit
+   */
+  public void setBulkhead(FileSocketBulkhead bulkhead) {
+    this.bulkhead = bulkhead;
+  }
+
+  public FileSocketBulkhead getBulkhead() {
+    return bulkhead;
+  }
+
+  <T extends FileSocket> T configured(T socket) {
+    socket.setListener(listener);
+    socket.setBulkhead(bulkhead);
+    socket.setConnectRetryPolicy(connectRetryPolicy);
+    if (coalescingBatchSize > 0) {
+      socket.setWriteCoalescing(coalescingBatchSize, coalescingDelay);
+    }
+    return socket;
+  }
+
   @Override
   public List<InetAddress> lookup(String hostname) throws UnknownHostException {
     if (hostname.endsWith(FileSocket.SOCKET_MARKER)) {
-      return Collections.singletonList(InetAddress.getByAddress(hostname, new byte[]{0, 0, 0, 0}));
+      try {
+        return FileSocketAddress.resolve(hostname).getInetAddresses();
+      } catch (IllegalArgumentException e) {
+        UnknownHostException exception = new UnknownHostException(hostname);
+        exception.initCause(e);
+        throw exception;
+      }
     } else {
-      return Dns.SYSTEM.lookup(hostname);
+      DnsCache cache = dnsCache;
+      return cache != null ? cache.lookup(hostname) : Dns.SYSTEM.lookup(hostname);
     }
   }
 
@@ -0,0 +1,78 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+
+/**
+ * Receives transport level events of {@link FileSocket}s, registered via {@link FileSocketFactory#setListener(FileSocketListener)}.
+ * <p>
+ * Complements OkHttp's <code>EventListener</code>: the time between writing a request and {@link #firstByteRead(FileSocket)}
+ * is spent in the daemon, while the connect callbacks and the byte counts describe the transport.
+ * <p>
+ * Callbacks are invoked synchronously on the thread performing the I/O, so they should return quickly.
+ * All methods default to doing nothing.
+ */
+public interface FileSocketListener {
+
+  enum CloseReason {
+    /**
+     * Closed locally without having seen an error or the end of stream, e.g. by the connection pool.
+     */
+    LOCAL,
+    /**
+     * Closed after the daemon has closed the stream.
+     */
+    END_OF_STREAM,
+    /**
+     * Closed after a read or write has failed.
+     */
+    ERROR
+  }
+
+  /**
+   * Installed by default, sockets don't wrap their streams and don't allocate anything for it.
+   */
+  FileSocketListener NONE = new FileSocketListener() {
+  };
+
+  /**
+   * @param socketPath the decoded socket path, e.g. <code>/var/run/docker.sock</code>
+   */
+  default void connectStart(FileSocket socket, String socketPath) {
+  }
+
+  default void connectEnd(FileSocket socket, String socketPath, long durationNanos) {
+  }
+
+  default void connectFailed(FileSocket socket, String socketPath, long durationNanos, IOException error) {
+  }
+
+  /**
+   * The first byte has been received on this socket, invoked before the corresponding {@link #bytesRead(FileSocket, long)}.
+   */
+  default void firstByteRead(FileSocket socket) {
+  }
+
+  default void bytesRead(FileSocket socket, long byteCount) {
+  }
+
+  default void bytesWritten(FileSocket socket, long byteCount) {
+  }
+
+  /**
+   * Time spent in a single read, mostly waiting for the daemon.
+   */
+  default void readBlocked(FileSocket socket, long durationNanos) {
+  }
+
+  /**
+   * Time spent in a single write, mostly waiting for the daemon to consume previous writes.
+   */
+  default void writeBlocked(FileSocket socket, long durationNanos) {
+  }
+
+  /**
+   * Invoked once, when a connected socket is closed.
+   */
+  default void closed(FileSocket socket, CloseReason reason) {
+  }
+}
@@ -0,0 +1,130 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects transport statistics per socket path and exposes them as {@link FileSocketPathMetricsMXBean}
+ * via the platform MBean server, named <code>de.gesellix.docker.client.filesocket:type=FileSocketMetrics,path="..."</code>.
+ * <p>
+ * Enable it by installing the shared instance as listener:
+ * <pre>
+ * factory.setListener(FileSocketMetrics.getInstance());
+ * </pre>
+ */
+public class FileSocketMetrics implements FileSocketListener {
+
+  private static final Logger log = LoggerFactory.getLogger(FileSocketMetrics.class);
+
+  public static final String DOMAIN = "de.gesellix.docker.client.filesocket";
+
+  private static class Holder {
+
+    private static final FileSocketMetrics INSTANCE = new FileSocketMetrics(ManagementFactory.getPlatformMBeanServer());
+  }
+
+  private final MBeanServer mBeanServer;
+  private final ConcurrentMap<String, FileSocketPathMetrics> paths = new ConcurrentHashMap<>();
+
+  /**
+   * @param mBeanServer <code>null</code> doesn't register any MBeans
+   */
+  FileSocketMetrics(MBeanServer mBeanServer) {
+    this.mBeanServer = mBeanServer;
+  }
+
+  /**
+   * @return the instance registered with the platform MBean server, to be shared by all socket factories
+   */
+  public static FileSocketMetrics getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  public Set<String> getSocketPaths() {
+    return Collections.unmodifiableSet(paths.keySet());
+  }
+
+  /**
+   * @return <code>null</code> when no socket has connected to the path yet
+   */
+  public FileSocketPathMetricsMXBean getPathMetrics(String socketPath) {
+    return paths.get(socketPath);
+  }
+
+  public static ObjectName objectName(String socketPath) throws MalformedObjectNameException {
+    return new ObjectName(DOMAIN + ":type=FileSocketMetrics,path=" + ObjectName.quote(socketPath));
+  }
+
+  @Override
+  public void connectStart(FileSocket socket, String socketPath) {
+    if (!paths.containsKey(socketPath)) {
+      paths.computeIfAbsent(socketPath, this::register);
+    }
+  }
+
+  @Override
+  public void connectEnd(FileSocket socket, String socketPath, long durationNanos) {
+    paths.get(socketPath).connected(durationNanos);
+  }
+
+  @Override
+  public void connectFailed(FileSocket socket, String socketPath, long durationNanos, IOException error) {
+    paths.get(socketPath).connectFailed();
+  }
+
+  @Override
+  public void bytesRead(FileSocket socket, long byteCount) {
+    pathMetrics(socket).bytesRead(byteCount);
+  }
+
+  @Override
+  public void bytesWritten(FileSocket socket, long byteCount) {
+    pathMetrics(socket).bytesWritten(byteCount);
+  }
+
+  @Override
+  public void readBlocked(FileSocket socket, long durationNanos) {
+    pathMetrics(socket).readBlocked(durationNanos);
+  }
+
+  @Override
+  public void writeBlocked(FileSocket socket, long durationNanos) {
+    pathMetrics(socket).writeBlocked(durationNanos);
+  }
+
+  @Override
+  public void closed(FileSocket socket, CloseReason reason) {
+    pathMetrics(socket).closed(reason);
+  }
+
+  private FileSocketPathMetrics pathMetrics(FileSocket socket) {
+    return paths.get(socket.getSocketPath());
+  }
+
+  private FileSocketPathMetrics register(String socketPath) {
+    FileSocketPathMetrics metrics = new FileSocketPathMetrics(socketPath);
+    if (mBeanServer != null) {
+      try {
+        ObjectName name = objectName(socketPath);
+        if (!mBeanServer.isRegistered(name)) {
+          mBeanServer.registerMBean(metrics, name);
+        }
+      } catch (JMException e) {
+        log.warn("could not register metrics for '{}'", socketPath, e);
+      }
+    }
+    return metrics;
+  }
+}
@@ -0,0 +1,189 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+class FileSocketPathMetrics implements FileSocketPathMetricsMXBean {
+
+  /**
+   * Upper bounds of the connect time histogram buckets, the last bucket counts everything above.
+   */
+  static final long[] CONNECT_TIME_BOUNDS_MICROS = {
+      50, 100, 250, 500,
+      1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+      1_000_000
+  };
+
+  private static final int RATE_WINDOW_SECONDS = 60;
+
+  private final String socketPath;
+  private final LongAdder openConnections = new LongAdder();
+  private final LongAdder connects = new LongAdder();
+  private final LongAdder connectFailures = new LongAdder();
+  private final LongAdder connectTimeNanos = new LongAdder();
+  private final LongAdder[] connectTimeBuckets = newAdders(CONNECT_TIME_BOUNDS_MICROS.length + 1);
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder readBlockedNanos = new LongAdder();
+  private final LongAdder writeBlockedNanos = new LongAdder();
+  private final LongAdder[] closeReasons = newAdders(FileSocketListener.CloseReason.values().length);
+  // connects per second of the last minute, slots are reused once their second has passed
+  private final AtomicLongArray connectsPerSecond = new AtomicLongArray(RATE_WINDOW_SECONDS);
+  private final AtomicLongArray connectSeconds = new AtomicLongArray(RATE_WINDOW_SECONDS);
+
+  FileSocketPathMetrics(String socketPath) {
+    this.socketPath = socketPath;
+  }
+
+  void connected(long durationNanos) {
+    openConnections.increment();
+    connects.increment();
+    connectTimeNanos.add(durationNanos);
+    connectTimeBuckets[bucket(TimeUnit.NANOSECONDS.toMicros(durationNanos))].increment();
+
+    long second = currentSecond();
+    int slot = (int) (second % RATE_WINDOW_SECONDS);
+    long slotSecond = connectSeconds.get(slot);
+    if (slotSecond != second && connectSeconds.compareAndSet(slot, slotSecond, second)) {
+      connectsPerSecond.set(slot, 0);
+    }
+    connectsPerSecond.incrementAndGet(slot);
+  }
+
+  void connectFailed() {
+    connectFailures.increment();
+  }
+
+  void bytesRead(long byteCount) {
+    bytesRead.add(byteCount);
+  }
+
+  void bytesWritten(long byteCount) {
+    bytesWritten.add(byteCount);
+  }
+
+  void readBlocked(long durationNanos) {
+    readBlockedNanos.add(durationNanos);
+  }
+
+  void writeBlocked(long durationNanos) {
+    writeBlockedNanos.add(durationNanos);
+  }
+
+  void closed(FileSocketListener.CloseReason reason) {
+    openConnections.decrement();
+    closeReasons[reason.ordinal()].increment();
+  }
+
+  @Override
+  public String getSocketPath() {
+    return socketPath;
+  }
+
+  @Override
+  public long getOpenConnections() {
+    return openConnections.sum();
+  }
+
+  @Override
+  public long getConnects() {
+    return connects.sum();
+  }
+
+  @Override
+  public long getConnectFailures() {
+    return connectFailures.sum();
+  }
+
+  @Override
+  public double getConnectsPerSecond() {
+    long second = currentSecond();
+    long sum = 0;
+    for (int slot = 0; slot < RATE_WINDOW_SECONDS; slot++) {
+      if (second - connectSeconds.get(slot) < RATE_WINDOW_SECONDS) {
+        sum += connectsPerSecond.get(slot);
+      }
+    }
+    return (double) sum / RATE_WINDOW_SECONDS;
+  }
+
+  @Override
+  public Map<String, Long> getConnectTimeHistogram() {
+    Map<String, Long> histogram = new LinkedHashMap<>();
+    for (int i = 0; i < CONNECT_TIME_BOUNDS_MICROS.length; i++) {
+      histogram.put("<= " + formatMicros(CONNECT_TIME_BOUNDS_MICROS[i]), connectTimeBuckets[i].sum());
+    }
+    histogram.put("> " + formatMicros(CONNECT_TIME_BOUNDS_MICROS[CONNECT_TIME_BOUNDS_MICROS.length - 1]),
+                  connectTimeBuckets[CONNECT_TIME_BOUNDS_MICROS.length].sum());
+    return histogram;
+  }
+
+  @Override
+  public double getMeanConnectTimeMillis() {
+    long count = connects.sum();
+    return count == 0 ? 0 : connectTimeNanos.sum() / 1_000_000.0 / count;
+  }
+
+  @Override
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  @Override
+  public long getReadBlockedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(readBlockedNanos.sum());
+  }
+
+  @Override
+  public long getWriteBlockedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(writeBlockedNanos.sum());
+  }
+
+  @Override
+  public Map<String, Long> getCloseReasons() {
+    Map<String, Long> reasons = new LinkedHashMap<>();
+    for (FileSocketListener.CloseReason reason : FileSocketListener.CloseReason.values()) {
+      reasons.put(reason.name(), closeReasons[reason.ordinal()].sum());
+    }
+    return reasons;
+  }
+
+  static int bucket(long micros) {
+    for (int i = 0; i < CONNECT_TIME_BOUNDS_MICROS.length; i++) {
+      if (micros <= CONNECT_TIME_BOUNDS_MICROS[i]) {
+        return i;
+      }
+    }
+    return CONNECT_TIME_BOUNDS_MICROS.length;
+  }
+
+  private static String formatMicros(long micros) {
+    if (micros >= 1_000_000) {
+      return micros / 1_000_000 + "s";
+    }
+    if (micros >= 1_000) {
+      return micros % 1_000 == 0 ? micros / 1_000 + "ms" : micros / 1_000.0 + "ms";
+    }
+    return micros + "us";
+  }
+
+  private static long currentSecond() {
+    return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+  }
+
+  private static LongAdder[] newAdders(int count) {
+    LongAdder[] adders = new LongAdder[count];
+    for (int i = 0; i < count; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+}
@@ -0,0 +1,51 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.util.Map;
+
+/**
+ * Transport statistics of a single socket path, see {@link FileSocketMetrics}.
+ */
+public interface FileSocketPathMetricsMXBean {
+
+  /**
+   * @return the decoded socket path, e.g. <code>/var/run/docker.sock</code>
+   */
+  String getSocketPath();
+
+  long getOpenConnections();
+
+  long getConnects();
+
+  long getConnectFailures();
+
+  /**
+   * @return the average rate of successful connects over the last minute
+   */
+  double getConnectsPerSecond();
+
+  /**
+   * @return the number of connects per upper bound of the connect time
+   */
+  Map<String, Long> getConnectTimeHistogram();
+
+  double getMeanConnectTimeMillis();
+
+  long getBytesRead();
+
+  long getBytesWritten();
+
+  /**
+   * @return the total time spent in reads, which is mostly waiting for the daemon
+   */
+  long getReadBlockedMillis();
+
+  /**
+   * @return the total time spent in writes
+   */
+  long getWriteBlockedMillis();
+
+  /**
+   * @return the number of closed connections per {@link FileSocketListener.CloseReason}
+   */
+  Map<String, Long> getCloseReasons();
+}
@@ -0,0 +1,382 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Flow.Publisher} of the data read from a connected {@link FileSocket}, e.g. of <code>/events</code>,
+ * <code>/containers/{id}/stats?stream=true</code> or followed logs on a raw or hijacked connection.
+ * The publisher reads from the socket itself, so callers must not have read ahead beyond the response headers.
+ * <p>
+ * The socket is only read while the subscriber has outstanding demand, otherwise the data stays in the socket's buffers
+ * and the daemon has to wait. Each {@link Flow.Subscriber#onNext(Object)} receives a buffer which is only valid
+ * during the call and reused afterwards, subscribers which pass the data on asynchronously need to copy it.
+ * Cancelling the subscription closes the socket, as do the end of stream and failing reads.
+ * <p>
+ * {@link UnixSocket}s of the {@link UnixSocketBackend#JDK} backend are read by a selector thread of a {@link UnixSocketEventLoopGroup},
+ * so that waiting streams don't occupy a thread. Subscribers are called on that thread and must not block.
+ * Other sockets are read via blocking reads on the executor, which occupy one of its threads while waiting for data.
+ * Only a single subscriber is supported.
+ */
+public class FileSocketPublisher implements Flow.Publisher<ByteBuffer> {
+
+  private static final Logger log = LoggerFactory.getLogger(FileSocketPublisher.class);
+
+  static final int BLOCKING_READ_BUFFER_SIZE = 64 * 1024;
+
+  private static class ExecutorHolder {
+
+    // the threads terminate when idle
+    private static final Executor INSTANCE = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "file-socket-publisher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private final FileSocket socket;
+  private final UnixSocketEventLoopGroup group;
+  private final Executor executor;
+  private final AtomicBoolean subscribed = new AtomicBoolean(false);
+
+  /**
+   * Uses the event loop group shared within the library, or a thread pool for sockets without selectable channel.
+   */
+  public FileSocketPublisher(FileSocket socket) {
+    this(socket, null, null);
+  }
+
+  /**
+   * @param group    serves {@link UnixSocket}s of the {@link UnixSocketBackend#JDK} backend, <code>null</code> uses a shared group
+   * @param executor performs blocking reads for other sockets, <code>null</code> uses a thread pool
+   */
+  public FileSocketPublisher(FileSocket socket, UnixSocketEventLoopGroup group, Executor executor) {
+    this.socket = socket;
+    this.group = group;
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new NoopSubscription());
+      subscriber.onError(new IllegalStateException("Only a single subscriber is supported"));
+      return;
+    }
+    SocketChannel channel = null;
+    if (socket instanceof UnixSocket) {
+      try {
+        channel = ((UnixSocket) socket).getSelectableChannel();
+      } catch (UnsupportedOperationException | IOException e) {
+        // falls back to blocking reads
+      }
+    }
+    try {
+      if (channel != null) {
+        SelectorLoop loop = (group != null ? group : UnixSocketEventLoopGroup.shared()).nextLoop();
+        new SelectorSubscription(subscriber, channel, loop).start();
+      } else {
+        new BlockingSubscription(subscriber, socket.getInputStream(), executor != null ? executor : ExecutorHolder.INSTANCE).start();
+      }
+    } catch (IOException e) {
+      closeSocket();
+      subscriber.onSubscribe(new NoopSubscription());
+      subscriber.onError(e);
+    }
+  }
+
+  private void closeSocket() {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      log.debug("close failed", e);
+    }
+  }
+
+  /**
+   * Tracks the demand and terminal state shared by both reading strategies.
+   */
+  private abstract class DemandSubscription implements Flow.Subscription {
+
+    final Flow.Subscriber<? super ByteBuffer> subscriber;
+    final AtomicLong demand = new AtomicLong();
+    final AtomicBoolean done = new AtomicBoolean(false);
+
+    DemandSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        illegalRequest(new IllegalArgumentException("non-positive subscription request: " + n));
+        return;
+      }
+      long previous = demand.getAndAccumulate(n, (current, added) -> {
+        long sum = current + added;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+      });
+      if (previous == 0 && !done.get()) {
+        resume();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      if (done.compareAndSet(false, true)) {
+        stop();
+        closeSocket();
+      }
+    }
+
+    /**
+     * Starts reading once demand has been signalled.
+     */
+    abstract void resume();
+
+    /**
+     * Stops reading before the socket is closed.
+     */
+    abstract void stop();
+
+    /**
+     * Fails the subscription without signalling concurrently to a pending {@link Flow.Subscriber#onNext(Object)}.
+     */
+    abstract void illegalRequest(IllegalArgumentException error);
+
+    void next(ByteBuffer data) {
+      demand.decrementAndGet();
+      subscriber.onNext(data);
+    }
+
+    void complete() {
+      if (done.compareAndSet(false, true)) {
+        socket.endOfStream();
+        stop();
+        closeSocket();
+        subscriber.onComplete();
+      }
+    }
+
+    void fail(Throwable error) {
+      if (done.compareAndSet(false, true)) {
+        socket.failed();
+        stop();
+        closeSocket();
+        subscriber.onError(error);
+      }
+    }
+  }
+
+  /**
+   * Reads on a selector thread, read interest is only registered while there is demand.
+   */
+  private class SelectorSubscription extends DemandSubscription implements SelectorLoop.ReadyHandler {
+
+    private final SocketChannel channel;
+    private final SelectorLoop loop;
+    // only accessed on the loop thread
+    private SelectionKey key = null;
+
+    SelectorSubscription(Flow.Subscriber<? super ByteBuffer> subscriber, SocketChannel channel, SelectorLoop loop) {
+      super(subscriber);
+      this.channel = channel;
+      this.loop = loop;
+    }
+
+    void start() {
+      subscriber.onSubscribe(this);
+    }
+
+    @Override
+    void resume() {
+      execute(() -> {
+        if (done.get()) {
+          return;
+        }
+        try {
+          if (key == null) {
+            key = loop.registerInLoop(channel, SelectionKey.OP_READ, this);
+          } else {
+            key.interestOps(SelectionKey.OP_READ);
+          }
+        } catch (IOException | RuntimeException e) {
+          fail(e);
+        }
+      });
+    }
+
+    @Override
+    void stop() {
+      if (loop.inLoop()) {
+        deregister();
+      } else {
+        execute(this::deregister);
+      }
+    }
+
+    @Override
+    void illegalRequest(IllegalArgumentException error) {
+      execute(() -> fail(error));
+    }
+
+    private void deregister() {
+      if (key != null) {
+        key.cancel();
+      }
+    }
+
+    private void execute(Runnable task) {
+      try {
+        loop.execute(task);
+      } catch (IllegalStateException e) {
+        fail(new IOException("The event loop group has been closed", e));
+      }
+    }
+
+    @Override
+    public void ready(SelectionKey key) {
+      ByteBuffer buffer = loop.readBuffer();
+      try {
+        for (int i = 0; i < UnixSocketEventLoopGroup.MAX_READS_PER_WAKEUP; i++) {
+          if (done.get()) {
+            return;
+          }
+          if (demand.get() == 0) {
+            key.interestOps(0);
+            // request() may have raced with the check, it resumes only when the demand was zero
+            if (demand.get() > 0) {
+              key.interestOps(SelectionKey.OP_READ);
+            }
+            return;
+          }
+          buffer.clear();
+          int read = channel.read(buffer);
+          if (read == -1) {
+            complete();
+            return;
+          }
+          if (read == 0) {
+            return;
+          }
+          buffer.flip();
+          socket.bytesRead(read);
+          next(buffer);
+          if (read < buffer.capacity()) {
+            return;
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        fail(e);
+      }
+    }
+  }
+
+  /**
+   * Reads on the executor, a read task only runs while there is demand.
+   */
+  private class BlockingSubscription extends DemandSubscription implements Runnable {
+
+    private final InputStream in;
+    private final Executor executor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final byte[] buffer = new byte[BLOCKING_READ_BUFFER_SIZE];
+    private final ByteBuffer data = ByteBuffer.wrap(buffer);
+    private volatile IllegalArgumentException pendingError = null;
+
+    BlockingSubscription(Flow.Subscriber<? super ByteBuffer> subscriber, InputStream in, Executor executor) {
+      super(subscriber);
+      this.in = in;
+      this.executor = executor;
+    }
+
+    void start() {
+      subscriber.onSubscribe(this);
+    }
+
+    @Override
+    void resume() {
+      if (running.compareAndSet(false, true)) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          running.set(false);
+          fail(e);
+        }
+      }
+    }
+
+    @Override
+    void stop() {
+      // a blocked read is interrupted by closing the socket
+    }
+
+    @Override
+    void illegalRequest(IllegalArgumentException error) {
+      pendingError = error;
+      if (running.compareAndSet(false, true)) {
+        fail(error);
+      } else {
+        // unblocks the pending read, which reports the error
+        closeSocket();
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!done.get() && demand.get() > 0 && pendingError == null) {
+          // the stream reports to the socket's listener itself
+          int read = in.read(buffer);
+          if (read == -1) {
+            complete();
+            return;
+          }
+          data.clear().limit(read);
+          next(data);
+        }
+        if (pendingError != null) {
+          fail(pendingError);
+          return;
+        }
+      } catch (IOException | RuntimeException e) {
+        fail(pendingError != null ? pendingError : e);
+        return;
+      } finally {
+        running.set(false);
+      }
+      // request() may have raced with the loop condition
+      if (!done.get() && demand.get() > 0) {
+        resume();
+      }
+    }
+  }
+
+  private static class NoopSubscription implements Flow.Subscription {
+
+    @Override
+    public void request(long n) {
+    }
+
+    @Override
+    public void cancel() {
+    }
+  }
+}
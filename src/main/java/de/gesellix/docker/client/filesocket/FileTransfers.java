@@ -0,0 +1,123 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Moves files between disk and a connected socket without copying them through the Java heap where possible,
+ * e.g. for build contexts, <code>docker cp</code>, <code>docker load</code> or <code>docker save</code> archives.
+ * <p>
+ * The socket is used directly, so any request line and headers need to be written (and response headers read)
+ * by the caller before the file contents, e.g. on a hijacked or upgraded connection.
+ */
+public final class FileTransfers {
+
+  static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  private FileTransfers() {
+  }
+
+  /**
+   * Sends the complete file to the socket.
+   *
+   * @return the number of bytes sent
+   */
+  public static long sendFile(Socket target, Path file) throws IOException {
+    try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+      return sendFile(target, source, 0, source.size());
+    }
+  }
+
+  /**
+   * Sends a region of the file to the socket.
+   * A {@link UnixSocket} transfers the region via <code>sendfile</code> (zero-copy) where supported,
+   * other sockets fall back to a buffered copy through their {@link Socket#getOutputStream()}.
+   * The position of the file channel is not changed.
+   *
+   * @return the number of bytes sent, less than <code>count</code> only if the file ends before
+   */
+  public static long sendFile(Socket target, FileChannel source, long position, long count) throws IOException {
+    if (position < 0 || count < 0) {
+      throw new IllegalArgumentException("position and count must not be negative");
+    }
+    if (target instanceof UnixSocket) {
+      return ((UnixSocket) target).transferFrom(source, position, count);
+    }
+    return copy(source, position, count, target.getOutputStream());
+  }
+
+  /**
+   * Receives everything up to the end of stream into the file, e.g. from <code>docker save</code>
+   * or <code>GET /containers/{id}/archive</code> on a raw connection.
+   * An existing file is truncated.
+   *
+   * @return the number of bytes received
+   */
+  public static long receiveFile(Socket source, Path file) throws IOException {
+    try (FileChannel target = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      return receiveFile(source, target, 0, Long.MAX_VALUE);
+    }
+  }
+
+  /**
+   * Receives up to <code>count</code> bytes from the socket into the file, starting at <code>position</code>.
+   * A {@link UnixSocket} reads into a direct buffer, so that the bytes don't need to be copied through the Java heap,
+   * other sockets fall back to a buffered copy from their {@link Socket#getInputStream()}.
+   * The position of the file channel is not changed.
+   * <p>
+   * Only bytes which haven't been consumed from the socket yet can be received,
+   * so callers must not have read ahead via a buffered stream.
+   *
+   * @param count the maximum number of bytes to receive, <code>Long.MAX_VALUE</code> reads until the end of stream
+   * @return the number of bytes received, less than <code>count</code> only if the stream ends before
+   */
+  public static long receiveFile(Socket source, FileChannel target, long position, long count) throws IOException {
+    if (position < 0 || count < 0) {
+      throw new IllegalArgumentException("position and count must not be negative");
+    }
+    if (source instanceof UnixSocket) {
+      return ((UnixSocket) source).transferTo(target, position, count);
+    }
+    return copy(source.getInputStream(), target, position, count);
+  }
+
+  static long copy(FileChannel source, long position, long count, OutputStream target) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(COPY_BUFFER_SIZE, Math.max(count, 1)));
+    long transferred = 0;
+    while (transferred < count) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), count - transferred));
+      int read = source.read(buffer, position + transferred);
+      if (read == -1) {
+        break;
+      }
+      target.write(buffer.array(), 0, read);
+      transferred += read;
+    }
+    target.flush();
+    return transferred;
+  }
+
+  static long copy(InputStream source, FileChannel target, long position, long count) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(COPY_BUFFER_SIZE, Math.max(count, 1)));
+    long transferred = 0;
+    while (transferred < count) {
+      int read = source.read(buffer.array(), 0, (int) Math.min(buffer.capacity(), count - transferred));
+      if (read == -1) {
+        break;
+      }
+      buffer.clear();
+      buffer.limit(read);
+      while (buffer.hasRemaining()) {
+        transferred += target.write(buffer, position + transferred);
+      }
+    }
+    return transferred;
+  }
+}
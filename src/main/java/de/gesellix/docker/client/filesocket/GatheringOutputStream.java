@@ -0,0 +1,175 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects the writes of a request, like the request line, headers and body segments written by OkHttp,
+ * in a pooled direct buffer until {@link #flush()} and sends them with a single write.
+ * A write which doesn't fit the buffer anymore is sent along with the collected bytes as one gathering write (<code>writev</code>).
+ * <p>
+ * Meant for clients which flush after each request. Without a flush, bytes are only sent once the buffer is full.
+ * The buffer is returned to the pool after each flush, so that idle connections don't hold on to it.
+ */
+class GatheringOutputStream extends OutputStream {
+
+  private final GatheringByteChannel channel;
+  private final DirectBufferPool pool;
+  // a lock instead of synchronized, so that virtual threads don't pin their carrier
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ByteBuffer[] gather = new ByteBuffer[2];
+  private final byte[] single = new byte[1];
+  private DirectBufferPool.Lease lease = null;
+  private volatile boolean closed = false;
+
+  GatheringOutputStream(GatheringByteChannel channel, DirectBufferPool pool) {
+    this.channel = channel;
+    this.pool = pool;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    lock.lock();
+    try {
+      single[0] = (byte) b;
+      write(single, 0, 1);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, b.length);
+    if (len == 0) {
+      return;
+    }
+    lock.lock();
+    try {
+      ensureOpen();
+      ByteBuffer collected = collected();
+      if (len <= collected.remaining()) {
+        collected.put(b, off, len);
+        return;
+      }
+      gather[0] = collected.flip();
+      gather[1] = ByteBuffer.wrap(b, off, len);
+      try {
+        writeFully(gather);
+      } finally {
+        gather[1] = null;
+        release();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    lock.lock();
+    try {
+      ensureOpen();
+      writeCollected();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    flushQuietly();
+    try {
+      channel.close();
+    } finally {
+      discard();
+    }
+  }
+
+  /**
+   * Writes collected bytes before the socket is closed, without waiting for a concurrent write and without failing.
+   */
+  void flushQuietly() {
+    if (!lock.tryLock()) {
+      return;
+    }
+    try {
+      if (!closed) {
+        writeCollected();
+      }
+    } catch (IOException ignored) {
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the buffer to the pool once the socket has been closed, which also ends a pending write.
+   */
+  void discard() {
+    closed = true;
+    lock.lock();
+    try {
+      release();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of collected bytes
+   */
+  int getCollectedCount() {
+    lock.lock();
+    try {
+      return lease != null ? lease.buffer().position() : 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private ByteBuffer collected() {
+    if (lease == null) {
+      lease = pool.acquire();
+    }
+    return lease.buffer();
+  }
+
+  private void writeCollected() throws IOException {
+    if (lease == null) {
+      return;
+    }
+    try {
+      ByteBuffer collected = lease.buffer().flip();
+      while (collected.hasRemaining()) {
+        channel.write(collected);
+      }
+    } finally {
+      release();
+    }
+  }
+
+  private void writeFully(ByteBuffer[] buffers) throws IOException {
+    long remaining = UnixSocketTransport.remaining(buffers, 0, buffers.length);
+    while (remaining > 0) {
+      remaining -= channel.write(buffers);
+    }
+  }
+
+  private void release() {
+    if (lease != null) {
+      lease.close();
+      lease = null;
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+}
@@ -1,40 +1,90 @@
 package de.gesellix.docker.client.filesocket;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import okio.ByteString;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
+/**
+ * Encodes socket paths as hex, split into DNS labels when necessary.
+ * Works on char and byte arrays, so that the result is the only allocation.
+ */
 public class HostnameEncoder {
 
   /**
    * @see java.net.IDN
    */
-  private final static Integer MAX_LABEL_LENGTH = 63;
-  private final static Integer MAX_HOSTNAME_LENGTH = MAX_LABEL_LENGTH * 4;
+  private final static int MAX_LABEL_LENGTH = 63;
+  private final static int MAX_HOSTNAME_LENGTH = MAX_LABEL_LENGTH * 4;
+
+  private final static char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  // -256 marks invalid digits, so that combining two of them stays negative
+  private final static int[] HEX_VALUES = new int['f' + 1];
+
+  static {
+    Arrays.fill(HEX_VALUES, -256);
+    for (int i = 0; i < 16; i++) {
+      HEX_VALUES[HEX_DIGITS[i]] = i;
+      HEX_VALUES[Character.toUpperCase(HEX_DIGITS[i])] = i;
+    }
+  }
 
   public String encode(String toEncode) {
-    String encoded = ByteString.encodeUtf8(toEncode).hex();
-    if (encoded.length() > MAX_LABEL_LENGTH && encoded.length() < MAX_HOSTNAME_LENGTH) {
-      List<String> labels = new ArrayList<>();
-      int labelCount = (int) Math.ceil(encoded.length() / MAX_LABEL_LENGTH.doubleValue());
-      for (int step = 0; step < labelCount; step++) {
-        int from = step * MAX_LABEL_LENGTH;
-        int to = from + MAX_LABEL_LENGTH;
-        labels.add(encoded.substring(from, Math.min(to, encoded.length())));
+    byte[] bytes = toEncode.getBytes(StandardCharsets.UTF_8);
+    int hexLength = bytes.length * 2;
+    boolean splitLabels = hexLength > MAX_LABEL_LENGTH && hexLength < MAX_HOSTNAME_LENGTH;
+    char[] encoded = new char[splitLabels ? hexLength + (hexLength - 1) / MAX_LABEL_LENGTH : hexLength];
+    int position = 0;
+    for (int i = 0; i < hexLength; i++) {
+      if (splitLabels && i > 0 && i % MAX_LABEL_LENGTH == 0) {
+        encoded[position++] = '.';
       }
-      return String.join(".", labels);
+      int b = bytes[i >> 1];
+      encoded[position++] = HEX_DIGITS[(i & 1) == 0 ? (b >> 4) & 0xf : b & 0xf];
     }
-    return encoded;
+    return new String(encoded);
   }
 
   public String decode(String toDecode) {
-    String decoded = toDecode;
-    if (toDecode.contains(".")) {
-      String[] labels = toDecode.split("\\.");
-      decoded = String.join("", labels);
-//            decoded = elements.dropLastWhile { it.isEmpty() }.toTypedArray().joinToString("");
+    return decode(toDecode, 0, toDecode.length());
+  }
+
+  /**
+   * Decodes the given region, label separators are skipped.
+   */
+  String decode(String toDecode, int from, int to) {
+    int digits = to - from;
+    for (int i = from; i < to; i++) {
+      if (toDecode.charAt(i) == '.') {
+        digits--;
+      }
     }
-    return ByteString.decodeHex(decoded).utf8();
+    if (digits % 2 != 0) {
+      throw new IllegalArgumentException("Unexpected hex string: " + toDecode.substring(from, to));
+    }
+    byte[] decoded = new byte[digits / 2];
+    int position = 0;
+    int i = from;
+    while (position < decoded.length) {
+      char high = toDecode.charAt(i++);
+      if (high == '.') {
+        continue;
+      }
+      char low = toDecode.charAt(i++);
+      if (low == '.') {
+        low = toDecode.charAt(i++);
+      }
+      int value = hexValue(high) << 4 | hexValue(low);
+      if (value < 0) {
+        throw new IllegalArgumentException("Unexpected hex string: " + toDecode.substring(from, to));
+      }
+      decoded[position++] = (byte) value;
+    }
+    return new String(decoded, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return a negative value for invalid hex digits
+   */
+  private static int hexValue(char c) {
+    return c < HEX_VALUES.length ? HEX_VALUES[c] : -256;
   }
 }
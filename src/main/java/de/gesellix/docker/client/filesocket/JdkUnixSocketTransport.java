@@ -0,0 +1,636 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Unix domain socket transport based on the JDK's own {@link SocketChannel} (Java 16+),
+ * without the native library of junixsocket.
+ * <p>
+ * Unix domain socket channels don't have a socket adaptor, so they don't know about SO_TIMEOUT.
+ * The channel is therefore kept in non-blocking mode and blocking reads and writes wait for readiness
+ * on a per-socket {@link Selector}, which allows to honor timeouts and deadlines without closing the socket.
+ * Reads and writes use separate locks and selectors, so that hijacked connections can read and write concurrently.
+ * <p>
+ * Virtual threads don't wait on the per-socket selectors, but on the shared {@link ReadinessPoller},
+ * so that they unmount from their carrier thread instead of pinning it.
+ */
+class JdkUnixSocketTransport extends UnixSocketTransport {
+
+  static final int READ_AHEAD_SIZE = 8 * 1024;
+
+  private final ReentrantLock readLock = new ReentrantLock();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final ReentrantLock stateLock = new ReentrantLock();
+
+  private SocketChannel channel = null;
+  private Selector readSelector = null;
+  private Selector writeSelector = null;
+  private ReadinessPoller.Registration pollerRegistration = null;
+  // data read ahead by available(), guarded by the readLock
+  private ByteBuffer readAhead = null;
+  private volatile int soTimeout = 0;
+  private volatile boolean closed = false;
+  private volatile boolean inputShutdown = false;
+  private volatile boolean outputShutdown = false;
+  private volatile boolean peerClosed = false;
+
+  private InputStream inputStream;
+  private OutputStream outputStream;
+
+  static boolean isSupported() {
+    try {
+      SocketChannel.open(StandardProtocolFamily.UNIX).close();
+      return true;
+    } catch (UnsupportedOperationException | IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @param timeout milliseconds to wait for space in the daemon's accept backlog, <code>0</code> waits without a timeout
+   * @throws SocketTimeoutException when the timeout has passed
+   */
+  @Override
+  void connect(FileSocketAddress address, int timeout) throws IOException {
+    SocketChannel socketChannel = SocketChannel.open(StandardProtocolFamily.UNIX);
+    try {
+      // AF_UNIX connects either complete immediately or wait for space in the daemon's accept backlog,
+      // a non-blocking connect would fail with EAGAIN in the latter case. So the blocking connect
+      // runs on Okio's watchdog, which closes the channel when the timeout passes.
+      UnixDomainSocketAddress endpoint = address.endpoint(UnixDomainSocketAddress.class, UnixDomainSocketAddress::of);
+      withDeadline(deadlineAfter(timeout), "Connect timed out", socketChannel, () -> socketChannel.connect(endpoint));
+      socketChannel.configureBlocking(false);
+    } catch (IOException | RuntimeException e) {
+      socketChannel.close();
+      throw e;
+    }
+    channel = socketChannel;
+    inputStream = new ChannelInputStream();
+    outputStream = new ChannelOutputStream();
+  }
+
+  @Override
+  void bind(SocketAddress bindpoint) throws IOException {
+    ensureInitialized().bind(bindpoint);
+  }
+
+  @Override
+  InputStream getInputStream() throws IOException {
+    ensureInitialized();
+    return inputStream;
+  }
+
+  @Override
+  OutputStream getOutputStream() throws IOException {
+    ensureInitialized();
+    return outputStream;
+  }
+
+  @Override
+  SocketChannel getChannel() {
+    return channel;
+  }
+
+  @Override
+  <T> void setOption(SocketOption<T> name, T value) throws IOException {
+    try {
+      ensureInitialized().setOption(name, value);
+    } catch (ClosedChannelException e) {
+      throw closedException(e);
+    }
+  }
+
+  @Override
+  <T> T getOption(SocketOption<T> name) throws IOException {
+    try {
+      return ensureInitialized().getOption(name);
+    } catch (ClosedChannelException e) {
+      throw closedException(e);
+    }
+  }
+
+  /**
+   * The channel can't tell the number of pending bytes, so available data is read ahead without blocking
+   * and returned by the next reads. Returns <code>0</code> while another thread is reading.
+   */
+  @Override
+  int available() throws IOException {
+    SocketChannel socketChannel = ensureInitialized();
+    if (!readLock.tryLock()) {
+      return 0;
+    }
+    try {
+      readAhead(socketChannel);
+      return readAhead.remaining();
+    } catch (ClosedChannelException e) {
+      throw closedException(e);
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * A blocking read in progress has consumed the data read ahead already.
+   */
+  @Override
+  ByteBuffer takeReadAhead() {
+    if (!readLock.tryLock()) {
+      return null;
+    }
+    try {
+      if (readAhead == null || !readAhead.hasRemaining() || inputShutdown) {
+        return null;
+      }
+      ByteBuffer data = ByteBuffer.allocate(readAhead.remaining()).put(readAhead).flip();
+      readAhead.clear().flip();
+      return data;
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  @Override
+  boolean hasReadAhead() {
+    if (!readLock.tryLock()) {
+      return false;
+    }
+    try {
+      return readAhead != null && readAhead.hasRemaining() && !inputShutdown;
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * A single non-blocking read, which keeps received data for the next reads like {@link #available()}.
+   */
+  @Override
+  boolean isPeerClosed() throws IOException {
+    SocketChannel socketChannel = channel;
+    if (socketChannel == null || closed || inputShutdown) {
+      return false;
+    }
+    if (peerClosed) {
+      return true;
+    }
+    if (!readLock.tryLock()) {
+      return false;
+    }
+    try {
+      return readAhead(socketChannel) == -1;
+    } catch (ClosedChannelException e) {
+      throw closedException(e);
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Reads without blocking unless data has been read ahead already, to be called with the readLock held.
+   *
+   * @return the result of the read, <code>0</code> when data is pending
+   */
+  private int readAhead(SocketChannel socketChannel) throws IOException {
+    if (readAhead == null) {
+      readAhead = ByteBuffer.allocate(READ_AHEAD_SIZE).flip();
+    }
+    if (readAhead.hasRemaining() || inputShutdown) {
+      return 0;
+    }
+    readAhead.clear();
+    int read = socketChannel.read(readAhead);
+    readAhead.flip();
+    if (read == -1) {
+      peerClosed = true;
+    }
+    return read;
+  }
+
+  @Override
+  void setSoTimeout(int timeout) throws IOException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("timeout < 0");
+    }
+    ensureInitialized();
+    soTimeout = timeout;
+  }
+
+  @Override
+  int getSoTimeout() throws IOException {
+    ensureInitialized();
+    return soTimeout;
+  }
+
+  @Override
+  boolean isAlive() {
+    if (closed || channel == null) {
+      return false;
+    }
+    if (!readLock.tryLock()) {
+      // a read is in progress, so the connection is in use
+      return true;
+    }
+    try {
+      return readAhead(channel) == 0 && !readAhead.hasRemaining();
+    } catch (IOException e) {
+      return false;
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Pending reads return the end of stream, as the shutdown also wakes up their selectors.
+   */
+  @Override
+  void shutdownInput() throws IOException {
+    SocketChannel socketChannel = ensureInitialized();
+    try {
+      socketChannel.shutdownInput();
+    } catch (ClosedChannelException e) {
+      throw closedException(e);
+    }
+    inputShutdown = true;
+  }
+
+  @Override
+  void shutdownOutput() throws IOException {
+    SocketChannel socketChannel = ensureInitialized();
+    try {
+      socketChannel.shutdownOutput();
+    } catch (ClosedChannelException e) {
+      throw closedException(e);
+    }
+    outputShutdown = true;
+  }
+
+  @Override
+  boolean isInputShutdown() {
+    return inputShutdown;
+  }
+
+  @Override
+  boolean isOutputShutdown() {
+    return outputShutdown;
+  }
+
+  @Override
+  boolean isConnected() {
+    return channel != null && channel.isConnected();
+  }
+
+  @Override
+  boolean isClosed() {
+    return closed;
+  }
+
+  @Override
+  void close() throws IOException {
+    stateLock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        if (channel != null) {
+          channel.close();
+        }
+      } finally {
+        // wakes up blocked readers and writers
+        closeQuietly(readSelector);
+        closeQuietly(writeSelector);
+        if (pollerRegistration != null) {
+          pollerRegistration.wakeup();
+        }
+      }
+    } finally {
+      stateLock.unlock();
+    }
+  }
+
+  @Override
+  int read(ByteBuffer dst, long deadline) throws IOException {
+    SocketChannel socketChannel = ensureInitialized();
+    readLock.lock();
+    try {
+      if (readAhead != null && readAhead.hasRemaining() && !inputShutdown) {
+        int count = Math.min(readAhead.remaining(), dst.remaining());
+        dst.put(dst.position(), readAhead, readAhead.position(), count);
+        dst.position(dst.position() + count);
+        readAhead.position(readAhead.position() + count);
+        return count;
+      }
+      long readDeadline = earliest(deadline, deadlineAfter(soTimeout));
+      while (true) {
+        int read = socketChannel.read(dst);
+        if (read != 0 || !dst.hasRemaining()) {
+          return read;
+        }
+        awaitReady(SelectionKey.OP_READ, readDeadline, "Read timed out");
+      }
+    } catch (ClosedChannelException e) {
+      throw closedException(e);
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * The write timeout limits the time without progress, so that large writes to a slow peer don't time out as long as it keeps reading.
+   */
+  @Override
+  int write(ByteBuffer src, long deadline) throws IOException {
+    SocketChannel socketChannel = ensureInitialized();
+    writeLock.lock();
+    try {
+      ensureOutputOpen();
+      long writeDeadline = earliest(deadline, deadlineAfter(getWriteTimeout()));
+      int written = 0;
+      while (src.hasRemaining()) {
+        int count = socketChannel.write(src);
+        if (count == 0) {
+          awaitReady(SelectionKey.OP_WRITE, writeDeadline, "Write timed out");
+        } else {
+          writeDeadline = earliest(deadline, deadlineAfter(getWriteTimeout()));
+        }
+        written += count;
+      }
+      return written;
+    } catch (ClosedChannelException e) {
+      throw closedException(e);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Passes all buffers to a single <code>writev</code>, which is repeated only for the rest of a partial write.
+   */
+  @Override
+  long write(ByteBuffer[] srcs, int offset, int length, long deadline) throws IOException {
+    Objects.checkFromIndexSize(offset, length, srcs.length);
+    SocketChannel socketChannel = ensureInitialized();
+    writeLock.lock();
+    try {
+      ensureOutputOpen();
+      long remaining = remaining(srcs, offset, length);
+      long writeDeadline = earliest(deadline, deadlineAfter(getWriteTimeout()));
+      long written = 0;
+      while (written < remaining) {
+        long count = socketChannel.write(srcs, offset, length);
+        if (count == 0) {
+          awaitReady(SelectionKey.OP_WRITE, writeDeadline, "Write timed out");
+        } else {
+          writeDeadline = earliest(deadline, deadlineAfter(getWriteTimeout()));
+        }
+        written += count;
+      }
+      return written;
+    } catch (ClosedChannelException e) {
+      throw closedException(e);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Uses {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+   * which the JDK maps to <code>sendfile</code> where available.
+   */
+  @Override
+  long transferFrom(FileChannel src, long position, long count) throws IOException {
+    SocketChannel socketChannel = ensureInitialized();
+    writeLock.lock();
+    try {
+      ensureOutputOpen();
+      long writeDeadline = deadlineAfter(getWriteTimeout());
+      long transferred = 0;
+      while (transferred < count) {
+        long n = src.transferTo(position + transferred, count - transferred, socketChannel);
+        if (n == 0) {
+          if (position + transferred >= src.size()) {
+            break;
+          }
+          awaitReady(SelectionKey.OP_WRITE, writeDeadline, "Write timed out");
+        } else {
+          writeDeadline = deadlineAfter(getWriteTimeout());
+        }
+        transferred += n;
+      }
+      return transferred;
+    } catch (ClosedChannelException e) {
+      if (!src.isOpen()) {
+        throw e;
+      }
+      throw closedException(e);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Reads into a pooled direct buffer and writes it to the file, so that the bytes never enter the Java heap.
+   * {@link FileChannel#transferFrom(java.nio.channels.ReadableByteChannel, long, long)} would copy
+   * through a temporary buffer as well, but can't tell the end of stream from a non-blocking channel.
+   */
+  @Override
+  long transferTo(FileChannel dst, long position, long count) throws IOException {
+    try (DirectBufferPool.Lease lease = DirectBufferPool.shared().acquire()) {
+      ByteBuffer buffer = lease.buffer();
+      long transferred = 0;
+      while (transferred < count) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), count - transferred));
+        if (read(buffer) == -1) {
+          break;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          transferred += dst.write(buffer, position + transferred);
+        }
+      }
+      return transferred;
+    }
+  }
+
+  private Selector readSelector() throws IOException {
+    stateLock.lock();
+    try {
+      if (readSelector == null) {
+        readSelector = openSelector(SelectionKey.OP_READ);
+      }
+      return readSelector;
+    } finally {
+      stateLock.unlock();
+    }
+  }
+
+  private Selector writeSelector() throws IOException {
+    stateLock.lock();
+    try {
+      if (writeSelector == null) {
+        writeSelector = openSelector(SelectionKey.OP_WRITE);
+      }
+      return writeSelector;
+    } finally {
+      stateLock.unlock();
+    }
+  }
+
+  private ReadinessPoller.Registration pollerRegistration() throws IOException {
+    stateLock.lock();
+    try {
+      if (closed) {
+        throw new SocketException("Socket is closed");
+      }
+      if (pollerRegistration == null) {
+        pollerRegistration = ReadinessPoller.shared().newRegistration(channel);
+      }
+      return pollerRegistration;
+    } finally {
+      stateLock.unlock();
+    }
+  }
+
+  private Selector openSelector(int ops) throws IOException {
+    if (closed) {
+      throw new SocketException("Socket is closed");
+    }
+    Selector selector = Selector.open();
+    try {
+      channel.register(selector, ops);
+    } catch (IOException e) {
+      selector.close();
+      throw e;
+    }
+    return selector;
+  }
+
+  /**
+   * @param op       {@link SelectionKey#OP_READ} or {@link SelectionKey#OP_WRITE}
+   * @param deadline {@link System#nanoTime()} based, <code>0</code> waits without a timeout.
+   */
+  private void awaitReady(int op, long deadline, String timeoutMessage) throws IOException {
+    long timeoutMillis = 0;
+    if (deadline != 0) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        throw new SocketTimeoutException(timeoutMessage);
+      }
+      timeoutMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining));
+    }
+    if (ReadinessPoller.isVirtual(Thread.currentThread())) {
+      pollerRegistration().await(op, deadline);
+    } else {
+      Selector selector = op == SelectionKey.OP_READ ? readSelector() : writeSelector();
+      try {
+        selector.select(timeoutMillis);
+        selector.selectedKeys().clear();
+      } catch (ClosedSelectorException e) {
+        // closed concurrently
+      }
+    }
+    if (closed) {
+      throw new SocketException("Socket is closed");
+    }
+  }
+
+  private SocketChannel ensureInitialized() throws SocketException {
+    if (channel == null) {
+      throw new SocketException("Socket is not initialized");
+    }
+    return channel;
+  }
+
+  private void ensureOutputOpen() throws SocketException {
+    if (outputShutdown) {
+      throw new SocketException("Socket output is shutdown");
+    }
+  }
+
+  private static SocketException closedException(ClosedChannelException cause) {
+    SocketException exception = new SocketException("Socket is closed");
+    exception.initCause(cause);
+    return exception;
+  }
+
+  private static void closeQuietly(Selector selector) {
+    if (selector != null) {
+      try {
+        selector.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+
+  private class ChannelInputStream extends InputStream {
+
+    private final byte[] single = new byte[1];
+
+    @Override
+    public int read() throws IOException {
+      int read = read(single, 0, 1);
+      return read == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      Objects.checkFromIndexSize(off, len, b.length);
+      if (len == 0) {
+        return 0;
+      }
+      return JdkUnixSocketTransport.this.read(ByteBuffer.wrap(b, off, len));
+    }
+
+    @Override
+    public int available() throws IOException {
+      return JdkUnixSocketTransport.this.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+      JdkUnixSocketTransport.this.close();
+    }
+  }
+
+  private class ChannelOutputStream extends OutputStream {
+
+    private final byte[] single = new byte[1];
+
+    @Override
+    public void write(int b) throws IOException {
+      single[0] = (byte) b;
+      write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      Objects.checkFromIndexSize(off, len, b.length);
+      JdkUnixSocketTransport.this.write(ByteBuffer.wrap(b, off, len));
+    }
+
+    @Override
+    public void close() throws IOException {
+      JdkUnixSocketTransport.this.close();
+    }
+  }
+}
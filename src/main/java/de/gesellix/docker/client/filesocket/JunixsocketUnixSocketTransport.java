@@ -0,0 +1,259 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+import org.newsclub.net.unix.AFUNIXSocketChannel;
+
+/**
+ * Unix domain socket transport based on junixsocket's blocking {@link AFUNIXSocket}.
+ * <p>
+ * Reads honor the SO_TIMEOUT natively. Blocking writes and reads with a deadline can't wait with a timeout,
+ * they run on Okio's watchdog instead, which closes the socket when the write timeout or the deadline passes.
+ */
+class JunixsocketUnixSocketTransport extends UnixSocketTransport {
+
+  private AFUNIXSocket socket = null;
+  private volatile int soTimeout = 0;
+  private byte[] readBuffer = null;
+  private OutputStream outputStream = null;
+
+  @Override
+  void connect(FileSocketAddress address, int timeout) throws IOException {
+    AFUNIXSocketAddress endpoint = address.endpoint(AFUNIXSocketAddress.class, socketPath -> AFUNIXSocketAddress.of(new File(socketPath)));
+
+    AFUNIXSocket connecting = AFUNIXSocket.newInstance();
+    try {
+      connecting.connect(endpoint, timeout);
+    } catch (IOException e) {
+      connecting.close();
+      throw e;
+    }
+    socket = connecting;
+  }
+
+  @Override
+  void bind(SocketAddress bindpoint) throws IOException {
+    ensureInitialized().bind(bindpoint);
+  }
+
+  @Override
+  InputStream getInputStream() throws IOException {
+    return ensureInitialized().getInputStream();
+  }
+
+  /**
+   * Writes via {@link #write(ByteBuffer)}, so that they honor the write timeout.
+   * Writes after {@link #shutdownOutput()} fail without closing the socket, junixsocket itself would close it.
+   */
+  @Override
+  OutputStream getOutputStream() throws IOException {
+    ensureInitialized();
+    if (outputStream == null) {
+      outputStream = new ChannelOutputStream();
+    }
+    return outputStream;
+  }
+
+  /**
+   * Uses the socket's own channel, which reads into direct buffers natively, as long as no SO_TIMEOUT is set.
+   * With a timeout the channel reports the end of stream instead of failing, so the stream is used in that case.
+   */
+  @Override
+  int read(ByteBuffer dst, long deadline) throws IOException {
+    AFUNIXSocket socket = ensureInitialized();
+    return withDeadline(deadline, "Read timed out", () -> read(socket, dst));
+  }
+
+  private int read(AFUNIXSocket socket, ByteBuffer dst) throws IOException {
+    if (soTimeout == 0) {
+      return socket.getChannel().read(dst);
+    }
+    if (dst.hasArray()) {
+      int read = socket.getInputStream().read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+      if (read > 0) {
+        dst.position(dst.position() + read);
+      }
+      return read;
+    }
+    if (readBuffer == null) {
+      readBuffer = new byte[FileTransfers.COPY_BUFFER_SIZE];
+    }
+    int read = socket.getInputStream().read(readBuffer, 0, Math.min(readBuffer.length, dst.remaining()));
+    if (read > 0) {
+      dst.put(readBuffer, 0, read);
+    }
+    return read;
+  }
+
+  /**
+   * junixsocket's channel only writes the first buffer of a gathering write, so those fall back to one write per buffer.
+   */
+  @Override
+  int write(ByteBuffer src, long deadline) throws IOException {
+    ensureOutputOpen();
+    AFUNIXSocketChannel channel = ensureInitialized().getChannel();
+    return withDeadline(earliest(deadline, deadlineAfter(getWriteTimeout())), "Write timed out", () -> {
+      int written = 0;
+      while (src.hasRemaining()) {
+        written += channel.write(src);
+      }
+      return written;
+    });
+  }
+
+  /**
+   * Uses the classic setters, which junixsocket maps to the native options.
+   */
+  @Override
+  <T> void setOption(SocketOption<T> name, T value) throws IOException {
+    AFUNIXSocket socket = ensureInitialized();
+    if (name == StandardSocketOptions.SO_SNDBUF) {
+      socket.setSendBufferSize((Integer) value);
+    } else if (name == StandardSocketOptions.SO_RCVBUF) {
+      socket.setReceiveBufferSize((Integer) value);
+    } else if (name == StandardSocketOptions.SO_LINGER) {
+      int linger = (Integer) value;
+      socket.setSoLinger(linger >= 0, Math.max(linger, 0));
+    } else {
+      throw new UnsupportedOperationException("'" + name + "' not supported");
+    }
+  }
+
+  @Override
+  <T> T getOption(SocketOption<T> name) throws IOException {
+    AFUNIXSocket socket = ensureInitialized();
+    Object value;
+    if (name == StandardSocketOptions.SO_SNDBUF) {
+      value = socket.getSendBufferSize();
+    } else if (name == StandardSocketOptions.SO_RCVBUF) {
+      value = socket.getReceiveBufferSize();
+    } else if (name == StandardSocketOptions.SO_LINGER) {
+      value = socket.getSoLinger();
+    } else {
+      throw new UnsupportedOperationException("'" + name + "' not supported");
+    }
+    return name.type().cast(value);
+  }
+
+  @Override
+  int available() throws IOException {
+    return ensureInitialized().getInputStream().available();
+  }
+
+  @Override
+  void setSoTimeout(int timeout) throws IOException {
+    ensureInitialized().setSoTimeout(timeout);
+    soTimeout = timeout;
+  }
+
+  @Override
+  int getSoTimeout() throws IOException {
+    return ensureInitialized().getSoTimeout();
+  }
+
+  @Override
+  boolean isAlive() {
+    if (socket == null || socket.isClosed()) {
+      return false;
+    }
+    try {
+      int timeout = socket.getSoTimeout();
+      try {
+        socket.setSoTimeout(1);
+        socket.getInputStream().read();
+        // either end of stream or unexpected data
+        return false;
+      } catch (SocketTimeoutException e) {
+        return true;
+      } finally {
+        socket.setSoTimeout(timeout);
+      }
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  @Override
+  void shutdownInput() throws IOException {
+    ensureInitialized().shutdownInput();
+  }
+
+  @Override
+  void shutdownOutput() throws IOException {
+    ensureInitialized().shutdownOutput();
+  }
+
+  @Override
+  boolean isInputShutdown() {
+    return socket != null && socket.isInputShutdown();
+  }
+
+  @Override
+  boolean isOutputShutdown() {
+    return socket != null && socket.isOutputShutdown();
+  }
+
+  @Override
+  boolean isConnected() {
+    return socket != null && socket.isConnected();
+  }
+
+  @Override
+  boolean isClosed() {
+    return socket != null && socket.isClosed();
+  }
+
+  @Override
+  void close() throws IOException {
+    if (socket != null) {
+      socket.close();
+    }
+  }
+
+  private AFUNIXSocket ensureInitialized() throws SocketException {
+    if (socket == null) {
+      throw new SocketException("Socket is not initialized");
+    }
+    return socket;
+  }
+
+  private void ensureOutputOpen() throws SocketException {
+    if (isOutputShutdown()) {
+      throw new SocketException("Socket output is shutdown");
+    }
+  }
+
+  private class ChannelOutputStream extends OutputStream {
+
+    private final byte[] single = new byte[1];
+
+    @Override
+    public void write(int b) throws IOException {
+      single[0] = (byte) b;
+      write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      Objects.checkFromIndexSize(off, len, b.length);
+      JunixsocketUnixSocketTransport.this.write(ByteBuffer.wrap(b, off, len));
+    }
+
+    @Override
+    public void close() throws IOException {
+      JunixsocketUnixSocketTransport.this.close();
+    }
+  }
+}
@@ -8,7 +8,9 @@ import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,9 +26,17 @@ public class NamedPipeJniSocket extends FileSocket {
 
   private static final Logger log = LoggerFactory.getLogger(NamedPipeJniSocket.class);
 
+  /**
+   * Retries for 10 s, waits up to 500 ms for a busy pipe and backs off from 50 ms while the pipe doesn't exist.
+   */
+  static final ConnectRetryPolicy DEFAULT_CONNECT_RETRY_POLICY = new ConnectRetryPolicy(
+      Duration.ofSeconds(10), Duration.ofMillis(50), Duration.ofMillis(500), ConnectRetryPolicy.DEFAULT_JITTER);
+
   private WinNT.HANDLE handle;
   private boolean connected = false;
   private boolean closed = false;
+  // a lock instead of synchronized, so that virtual threads don't pin their carrier
+  private final ReentrantLock closeLock = new ReentrantLock();
 
   private BufferedSource source;
   private BufferedSink sink;
@@ -45,36 +55,60 @@ public class NamedPipeJniSocket extends FileSocket {
     connect(socketPath);
   }
 
-  void connect(String socketPath) {
+  void connect(String socketPath) throws IOException {
     socketPath = socketPath.replace("/", "\\");
     log.debug("connect via '{}'...", socketPath);
 
-    handle = NamedPipeUtils.connect(socketPath, 10_000, 500, 50);
+    long startedAt = connectStart(socketPath);
+    try {
+      handle = NamedPipeUtils.connect(socketPath, getConnectRetryPolicy());
+    } catch (RuntimeException e) {
+      connectFailed(startedAt, new IOException(e.getMessage(), e));
+      throw e;
+    }
+    connectEnd(startedAt);
 
     connected = true;
     source = Okio.buffer(new NamedPipeSource(handle, ioTimeout));
     sink = Okio.buffer(new NamedPipeSink(handle, ioTimeout));
   }
 
+  @Override
+  ConnectRetryPolicy defaultConnectRetryPolicy() {
+    return DEFAULT_CONNECT_RETRY_POLICY;
+  }
+
   @Override
   public InputStream getInputStream() throws IOException {
     ensureOpen();
-    return source.inputStream();
+    return listening(source.inputStream());
   }
 
   @Override
   public OutputStream getOutputStream() throws IOException {
     ensureOpen();
-    return sink.outputStream();
+    return coalescing(listening(sink.outputStream()));
   }
 
   @Override
-  public synchronized void close() throws IOException {
+  public void close() throws IOException {
+    closeLock.lock();
+    try {
+      closeHandle();
+    } finally {
+      closeLock.unlock();
+    }
+  }
+
+  private void closeHandle() throws IOException {
     if (closed) {
       return;
     }
     log.debug("closing handle {}...", handle);
     try {
+      if (connected) {
+        flushCoalescedQuietly();
+      }
       if (handle != null && !INVALID_HANDLE_VALUE.equals(handle)) {
         // Cancel any pending read/write before closing to avoid CloseHandle() hang
         ExtendedKernel32.INSTANCE.CancelIoEx(handle, null);
@@ -94,6 +128,7 @@ public class NamedPipeJniSocket extends FileSocket {
       }
       closed = true;
       connected = false;
+      closed();
     }
   }
 
@@ -14,6 +14,7 @@ import java.nio.channels.Channels;
 import java.nio.file.FileSystemException;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class NamedPipeSocket extends FileSocket {
@@ -36,42 +37,50 @@ public class NamedPipeSocket extends FileSocket {
     String socketPath = decodeHostname(address);
     log.debug("connect via '{}'...", socketPath);
 
+    long connectStartedAt = connectStart(socketPath);
     socketPath = socketPath.replace("/", "\\\\");
 
-    long startedAt = System.currentTimeMillis();
-    timeout = Math.max(timeout, 10_000);
-    while (true) {
-      try {
-        channel = new AsynchronousFileByteChannel(
-            AsynchronousFileChannel.open(
-                Paths.get(socketPath),
-                StandardOpenOption.READ,
-                StandardOpenOption.WRITE
-            )
-        );
-        break;
-      }
-      catch (FileSystemException e) {
-        if (System.currentTimeMillis() - startedAt >= timeout) {
-          throw new RuntimeException(e);
-        }
-        else {
-          // requires a bit more code and the net.java.dev.jna:jna dependency
-//          Kernel32.INSTANCE.WaitNamedPipe(socketFileName, 100);
-          try {
-            Thread.sleep(100);
-          }
-          catch (InterruptedException ignored) {
-          }
-        }
+    String pipePath = socketPath;
+    try {
+      // WaitNamedPipe would return as soon as an instance is free, but requires the JNA dependency
+      getConnectRetryPolicy(timeout).connect(() -> channel = new AsynchronousFileByteChannel(
+          AsynchronousFileChannel.open(
+              Paths.get(pipePath),
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE
+          )
+      ));
+    }
+    catch (IOException e) {
+      connectFailed(connectStartedAt, e);
+      if (e instanceof FileSystemException) {
+        throw new RuntimeException(e);
       }
+      throw e;
     }
+    connectEnd(connectStartedAt);
+  }
+
+  @Override
+  ConnectRetryPolicy defaultConnectRetryPolicy() {
+    return ConnectRetryPolicy.DEFAULT;
+  }
+
+  /**
+   * Waits for a busy pipe at least as long as the connect timeout, but never shorter than {@link ConnectRetryPolicy#DEFAULT}.
+   */
+  @Override
+  ConnectRetryPolicy defaultConnectRetryPolicy(int connectTimeout) {
+    Duration timeout = Duration.ofMillis(connectTimeout);
+    return timeout.compareTo(ConnectRetryPolicy.DEFAULT.getTimeout()) > 0
+           ? ConnectRetryPolicy.retryFor(timeout)
+           : ConnectRetryPolicy.DEFAULT;
   }
 
   @Override
   public InputStream getInputStream() {
     if (inputStream == null) {
-      this.inputStream = Channels.newInputStream(channel);
+      this.inputStream = listening(Channels.newInputStream(channel));
     }
     return inputStream;
   }
@@ -79,7 +88,7 @@ public class NamedPipeSocket extends FileSocket {
   @Override
   public OutputStream getOutputStream() {
     if (outputStream == null) {
-      this.outputStream = Channels.newOutputStream(channel);
+      this.outputStream = coalescing(listening(Channels.newOutputStream(channel)));
     }
     return outputStream;
   }
@@ -95,14 +104,19 @@ public class NamedPipeSocket extends FileSocket {
       // if compareAndSet() returns false closed was already true
       return;
     }
-    if (channel != null) {
-      channel.close();
-    }
-    if (inputStream != null) {
-      inputStream.close();
-    }
-    if (outputStream != null) {
-      outputStream.close();
+    try {
+      flushCoalescedQuietly();
+      if (channel != null) {
+        channel.close();
+      }
+      if (inputStream != null) {
+        inputStream.close();
+      }
+      if (outputStream != null) {
+        outputStream.close();
+      }
+    } finally {
+      closed();
     }
   }
 }
@@ -6,6 +6,6 @@ public class NamedPipeSocketFactory extends FileSocketFactory {
 
   @Override
   public Socket createSocket() {
-    return new NamedPipeSocket();
+    return configured(new NamedPipeSocket());
   }
 }
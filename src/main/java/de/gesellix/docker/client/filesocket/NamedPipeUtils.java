@@ -2,6 +2,12 @@ package de.gesellix.docker.client.filesocket;
 
 import static com.sun.jna.platform.win32.WinBase.INVALID_HANDLE_VALUE;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,14 +25,29 @@ public final class NamedPipeUtils {
   private NamedPipeUtils() {
   }
 
+  /**
+   * @deprecated use {@link #connect(String, ConnectRetryPolicy)}, the busy wait cap is replaced by the policy's maximum delay
+   */
+  @Deprecated
   public static WinNT.HANDLE connect(
       String path,
       int totalTimeoutMs,        // z.B. 15000
       int busyWaitCapMs,         // z.B. 2000 (max für einzelne WaitNamedPipe)
       int notFoundBaseSleepMs    // z.B. 50
   ) {
-    final long deadline = System.nanoTime() + (long) totalTimeoutMs * 1_000_000L;
-    int notFoundBackoff = notFoundBaseSleepMs;
+    return connect(path, new ConnectRetryPolicy(
+        Duration.ofMillis(totalTimeoutMs),
+        Duration.ofMillis(notFoundBaseSleepMs),
+        Duration.ofMillis(Math.max(notFoundBaseSleepMs, busyWaitCapMs)),
+        ConnectRetryPolicy.DEFAULT_JITTER));
+  }
+
+  /**
+   * Opens the pipe for overlapped I/O. While all pipe instances are busy, it waits via <code>WaitNamedPipe</code>
+   * for up to the policy's maximum delay per attempt, a missing pipe is retried after the policy's backoff.
+   */
+  public static WinNT.HANDLE connect(String path, ConnectRetryPolicy policy) {
+    ConnectRetryPolicy.Attempts attempts = policy.start();
     WinNT.HANDLE h;
 
     while (true) {
@@ -47,45 +68,42 @@ public final class NamedPipeUtils {
       }
 
       int err = Kernel32.INSTANCE.GetLastError();
-      long remainingMs = Math.max(0, (deadline - System.nanoTime()) / 1_000_000L);
-      if (remainingMs == 0) {
+      IOException failure;
+      if (err == WinError.ERROR_PIPE_BUSY) {
+        failure = new FileSystemException(path, null, "All pipe instances are busy");
+      } else if (err == WinError.ERROR_FILE_NOT_FOUND) {
+        failure = new NoSuchFileException(path);
+      } else {
+        // Andere Fehler → sofort abbrechen
+        throw new RuntimeException("CreateFile failed: " + err);
+      }
+      if (!attempts.shouldRetry(failure)) {
         log.debug("Connect timed out; last error=" + err);
-        throw new RuntimeException("Connect timed out; last error=" + err);
+        throw new RuntimeException("Connect timed out; last error=" + err, failure);
       }
 
       if (err == WinError.ERROR_PIPE_BUSY) {
         log.debug("Pipe busy; last error=" + err);
-        // Warte, aber maximal busyWaitCapMs und nie länger als verbleibende Zeit
-        int to = (int) Math.min(remainingMs, busyWaitCapMs);
+        // returns as soon as an instance is free, never waits longer than the remaining time
+        int to = (int) Math.max(1, Math.min(attempts.remainingNanos() / 1_000_000L, policy.getMaxDelay().toMillis()));
         boolean ok = Kernel32.INSTANCE.WaitNamedPipe(path, to);
         if (!ok) {
           int e2 = Kernel32.INSTANCE.GetLastError(); // z.B. ERROR_SEM_TIMEOUT
-          if (e2 == WinError.ERROR_SEM_TIMEOUT && (deadline - System.nanoTime()) > 0) {
-            log.debug("Retry wait; last error=" + err);
-            continue; // Restzeit vorhanden → nochmal versuchen
+          if (e2 != WinError.ERROR_SEM_TIMEOUT && e2 != WinError.ERROR_FILE_NOT_FOUND) {
+            throw new RuntimeException("WaitNamedPipe failed: " + e2);
           }
-          throw new RuntimeException("WaitNamedPipe failed: " + e2);
         }
         // danach erneut versuchen
         continue;
       }
 
-      if (err == WinError.ERROR_FILE_NOT_FOUND) {
-        log.debug("File not found; last error=" + err);
-        // Server hat Pipe noch nicht erstellt → kurzer, exponentieller Backoff
-        int sleepMs = Math.min(notFoundBackoff, (int) remainingMs);
-        try {
-          Thread.sleep(sleepMs);
-        } catch (InterruptedException ie) {
-          Thread.currentThread().interrupt();
-          throw new RuntimeException("Interrupted while waiting for pipe", ie);
-        }
-        notFoundBackoff = Math.min(notFoundBackoff * 2, 250); // Deckel bei 250ms
-        continue;
+      log.debug("File not found; last error=" + err);
+      // Server hat Pipe noch nicht erstellt → Backoff der Policy
+      try {
+        attempts.sleep();
+      } catch (InterruptedIOException ie) {
+        throw new RuntimeException("Interrupted while waiting for pipe", ie);
       }
-
-      // Andere Fehler → sofort abbrechen
-      throw new RuntimeException("CreateFile failed: " + err);
     }
   }
 
@@ -0,0 +1,198 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a number of already connected transports per socket path,
+ * so that the first requests after startup don't pay for creating and connecting a socket.
+ * <p>
+ * Idle transports are refilled and checked in the background. Transports closed by the daemon are evicted.
+ * Socket paths which haven't been used for the idle timeout are no longer kept warm.
+ */
+class PrewarmedUnixSocketPool implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(PrewarmedUnixSocketPool.class);
+
+  static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+  static final long MAINTENANCE_INTERVAL_MILLIS = 1_000;
+  static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+
+  private final UnixSocketBackend backend;
+  private final int connectionsPerPath;
+  private final long idleTimeoutNanos;
+  private final Map<String, Deque<UnixSocketTransport>> idle = new ConcurrentHashMap<>();
+  // System.nanoTime() of the last prewarm() or take() per socket path
+  private final Map<String, Long> lastUsed = new ConcurrentHashMap<>();
+  private final Map<String, AtomicBoolean> refilling = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService executor;
+  private volatile boolean closed = false;
+
+  PrewarmedUnixSocketPool(UnixSocketBackend backend, int connectionsPerPath) {
+    this(backend, connectionsPerPath, DEFAULT_IDLE_TIMEOUT);
+  }
+
+  PrewarmedUnixSocketPool(UnixSocketBackend backend, int connectionsPerPath, Duration idleTimeout) {
+    if (connectionsPerPath <= 0) {
+      throw new IllegalArgumentException("connectionsPerPath must be positive");
+    }
+    if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+      throw new IllegalArgumentException("idleTimeout must be positive");
+    }
+    this.backend = backend;
+    this.connectionsPerPath = connectionsPerPath;
+    this.idleTimeoutNanos = idleTimeout.toNanos();
+    this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "unix-socket-prewarm");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::maintain, MAINTENANCE_INTERVAL_MILLIS, MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Starts keeping connections to the socket path, without waiting for them to be established.
+   */
+  void prewarm(String socketPath) {
+    lastUsed.put(socketPath, System.nanoTime());
+    idlePerPath(socketPath);
+    scheduleRefill(socketPath);
+  }
+
+  /**
+   * @return a connected transport or <code>null</code> when none is available.
+   * The socket path will be kept warm from now on, until it's idle for the idle timeout.
+   */
+  UnixSocketTransport take(String socketPath) {
+    lastUsed.put(socketPath, System.nanoTime());
+    Deque<UnixSocketTransport> transports = idlePerPath(socketPath);
+    UnixSocketTransport transport;
+    while ((transport = transports.pollFirst()) != null) {
+      // only checks without blocking, the full check is left to the background maintenance
+      if (!isPeerClosed(transport)) {
+        break;
+      }
+      closeQuietly(transport);
+    }
+    scheduleRefill(socketPath);
+    return transport;
+  }
+
+  int idleCount(String socketPath) {
+    Deque<UnixSocketTransport> transports = idle.get(socketPath);
+    return transports == null ? 0 : transports.size();
+  }
+
+  private Deque<UnixSocketTransport> idlePerPath(String socketPath) {
+    return idle.computeIfAbsent(socketPath, path -> new ConcurrentLinkedDeque<>());
+  }
+
+  private void scheduleRefill(String socketPath) {
+    AtomicBoolean scheduled = refilling.computeIfAbsent(socketPath, path -> new AtomicBoolean());
+    if (!closed && scheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(() -> {
+          scheduled.set(false);
+          refill(socketPath);
+        });
+      } catch (RuntimeException e) {
+        scheduled.set(false);
+        log.debug("Refill of '{}' rejected", socketPath, e);
+      }
+    }
+  }
+
+  private void maintain() {
+    long now = System.nanoTime();
+    for (Map.Entry<String, Deque<UnixSocketTransport>> entry : idle.entrySet()) {
+      Long used = lastUsed.get(entry.getKey());
+      if (used == null || now - used > idleTimeoutNanos) {
+        expire(entry.getKey());
+        continue;
+      }
+      evictDead(entry.getValue());
+      refill(entry.getKey());
+    }
+  }
+
+  private void expire(String socketPath) {
+    log.debug("'{}' is no longer used, closing its idle connections", socketPath);
+    lastUsed.remove(socketPath);
+    Deque<UnixSocketTransport> transports = idle.remove(socketPath);
+    if (transports != null) {
+      UnixSocketTransport transport;
+      while ((transport = transports.pollFirst()) != null) {
+        closeQuietly(transport);
+      }
+    }
+  }
+
+  private void evictDead(Deque<UnixSocketTransport> transports) {
+    for (UnixSocketTransport transport : transports) {
+      if (!transport.isAlive() && transports.remove(transport)) {
+        log.debug("evicting closed connection");
+        closeQuietly(transport);
+      }
+    }
+  }
+
+  private void refill(String socketPath) {
+    Deque<UnixSocketTransport> transports = idlePerPath(socketPath);
+    while (!closed && transports.size() < connectionsPerPath) {
+      UnixSocketTransport transport = backend.newTransport();
+      try {
+        transport.connect(FileSocketAddress.forSocketPath(socketPath), CONNECT_TIMEOUT_MILLIS);
+      } catch (IOException | RuntimeException e) {
+        closeQuietly(transport);
+        log.debug("prewarming '{}' failed, will retry: {}", socketPath, e.getMessage());
+        return;
+      }
+      transports.addLast(transport);
+      if (closed && transports.remove(transport)) {
+        closeQuietly(transport);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    executor.shutdownNow();
+    for (Deque<UnixSocketTransport> transports : idle.values()) {
+      UnixSocketTransport transport;
+      while ((transport = transports.pollFirst()) != null) {
+        closeQuietly(transport);
+      }
+    }
+  }
+
+  private static boolean isPeerClosed(UnixSocketTransport transport) {
+    if (transport.isClosed() || !transport.isConnected()) {
+      return true;
+    }
+    try {
+      return transport.isPeerClosed();
+    } catch (IOException e) {
+      return true;
+    }
+  }
+
+  private static void closeQuietly(UnixSocketTransport transport) {
+    try {
+      transport.close();
+    } catch (IOException ignored) {
+    }
+  }
+}
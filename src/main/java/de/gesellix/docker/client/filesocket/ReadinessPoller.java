@@ -0,0 +1,184 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lets virtual threads wait for channel readiness without pinning their carrier thread.
+ * <p>
+ * {@link java.nio.channels.Selector#select(long)} holds monitors while waiting, which pins virtual threads
+ * on Java 21 up to 23. Instead, waiting threads are parked via {@link LockSupport}, which unmounts virtual threads,
+ * and a single shared {@link SelectorLoop} unparks them once their channel is ready.
+ * Should that loop shut down, waiting threads fail with an {@link IOException} and new sockets use a new loop.
+ */
+final class ReadinessPoller {
+
+  private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+  private static final ReentrantLock sharedLock = new ReentrantLock();
+  private static volatile ReadinessPoller shared = null;
+
+  private final SelectorLoop loop;
+
+  ReadinessPoller(SelectorLoop loop) {
+    this.loop = loop;
+  }
+
+  static ReadinessPoller shared() throws IOException {
+    ReadinessPoller poller = shared;
+    if (poller == null || poller.loop.isClosed()) {
+      sharedLock.lock();
+      try {
+        if (shared == null || shared.loop.isClosed()) {
+          shared = new ReadinessPoller(new SelectorLoop("unix-socket-readiness-poller"));
+        }
+        poller = shared;
+      } finally {
+        sharedLock.unlock();
+      }
+    }
+    return poller;
+  }
+
+  /**
+   * @return whether the thread is a virtual thread, always <code>false</code> before Java 21.
+   */
+  static boolean isVirtual(Thread thread) {
+    if (IS_VIRTUAL == null) {
+      return false;
+    }
+    try {
+      return (boolean) IS_VIRTUAL.invokeExact(thread);
+    } catch (Throwable t) {
+      return false;
+    }
+  }
+
+  private static MethodHandle findIsVirtual() {
+    try {
+      return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  Registration newRegistration(SelectableChannel channel) {
+    return new Registration(channel);
+  }
+
+  /**
+   * Readiness interest of a single channel, with at most one waiting reader and one waiting writer.
+   */
+  final class Registration implements SelectorLoop.ReadyHandler {
+
+    private final SelectableChannel channel;
+    private volatile Thread reader = null;
+    private volatile Thread writer = null;
+    // only accessed on the loop thread
+    private SelectionKey key = null;
+
+    private Registration(SelectableChannel channel) {
+      this.channel = channel;
+    }
+
+    /**
+     * Parks the current thread until the channel might be ready for the given operation.
+     * Callers have to retry their operation and check for timeouts, because wakeups may be spurious.
+     *
+     * @param op       {@link SelectionKey#OP_READ} or {@link SelectionKey#OP_WRITE}
+     * @param deadline {@link System#nanoTime()} based, <code>0</code> waits without a timeout.
+     * @throws IOException if the poller's loop has shut down
+     */
+    void await(int op, long deadline) throws IOException {
+      Thread current = Thread.currentThread();
+      if (op == SelectionKey.OP_READ) {
+        reader = current;
+      } else {
+        writer = current;
+      }
+      try {
+        try {
+          loop.execute(() -> addInterest(op));
+        } catch (IllegalStateException e) {
+          throw loopClosedException(e);
+        }
+        if (deadline == 0) {
+          LockSupport.park(this);
+        } else {
+          long remaining = deadline - System.nanoTime();
+          if (remaining > 0) {
+            LockSupport.parkNanos(this, remaining);
+          }
+        }
+        if (loop.isClosed()) {
+          throw loopClosedException(null);
+        }
+      } finally {
+        if (op == SelectionKey.OP_READ) {
+          reader = null;
+        } else {
+          writer = null;
+        }
+      }
+    }
+
+    /**
+     * Wakes up waiting threads, e.g. after the channel has been closed.
+     */
+    void wakeup() {
+      unpark(reader);
+      unpark(writer);
+      // lets the selector release a closed channel
+      loop.wakeup();
+    }
+
+    private void addInterest(int op) {
+      try {
+        if (key == null) {
+          key = loop.registerInLoop(channel, op, this);
+        } else {
+          key.interestOps(key.interestOps() | op);
+        }
+      } catch (ClosedChannelException | CancelledKeyException | ClosedSelectorException e) {
+        unpark(reader);
+        unpark(writer);
+      }
+    }
+
+    @Override
+    public void loopClosed() {
+      unpark(reader);
+      unpark(writer);
+    }
+
+    @Override
+    public void ready(SelectionKey key) {
+      int readyOps = key.readyOps();
+      key.interestOps(key.interestOps() & ~readyOps);
+      if ((readyOps & SelectionKey.OP_READ) != 0) {
+        unpark(reader);
+      }
+      if ((readyOps & SelectionKey.OP_WRITE) != 0) {
+        unpark(writer);
+      }
+    }
+
+    private void unpark(Thread thread) {
+      if (thread != null) {
+        LockSupport.unpark(thread);
+      }
+    }
+
+    private IOException loopClosedException(IllegalStateException cause) {
+      return new IOException("The readiness poller has shut down", cause);
+    }
+  }
+}
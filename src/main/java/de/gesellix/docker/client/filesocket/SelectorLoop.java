@@ -0,0 +1,223 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single thread waiting on a {@link Selector} and dispatching readiness to the {@link ReadyHandler}
+ * attached to each {@link SelectionKey}. Handlers run on the loop thread and must not block.
+ * <p>
+ * The loop shuts down after {@link #MAX_SELECT_FAILURES} consecutive failures of <code>select()</code>.
+ * Tasks still queued when the loop has been closed run once the selector is closed,
+ * so that pending registrations fail with a {@link ClosedSelectorException}.
+ */
+final class SelectorLoop implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(SelectorLoop.class);
+
+  static final int READ_BUFFER_SIZE = 64 * 1024;
+  static final int MAX_SELECT_FAILURES = 8;
+  private static final long INITIAL_SELECT_BACKOFF_MILLIS = 10;
+  private static final long MAX_SELECT_BACKOFF_MILLIS = 500;
+
+  interface ReadyHandler {
+
+    void ready(SelectionKey key);
+
+    /**
+     * Called on the loop thread when the loop shuts down with the handler's key still registered.
+     */
+    default void loopClosed() {
+    }
+  }
+
+  private final Selector selector;
+  private final Thread thread;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+  private volatile boolean closed = false;
+
+  SelectorLoop(String name) throws IOException {
+    this(name, Selector.open());
+  }
+
+  SelectorLoop(String name, Selector selector) {
+    this.selector = selector;
+    this.thread = new Thread(this::run, name);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * A buffer to be shared by the handlers of this loop, only valid on the loop thread.
+   */
+  ByteBuffer readBuffer() {
+    return readBuffer;
+  }
+
+  boolean inLoop() {
+    return Thread.currentThread() == thread;
+  }
+
+  /**
+   * @throws IllegalStateException if the loop has been closed
+   */
+  void execute(Runnable task) {
+    if (closed) {
+      throw new IllegalStateException("SelectorLoop is closed");
+    }
+    tasks.add(task);
+    if (closed && tasks.remove(task)) {
+      // closed concurrently, the queue might already have been drained
+      throw new IllegalStateException("SelectorLoop is closed");
+    }
+    if (!inLoop()) {
+      selector.wakeup();
+    }
+  }
+
+  void wakeup() {
+    selector.wakeup();
+  }
+
+  CompletableFuture<SelectionKey> register(SelectableChannel channel, int ops, ReadyHandler handler) {
+    CompletableFuture<SelectionKey> registration = new CompletableFuture<>();
+    execute(() -> {
+      try {
+        if (closed) {
+          throw new ClosedSelectorException();
+        }
+        registration.complete(channel.register(selector, ops, handler));
+      } catch (ClosedChannelException | RuntimeException e) {
+        registration.completeExceptionally(e);
+      }
+    });
+    return registration;
+  }
+
+  /**
+   * Like {@link #register(SelectableChannel, int, ReadyHandler)}, but only to be called by tasks running on the loop thread.
+   */
+  SelectionKey registerInLoop(SelectableChannel channel, int ops, ReadyHandler handler) throws ClosedChannelException {
+    if (!inLoop()) {
+      throw new IllegalStateException("Not on the loop thread");
+    }
+    if (closed) {
+      throw new ClosedSelectorException();
+    }
+    return channel.register(selector, ops, handler);
+  }
+
+  int registrations() {
+    try {
+      return selector.keys().size();
+    } catch (ClosedSelectorException e) {
+      return 0;
+    }
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  private void run() {
+    int selectFailures = 0;
+    while (!closed) {
+      try {
+        selector.select();
+        selectFailures = 0;
+      } catch (IOException e) {
+        selectFailures++;
+        if (selectFailures >= MAX_SELECT_FAILURES) {
+          log.error("select failed {} times in a row, shutting down the loop", selectFailures, e);
+          closed = true;
+          break;
+        }
+        log.warn("select failed, retrying", e);
+        if (!backOff(selectFailures)) {
+          closed = true;
+          break;
+        }
+        continue;
+      }
+      Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+      while (selectedKeys.hasNext()) {
+        SelectionKey key = selectedKeys.next();
+        selectedKeys.remove();
+        if (key.isValid()) {
+          dispatch(key);
+        }
+      }
+      runTasks();
+    }
+    for (SelectionKey key : selector.keys()) {
+      dispatchClosed(key);
+    }
+    try {
+      selector.close();
+    } catch (IOException ignored) {
+    }
+    // registrations and channel operations of the remaining tasks fail on the closed selector
+    runTasks();
+  }
+
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      try {
+        task.run();
+      } catch (Throwable t) {
+        log.warn("task failed", t);
+      }
+    }
+  }
+
+  /**
+   * @return <code>false</code> if interrupted
+   */
+  private boolean backOff(int selectFailures) {
+    long delay = Math.min(INITIAL_SELECT_BACKOFF_MILLIS << (selectFailures - 1), MAX_SELECT_BACKOFF_MILLIS);
+    try {
+      Thread.sleep(delay);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private void dispatchClosed(SelectionKey key) {
+    try {
+      ((ReadyHandler) key.attachment()).loopClosed();
+    } catch (Throwable t) {
+      log.warn("handler failed", t);
+    }
+  }
+
+  private void dispatch(SelectionKey key) {
+    try {
+      ((ReadyHandler) key.attachment()).ready(key);
+    } catch (Throwable t) {
+      log.warn("handler failed", t);
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    selector.wakeup();
+  }
+}
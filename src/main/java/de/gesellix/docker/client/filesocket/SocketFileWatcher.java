@@ -0,0 +1,131 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retries connects while the daemon's socket file is missing or not accepting connections, e.g. during a daemon restart.
+ * <p>
+ * Instead of sleeping for the {@link ConnectRetryPolicy}'s delay, the socket's directory is watched via a {@link WatchService}
+ * (inotify on Linux), so that a new socket file triggers the next attempt immediately.
+ * The daemon binds the socket file before listening, so the policy's backoff restarts after each change.
+ * Without file system events, e.g. with a polling watch service or a missing directory, attempts are spaced by the policy alone.
+ */
+final class SocketFileWatcher {
+
+  private static final Logger log = LoggerFactory.getLogger(SocketFileWatcher.class);
+
+  private SocketFileWatcher() {
+  }
+
+  /**
+   * @throws IOException the last connect failure once the policy's deadline has passed, or any failure which waiting can't fix
+   */
+  static void connect(Path socketFile, ConnectRetryPolicy policy, ConnectRetryPolicy.Attempt attempt) throws IOException {
+    ConnectRetryPolicy.Attempts attempts = policy.start();
+    try {
+      attempt.connect();
+      return;
+    } catch (IOException e) {
+      if (!attempts.shouldRetry(e) || !isRetryable(socketFile)) {
+        throw e;
+      }
+      log.debug("waiting for '{}' to accept connections: {}", socketFile, e.getMessage());
+    }
+
+    Path directory = socketFile.toAbsolutePath().getParent();
+    Path fileName = socketFile.getFileName();
+    WatchService watcher = watch(directory);
+    try {
+      while (true) {
+        if (awaitChange(watcher, fileName, attempts.nextDelayMillis())) {
+          attempts.resetBackoff();
+        }
+        // also covers a socket file created before the watch has been registered
+        try {
+          attempt.connect();
+          return;
+        } catch (IOException e) {
+          if (!attempts.shouldRetry(e) || !isRetryable(socketFile)) {
+            throw e;
+          }
+        }
+      }
+    } finally {
+      if (watcher != null) {
+        watcher.close();
+      }
+    }
+  }
+
+  /**
+   * A socket file without write permission won't become connectable by waiting.
+   */
+  static boolean isRetryable(Path socketFile) {
+    return !Files.exists(socketFile) || Files.isWritable(socketFile);
+  }
+
+  /**
+   * @return <code>null</code> when the directory can't be watched, e.g. because it doesn't exist yet.
+   */
+  private static WatchService watch(Path directory) {
+    if (directory == null) {
+      return null;
+    }
+    WatchService watcher = null;
+    try {
+      watcher = directory.getFileSystem().newWatchService();
+      directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+      return watcher;
+    } catch (IOException | UnsupportedOperationException e) {
+      log.debug("can't watch '{}', falling back to polling", directory, e);
+      if (watcher != null) {
+        try {
+          watcher.close();
+        } catch (IOException ignored) {
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * @return whether the socket file has been created
+   */
+  private static boolean awaitChange(WatchService watcher, Path fileName, long timeoutMillis) throws IOException {
+    try {
+      if (watcher == null) {
+        Thread.sleep(timeoutMillis);
+        return false;
+      }
+      boolean changed = false;
+      WatchKey key = watcher.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+      while (key != null) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+            changed = true;
+          }
+        }
+        key.reset();
+        key = watcher.poll();
+      }
+      return changed;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the socket file");
+    } catch (ClosedWatchServiceException e) {
+      return false;
+    }
+  }
+}
@@ -1,6 +1,5 @@
 package de.gesellix.docker.client.filesocket;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -8,18 +7,62 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
-import org.newsclub.net.unix.AFUNIXSocket;
-import org.newsclub.net.unix.AFUNIXSocketAddress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import okio.Buffer;
+import okio.Sink;
+import okio.Source;
+import okio.Timeout;
+
 public class UnixSocket extends FileSocket {
 
   private static final Logger log = LoggerFactory.getLogger(UnixSocket.class);
 
-  private AFUNIXSocket socket = null;
+  private final PrewarmedUnixSocketPool pool;
+  // a lock instead of synchronized, so that virtual threads don't pin their carrier
+  private final ReentrantLock closeLock = new ReentrantLock();
+  private UnixSocketTransport transport;
+  // options set before connect, applied once connected
+  private final Map<SocketOption<?>, Object> pendingOptions = new ConcurrentHashMap<>();
+  private volatile int pendingSoTimeout = -1;
+  private volatile int writeTimeout = 0;
+  private volatile InetSocketAddress remoteAddress = null;
+  private volatile boolean gatheringWrites = false;
+  private GatheringOutputStream gatheringOutputStream = null;
+
+  public UnixSocket() {
+    this(UnixSocketBackend.preferred());
+  }
+
+  public UnixSocket(UnixSocketBackend backend) {
+    this(backend, null);
+  }
+
+  UnixSocket(UnixSocketBackend backend, PrewarmedUnixSocketPool pool) {
+    this.transport = backend.newTransport();
+    this.pool = pool;
+  }
 
+  /**
+   * The timeout only applies to the connect, reads wait according to the {@link #setSoTimeout(int) SO_TIMEOUT}
+   * and writes according to the {@link #setWriteTimeout(int) write timeout}, which both default to no timeout.
+   */
   @Override
   public void connect(SocketAddress endpoint, int timeout) throws IOException {
     if (!(endpoint instanceof InetSocketAddress)) {
@@ -28,57 +71,878 @@ public class UnixSocket extends FileSocket {
 
     InetSocketAddress inetSocketAddress = (InetSocketAddress) endpoint;
     InetAddress address = inetSocketAddress.getAddress();
-    String socketPath = decodeHostname(address);
+    remoteAddress = inetSocketAddress;
+    FileSocketAddress socketAddress = resolveAddress(address);
+    String socketPath = socketAddress.getSocketPath();
     log.debug("connect via '{}'...", socketPath);
 
-    int socketTimeout = Math.max(timeout, 0);
-    File socketFile = new File(socketPath);
+    int connectTimeout = Math.max(timeout, 0);
+    ConnectRetryPolicy retryPolicy = getConnectRetryPolicy();
+    long startedAt = connectStart(socketPath);
+    try {
+      UnixSocketTransport prewarmed = pool != null ? pool.take(socketPath) : null;
+      if (prewarmed != null) {
+        log.debug("using prewarmed connection");
+        transport = prewarmed;
+      } else if (retryPolicy.isRetryEnabled()) {
+        SocketFileWatcher.connect(Paths.get(socketPath), retryPolicy, () -> transport.connect(socketAddress, connectTimeout));
+      } else {
+        transport.connect(socketAddress, connectTimeout);
+      }
+      applyPendingOptions();
+    } catch (IOException e) {
+      connectFailed(startedAt, e);
+      throw e;
+    }
+    connectEnd(startedAt);
+  }
+
+  private void applyPendingOptions() throws IOException {
+    for (Map.Entry<SocketOption<?>, Object> option : pendingOptions.entrySet()) {
+      setTransportOption(option.getKey(), option.getValue());
+    }
+    pendingOptions.clear();
+    transport.setSoTimeout(Math.max(pendingSoTimeout, 0));
+    transport.setWriteTimeout(writeTimeout);
+  }
 
-    socket = AFUNIXSocket.newInstance();
-    socket.connect(AFUNIXSocketAddress.of(socketFile), socketTimeout);
-    socket.setSoTimeout(socketTimeout);
+  @SuppressWarnings("unchecked")
+  private <T> void setTransportOption(SocketOption<T> name, Object value) throws IOException {
+    transport.setOption(name, (T) value);
   }
 
+  /**
+   * Supports {@link StandardSocketOptions#SO_SNDBUF}, {@link StandardSocketOptions#SO_RCVBUF} and {@link StandardSocketOptions#SO_LINGER}.
+   * Options set before <code>connect()</code> are applied once connected.
+   *
+   * @throws UnsupportedOperationException for other options, e.g. TCP specific ones
+   */
   @Override
-  public InputStream getInputStream() throws IOException {
-    if (socket == null) {
-      throw new SocketException("Socket is not initialized");
+  public <T> UnixSocket setOption(SocketOption<T> name, T value) throws IOException {
+    if (!UnixSocketTransport.SUPPORTED_OPTIONS.contains(name)) {
+      throw new UnsupportedOperationException("'" + name + "' not supported");
+    }
+    if (value == null) {
+      throw new IllegalArgumentException("Invalid value 'null'");
+    }
+    ensureOpen();
+    if (transport.isConnected()) {
+      transport.setOption(name, value);
+    } else {
+      pendingOptions.put(name, value);
+    }
+    return this;
+  }
+
+  /**
+   * @return the pending value before <code>connect()</code>, <code>null</code> if it hasn't been set
+   */
+  @Override
+  public <T> T getOption(SocketOption<T> name) throws IOException {
+    if (!UnixSocketTransport.SUPPORTED_OPTIONS.contains(name)) {
+      throw new UnsupportedOperationException("'" + name + "' not supported");
+    }
+    ensureOpen();
+    if (transport.isConnected()) {
+      return transport.getOption(name);
+    }
+    return name.type().cast(pendingOptions.get(name));
+  }
+
+  @Override
+  public Set<SocketOption<?>> supportedOptions() {
+    return UnixSocketTransport.SUPPORTED_OPTIONS;
+  }
+
+  /**
+   * Applies to reads of the streams and channels, set before <code>connect()</code> it's applied once connected.
+   */
+  @Override
+  public void setSoTimeout(int timeout) throws SocketException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("timeout < 0");
+    }
+    ensureOpen();
+    if (transport.isConnected()) {
+      try {
+        transport.setSoTimeout(timeout);
+      } catch (SocketException e) {
+        throw e;
+      } catch (IOException e) {
+        throw new SocketException(e.getMessage());
+      }
+    } else {
+      pendingSoTimeout = timeout;
+    }
+  }
+
+  @Override
+  public int getSoTimeout() throws SocketException {
+    ensureOpen();
+    if (transport.isConnected()) {
+      try {
+        return transport.getSoTimeout();
+      } catch (SocketException e) {
+        throw e;
+      } catch (IOException e) {
+        throw new SocketException(e.getMessage());
+      }
+    }
+    return Math.max(pendingSoTimeout, 0);
+  }
+
+  /**
+   * Limits the time writes to the streams and channels wait for the daemon to take more data, so that writes
+   * to a stuck daemon fail with a {@link java.net.SocketTimeoutException} instead of blocking the thread.
+   * The number of bytes sent by a timed out write is unknown, so the connection shouldn't be used anymore.
+   * With the junixsocket backend a write may take at most the timeout, the socket is closed when it passes.
+   *
+   * @param timeout milliseconds, <code>0</code> waits without a timeout
+   * @see UnixSocketFactory#setWriteTimeout(java.time.Duration)
+   */
+  public void setWriteTimeout(int timeout) throws SocketException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("timeout < 0");
+    }
+    ensureOpen();
+    writeTimeout = timeout;
+    if (transport.isConnected()) {
+      transport.setWriteTimeout(timeout);
+    }
+  }
+
+  public int getWriteTimeout() throws SocketException {
+    ensureOpen();
+    return writeTimeout;
+  }
+
+  @Override
+  public void setSendBufferSize(int size) throws SocketException {
+    if (size <= 0) {
+      throw new IllegalArgumentException("negative send size");
+    }
+    setIntOption(StandardSocketOptions.SO_SNDBUF, size);
+  }
+
+  @Override
+  public int getSendBufferSize() throws SocketException {
+    return getIntOption(StandardSocketOptions.SO_SNDBUF);
+  }
+
+  @Override
+  public void setReceiveBufferSize(int size) throws SocketException {
+    if (size <= 0) {
+      throw new IllegalArgumentException("invalid receive size");
+    }
+    setIntOption(StandardSocketOptions.SO_RCVBUF, size);
+  }
+
+  @Override
+  public int getReceiveBufferSize() throws SocketException {
+    return getIntOption(StandardSocketOptions.SO_RCVBUF);
+  }
+
+  @Override
+  public void setSoLinger(boolean on, int linger) throws SocketException {
+    if (on && linger < 0) {
+      throw new IllegalArgumentException("invalid value for SO_LINGER");
+    }
+    setIntOption(StandardSocketOptions.SO_LINGER, on ? Math.min(linger, 65535) : -1);
+  }
+
+  @Override
+  public int getSoLinger() throws SocketException {
+    return getIntOption(StandardSocketOptions.SO_LINGER);
+  }
+
+  private void setIntOption(SocketOption<Integer> name, int value) throws SocketException {
+    try {
+      setOption(name, value);
+    } catch (SocketException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new SocketException(e.getMessage());
+    }
+  }
+
+  /**
+   * @return <code>0</code> for a buffer size, or <code>-1</code> for SO_LINGER, before it has been set on an unconnected socket
+   */
+  private int getIntOption(SocketOption<Integer> name) throws SocketException {
+    try {
+      Integer value = getOption(name);
+      return value != null ? value : name == StandardSocketOptions.SO_LINGER ? -1 : 0;
+    } catch (SocketException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new SocketException(e.getMessage());
+    }
+  }
+
+  /**
+   * Unix domain sockets don't have keep-alive probes, the setting is accepted for compatibility but has no effect.
+   */
+  @Override
+  public void setKeepAlive(boolean on) throws SocketException {
+    ensureOpen();
+    log.debug("SO_KEEPALIVE doesn't apply to Unix domain sockets, ignoring it");
+  }
+
+  @Override
+  public boolean getKeepAlive() throws SocketException {
+    ensureOpen();
+    return false;
+  }
+
+  /**
+   * Unix domain sockets don't use Nagle's algorithm, the setting is accepted for compatibility but has no effect.
+   */
+  @Override
+  public void setTcpNoDelay(boolean on) throws SocketException {
+    ensureOpen();
+    log.debug("TCP_NODELAY doesn't apply to Unix domain sockets, ignoring it");
+  }
+
+  /**
+   * @return <code>true</code>, as writes are never delayed
+   */
+  @Override
+  public boolean getTcpNoDelay() throws SocketException {
+    ensureOpen();
+    return true;
+  }
+
+  /**
+   * @return the address passed to <code>connect()</code>, which encodes the socket path
+   */
+  @Override
+  public InetAddress getInetAddress() {
+    InetSocketAddress address = remoteAddress;
+    return address != null && isConnected() ? address.getAddress() : null;
+  }
+
+  @Override
+  public int getPort() {
+    InetSocketAddress address = remoteAddress;
+    return address != null && isConnected() ? address.getPort() : 0;
+  }
+
+  @Override
+  public SocketAddress getRemoteSocketAddress() {
+    return isConnected() ? remoteAddress : null;
+  }
+
+  /**
+   * The client side of a Unix domain socket is unnamed, the loopback address stands in for it.
+   */
+  @Override
+  public InetAddress getLocalAddress() {
+    return InetAddress.getLoopbackAddress();
+  }
+
+  /**
+   * @return <code>-1</code>, the client side of a Unix domain socket doesn't have a port
+   */
+  @Override
+  public int getLocalPort() {
+    return -1;
+  }
+
+  /**
+   * @return <code>null</code>, the client side of a Unix domain socket is unnamed
+   */
+  @Override
+  public SocketAddress getLocalSocketAddress() {
+    return null;
+  }
+
+  private void ensureOpen() throws SocketException {
+    if (transport.isClosed()) {
+      throw new SocketException("Socket is closed");
     }
-    return socket.getInputStream();
+  }
+
+  /**
+   * Collects the writes to {@link #getOutputStream()} until <code>flush()</code> and sends them with a single
+   * gathering write, e.g. the request line, headers and body of an OkHttp request, see {@link GatheringOutputStream}.
+   * Meant for clients which flush after each request. Has to be configured before the output stream is requested.
+   *
+   * @see UnixSocketFactory#setGatheringWrites(boolean)
+   */
+  public void setGatheringWrites(boolean gatheringWrites) {
+    this.gatheringWrites = gatheringWrites;
+  }
+
+  public boolean isGatheringWrites() {
+    return gatheringWrites;
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    return listening(transport.getInputStream());
   }
 
   @Override
   public OutputStream getOutputStream() throws IOException {
-    if (socket == null) {
-      throw new SocketException("Socket is not initialized");
+    OutputStream out = transport.getOutputStream();
+    if (gatheringWrites) {
+      out = gatheringOutputStream();
+    }
+    return coalescing(listening(out));
+  }
+
+  private GatheringOutputStream gatheringOutputStream() {
+    closeLock.lock();
+    try {
+      if (gatheringOutputStream == null) {
+        gatheringOutputStream = new GatheringOutputStream(new TransportChannel(), DirectBufferPool.shared());
+      }
+      return gatheringOutputStream;
+    } finally {
+      closeLock.unlock();
+    }
+  }
+
+  /**
+   * Reads directly from the socket, bypassing the heap streams of {@link #getInputStream()}.
+   * Direct buffers are read into without copying, e.g. those of a {@link DirectBufferPool},
+   * heap buffers are copied from a buffer of the {@link DirectBufferPool#shared() shared pool}.
+   * Reads block until at least one byte is available and honor the SO_TIMEOUT.
+   * Closing the channel closes the socket.
+   */
+  public ReadableByteChannel getReadableChannel() throws IOException {
+    ensureConnected();
+    return new SocketReadableChannel();
+  }
+
+  /**
+   * Writes directly to the socket, bypassing the heap streams of {@link #getOutputStream()}.
+   * Direct buffers are written without copying, heap buffers are copied through a buffer of the
+   * {@link DirectBufferPool#shared() shared pool}. Writes block until all remaining bytes have been written.
+   * Several buffers, e.g. headers and body, are sent with a single gathering write (<code>writev</code>).
+   * Closing the channel closes the socket.
+   */
+  public GatheringByteChannel getWritableChannel() throws IOException {
+    ensureConnected();
+    return new SocketWritableChannel();
+  }
+
+  private void ensureConnected() throws SocketException {
+    if (transport.isClosed()) {
+      throw new SocketException("Socket is closed");
+    }
+    if (!isConnected()) {
+      throw new SocketException("Socket is not connected");
+    }
+  }
+
+  /**
+   * Reads from the socket like {@link #getReadableChannel()}, for clients which use Okio.
+   * Besides the SO_TIMEOUT, reads honor the {@link Source#timeout() timeout} of the source, which limits each read,
+   * and its deadline, which limits all reads until it's cleared, e.g. those of a whole response or log stream.
+   * Unlike Okio's sources for plain sockets, the JDK backend keeps the connection open after a timeout.
+   * Closing the source closes the socket.
+   */
+  public Source source() throws IOException {
+    ensureConnected();
+    return new SocketSource();
+  }
+
+  /**
+   * Writes to the socket like {@link #getWritableChannel()}, for clients which use Okio.
+   * Besides the write timeout, writes honor the {@link Sink#timeout() timeout} of the sink, which limits each write,
+   * and its deadline, which limits all writes until it's cleared, e.g. those of a whole request.
+   * Writes aren't buffered, closing the sink closes the socket.
+   */
+  public Sink sink() throws IOException {
+    ensureConnected();
+    return new SocketSink();
+  }
+
+  /**
+   * @return the earlier of the timeout's deadline and the end of its timeout from now, <code>0</code> when neither is set
+   */
+  private static long deadline(Timeout timeout) {
+    long deadline = timeout.hasDeadline() ? timeout.deadlineNanoTime() : 0;
+    if (timeout.timeoutNanos() > 0) {
+      deadline = UnixSocketTransport.earliest(deadline, System.nanoTime() + timeout.timeoutNanos());
+    }
+    return deadline;
+  }
+
+  /**
+   * @param deadline {@link System#nanoTime()} based, <code>0</code> only applies the SO_TIMEOUT
+   */
+  private int readDirect(ByteBuffer dst, long deadline) throws IOException {
+    if (dst.isDirect() || !dst.hasRemaining()) {
+      return transport.read(dst, deadline);
+    }
+    try (DirectBufferPool.Lease lease = DirectBufferPool.shared().acquire()) {
+      ByteBuffer buffer = lease.buffer();
+      buffer.limit(Math.min(buffer.capacity(), dst.remaining()));
+      int read = transport.read(buffer, deadline);
+      if (read > 0) {
+        buffer.flip();
+        dst.put(buffer);
+      }
+      return read;
+    }
+  }
+
+  /**
+   * @param deadline {@link System#nanoTime()} based, <code>0</code> only applies the write timeout
+   */
+  private int writeDirect(ByteBuffer src, long deadline) throws IOException {
+    if (src.isDirect()) {
+      return transport.write(src, deadline);
+    }
+    try (DirectBufferPool.Lease lease = DirectBufferPool.shared().acquire()) {
+      ByteBuffer buffer = lease.buffer();
+      int written = 0;
+      while (src.hasRemaining()) {
+        int count = Math.min(buffer.capacity(), src.remaining());
+        buffer.clear();
+        buffer.put(0, src, src.position(), count);
+        buffer.limit(count);
+        src.position(src.position() + count);
+        written += transport.write(buffer, deadline);
+      }
+      return written;
+    }
+  }
+
+  /**
+   * Direct buffers are passed through, the remaining bytes of heap buffers are packed into a pooled direct buffer,
+   * so that all of them are sent with one gathering write as long as the heap bytes fit the pooled buffer.
+   */
+  private long writeDirect(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    boolean direct = true;
+    for (int i = offset; i < offset + length && direct; i++) {
+      direct = srcs[i].isDirect();
+    }
+    if (direct) {
+      return transport.write(srcs, offset, length);
+    }
+    try (DirectBufferPool.Lease lease = DirectBufferPool.shared().acquire()) {
+      ByteBuffer buffer = lease.buffer();
+      ByteBuffer[] batch = new ByteBuffer[length];
+      int count = 0;
+      long written = 0;
+      for (int i = offset; i < offset + length; i++) {
+        ByteBuffer src = srcs[i];
+        if (src.isDirect()) {
+          batch[count++] = src;
+          continue;
+        }
+        while (src.hasRemaining()) {
+          if (!buffer.hasRemaining()) {
+            written += transport.write(batch, 0, count);
+            count = 0;
+            buffer.clear();
+          }
+          int copied = Math.min(buffer.remaining(), src.remaining());
+          batch[count++] = buffer.slice(buffer.position(), copied).put(0, src, src.position(), copied);
+          src.position(src.position() + copied);
+          buffer.position(buffer.position() + copied);
+        }
+      }
+      if (count > 0) {
+        written += transport.write(batch, 0, count);
+      }
+      return written;
+    }
+  }
+
+  /**
+   * Sends a file region directly to the socket, see {@link FileTransfers#sendFile(java.net.Socket, FileChannel, long, long)}.
+   * Bytes still pending in the {@link #getOutputStream() output stream}, e.g. the request headers, are sent first.
+   *
+   * @return the number of bytes sent
+   */
+  public long transferFrom(FileChannel src, long position, long count) throws IOException {
+    flushCoalesced();
+    if (gatheringOutputStream != null) {
+      gatheringOutputStream.flush();
+    }
+    long startedAt = System.nanoTime();
+    long transferred;
+    try {
+      transferred = transport.transferFrom(src, position, count);
+    } catch (IOException e) {
+      failed();
+      throw e;
+    }
+    listener.writeBlocked(this, System.nanoTime() - startedAt);
+    bytesWritten(transferred);
+    return transferred;
+  }
+
+  /**
+   * Receives from the socket directly into a file, see {@link FileTransfers#receiveFile(java.net.Socket, FileChannel, long, long)}.
+   *
+   * @return the number of bytes received
+   */
+  public long transferTo(FileChannel dst, long position, long count) throws IOException {
+    long startedAt = System.nanoTime();
+    long transferred;
+    try {
+      transferred = transport.transferTo(dst, position, count);
+    } catch (IOException e) {
+      failed();
+      throw e;
+    }
+    listener.readBlocked(this, System.nanoTime() - startedAt);
+    bytesRead(transferred);
+    return transferred;
+  }
+
+  /**
+   * @return the non-blocking channel of a connected socket, to be used by event loops.
+   * @throws UnsupportedOperationException if the backend doesn't provide a channel
+   * @throws SocketException while data read ahead by the streams is pending, which reading the channel would skip,
+   *                         see {@link #takeReadAhead()}
+   */
+  SocketChannel getSelectableChannel() throws IOException {
+    SocketChannel channel = transport.getChannel();
+    if (channel == null) {
+      if (!transport.isConnected()) {
+        throw new SocketException("Socket is not connected");
+      }
+      throw new UnsupportedOperationException("The Unix socket backend doesn't provide a selectable channel, please use " + UnixSocketBackend.JDK);
+    }
+    if (transport.hasReadAhead()) {
+      throw new SocketException("Data has been read ahead, the channel can only be used after takeReadAhead()");
     }
-    return socket.getOutputStream();
+    return channel;
+  }
+
+  /**
+   * Hands out the data which the streams have read ahead, e.g. for {@link InputStream#available()} or a liveness probe,
+   * to be delivered before reading the {@link #getSelectableChannel() channel}.
+   *
+   * @return <code>null</code> when no data has been read ahead
+   */
+  ByteBuffer takeReadAhead() {
+    return transport.takeReadAhead();
   }
 
   @Override
   public void bind(SocketAddress bindpoint) throws IOException {
-    if (socket == null) {
-      throw new SocketException("Socket is not initialized");
+    transport.bind(bindpoint);
+  }
+
+  /**
+   * Half-closes the socket for reading, e.g. to stop receiving a hijacked container's output while still sending to its stdin.
+   * Pending and further reads return the end of stream.
+   */
+  @Override
+  public void shutdownInput() throws IOException {
+    ensureConnected();
+    if (transport.isInputShutdown()) {
+      throw new SocketException("Socket input is already shutdown");
+    }
+    transport.shutdownInput();
+  }
+
+  /**
+   * Half-closes the socket for writing, e.g. to signal the end of stdin to a hijacked <code>exec</code> or <code>attach</code> session.
+   * The daemon receives the end of stream, while its remaining output can still be read.
+   */
+  @Override
+  public void shutdownOutput() throws IOException {
+    ensureConnected();
+    if (transport.isOutputShutdown()) {
+      throw new SocketException("Socket output is already shutdown");
+    }
+    flushCoalesced();
+    if (gatheringOutputStream != null) {
+      gatheringOutputStream.flush();
+    }
+    transport.shutdownOutput();
+  }
+
+  /**
+   * Also probes an idle connection like {@link #isPeerClosed()}, because OkHttp checks this before reusing a pooled connection,
+   * which the daemon may have closed after a restart.
+   */
+  @Override
+  public boolean isInputShutdown() {
+    if (transport.isInputShutdown()) {
+      return true;
     }
-    socket.bind(bindpoint);
+    return transport.isConnected() && !transport.isClosed() && isPeerClosed();
+  }
+
+  @Override
+  public boolean isOutputShutdown() {
+    return transport.isOutputShutdown();
   }
 
   @Override
   public boolean isConnected() {
-    return socket != null && socket.isConnected();
+    return transport.isConnected();
   }
 
   @Override
   public boolean isClosed() {
-    return socket != null && socket.isClosed();
+    return transport.isClosed();
+  }
+
+  /**
+   * Checks with a single non-blocking read whether the daemon has closed the connection, e.g. after a restart.
+   * Pending data isn't consumed, but kept for the next read. Meant for health checks of idle connections,
+   * a read in progress isn't interrupted, but sees the end of stream itself. A failed connection, e.g. a reset one, is closed.
+   * The junixsocket backend can't probe without blocking and only reports connections closed by this side.
+   *
+   * @return <code>true</code> when the connection can't be used anymore
+   */
+  public boolean isPeerClosed() {
+    if (!transport.isConnected() || transport.isClosed()) {
+      return transport.isClosed();
+    }
+    try {
+      if (transport.isPeerClosed()) {
+        endOfStream();
+        return true;
+      }
+      return false;
+    } catch (IOException e) {
+      log.debug("closing failed connection", e);
+      failed();
+      try {
+        close();
+      } catch (IOException ignored) {
+      }
+      return true;
+    }
   }
 
   @Override
   public void close() throws IOException {
-    if (socket != null) {
-      synchronized (this) {
-        socket.close();
+    closeLock.lock();
+    try {
+      try {
+        if (transport.isConnected() && !transport.isClosed()) {
+          flushCoalescedQuietly();
+          if (gatheringOutputStream != null) {
+            gatheringOutputStream.flushQuietly();
+          }
+        }
+        transport.close();
+      } finally {
+        if (gatheringOutputStream != null) {
+          gatheringOutputStream.discard();
+        }
+        closed();
+      }
+    } finally {
+      closeLock.unlock();
+    }
+  }
+
+  private class SocketReadableChannel implements ReadableByteChannel {
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      return read(dst, 0);
+    }
+
+    int read(ByteBuffer dst, long deadline) throws IOException {
+      if (transport.isClosed()) {
+        throw new ClosedChannelException();
+      }
+      long startedAt = System.nanoTime();
+      int read;
+      try {
+        read = readDirect(dst, deadline);
+      } catch (IOException e) {
+        failed();
+        throw e;
+      }
+      listener.readBlocked(UnixSocket.this, System.nanoTime() - startedAt);
+      if (read == -1) {
+        endOfStream();
+      } else {
+        bytesRead(read);
+      }
+      return read;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return !transport.isClosed();
+    }
+
+    @Override
+    public void close() throws IOException {
+      UnixSocket.this.close();
+    }
+  }
+
+  private class SocketWritableChannel implements GatheringByteChannel {
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+      Objects.checkFromIndexSize(offset, length, srcs.length);
+      if (transport.isClosed()) {
+        throw new ClosedChannelException();
+      }
+      long startedAt = System.nanoTime();
+      long written;
+      try {
+        written = writeDirect(srcs, offset, length);
+      } catch (IOException e) {
+        failed();
+        throw e;
+      }
+      listener.writeBlocked(UnixSocket.this, System.nanoTime() - startedAt);
+      bytesWritten(written);
+      return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      return write(src, 0);
+    }
+
+    int write(ByteBuffer src, long deadline) throws IOException {
+      if (transport.isClosed()) {
+        throw new ClosedChannelException();
+      }
+      long startedAt = System.nanoTime();
+      int written;
+      try {
+        written = writeDirect(src, deadline);
+      } catch (IOException e) {
+        failed();
+        throw e;
+      }
+      listener.writeBlocked(UnixSocket.this, System.nanoTime() - startedAt);
+      bytesWritten(written);
+      return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return !transport.isClosed();
+    }
+
+    @Override
+    public void close() throws IOException {
+      UnixSocket.this.close();
+    }
+  }
+
+  /**
+   * Writes to the transport without reporting to the listener, for streams which are already wrapped by {@link #listening(OutputStream)}.
+   */
+  private class TransportChannel implements GatheringByteChannel {
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+      return writeDirect(srcs, offset, length);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      return writeDirect(src, 0);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return !transport.isClosed();
+    }
+
+    @Override
+    public void close() throws IOException {
+      UnixSocket.this.close();
+    }
+  }
+
+  private class SocketSource implements Source {
+
+    private final SocketReadableChannel channel = new SocketReadableChannel();
+    private final Timeout timeout = new Timeout();
+
+    @Override
+    public long read(Buffer sink, long byteCount) throws IOException {
+      if (byteCount < 0) {
+        throw new IllegalArgumentException("byteCount < 0: " + byteCount);
       }
+      if (byteCount == 0) {
+        return 0;
+      }
+      try (DirectBufferPool.Lease lease = DirectBufferPool.shared().acquire()) {
+        ByteBuffer buffer = lease.buffer();
+        buffer.limit((int) Math.min(buffer.capacity(), byteCount));
+        int read = channel.read(buffer, deadline(timeout));
+        if (read > 0) {
+          buffer.flip();
+          sink.write(buffer);
+        }
+        return read;
+      }
+    }
+
+    @Override
+    public Timeout timeout() {
+      return timeout;
+    }
+
+    @Override
+    public void close() throws IOException {
+      UnixSocket.this.close();
+    }
+  }
+
+  private class SocketSink implements Sink {
+
+    private final SocketWritableChannel channel = new SocketWritableChannel();
+    private final Timeout timeout = new Timeout();
+
+    @Override
+    public void write(Buffer source, long byteCount) throws IOException {
+      if (byteCount < 0 || byteCount > source.size()) {
+        throw new IllegalArgumentException("byteCount " + byteCount + " exceeds size " + source.size());
+      }
+      long deadline = deadline(timeout);
+      try (DirectBufferPool.Lease lease = DirectBufferPool.shared().acquire()) {
+        ByteBuffer buffer = lease.buffer();
+        while (byteCount > 0) {
+          buffer.clear();
+          buffer.limit((int) Math.min(buffer.capacity(), byteCount));
+          while (buffer.hasRemaining()) {
+            source.read(buffer);
+          }
+          buffer.flip();
+          byteCount -= channel.write(buffer, deadline);
+        }
+      }
+    }
+
+    @Override
+    public void flush() {
+      // writes aren't buffered
+    }
+
+    @Override
+    public Timeout timeout() {
+      return timeout;
+    }
+
+    @Override
+    public void close() throws IOException {
+      UnixSocket.this.close();
     }
   }
 }
@@ -0,0 +1,82 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.util.Locale;
+
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implementations available for {@link UnixSocket}.
+ * <p>
+ * The {@link #preferred()} backend can be overridden with the system property
+ * <code>de.gesellix.docker.client.filesocket.unix.backend</code>, e.g. <code>-Dde.gesellix.docker.client.filesocket.unix.backend=junixsocket</code>.
+ */
+public enum UnixSocketBackend {
+
+  /**
+   * Uses <code>java.net.UnixDomainSocketAddress</code> and a {@link java.nio.channels.SocketChannel},
+   * available since Java 16 without any native library.
+   */
+  JDK {
+    @Override
+    boolean checkAvailable() {
+      return JdkUnixSocketTransport.isSupported();
+    }
+
+    @Override
+    UnixSocketTransport newTransport() {
+      return new JdkUnixSocketTransport();
+    }
+  },
+
+  /**
+   * Uses <a href="https://kohlschutter.github.io/junixsocket/">junixsocket</a>,
+   * which needs to extract and load its native library.
+   */
+  JUNIXSOCKET {
+    @Override
+    boolean checkAvailable() {
+      return AFUNIXSocket.isSupported();
+    }
+
+    @Override
+    UnixSocketTransport newTransport() {
+      return new JunixsocketUnixSocketTransport();
+    }
+  };
+
+  public static final String BACKEND_PROPERTY = "de.gesellix.docker.client.filesocket.unix.backend";
+
+  private static final Logger log = LoggerFactory.getLogger(UnixSocketBackend.class);
+
+  private volatile Boolean available = null;
+
+  public boolean isAvailable() {
+    if (available == null) {
+      try {
+        available = checkAvailable();
+      } catch (Throwable reason) {
+        log.debug("Unix socket backend {} not available", this, reason);
+        available = false;
+      }
+    }
+    return available;
+  }
+
+  abstract boolean checkAvailable();
+
+  abstract UnixSocketTransport newTransport();
+
+  /**
+   * @return the configured backend, or {@link #JDK} when available, as it needs no native library.
+   * Falls back to {@link #JUNIXSOCKET} when no other backend is available.
+   */
+  public static UnixSocketBackend preferred() {
+    String configured = System.getProperty(BACKEND_PROPERTY);
+    if (configured != null && !configured.trim().isEmpty()) {
+      return UnixSocketBackend.valueOf(configured.trim().toUpperCase(Locale.ROOT));
+    }
+    return JDK.isAvailable() ? JDK : JUNIXSOCKET;
+  }
+}
@@ -0,0 +1,241 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Follows many long-lived streams (attach, logs, events) on a fixed number of threads
+ * instead of parking one thread per stream.
+ * <p>
+ * Each registered {@link UnixSocket} is served by one of the group's selector threads,
+ * which reads whatever is available and passes it to the socket's {@link StreamHandler}.
+ * Once registered, the socket's InputStream must no longer be used.
+ * Requires the {@link UnixSocketBackend#JDK} backend.
+ */
+public class UnixSocketEventLoopGroup implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(UnixSocketEventLoopGroup.class);
+
+  /**
+   * Callbacks are invoked on a selector thread shared with other streams, so they must not block.
+   */
+  public interface StreamHandler {
+
+    /**
+     * @param data only valid during the callback, the buffer will be reused afterwards.
+     */
+    void onData(ByteBuffer data);
+
+    /**
+     * The daemon has closed the stream, the socket has been closed.
+     */
+    default void onEndOfStream() {
+    }
+
+    /**
+     * Reading failed, the socket has been closed.
+     */
+    default void onError(IOException error) {
+    }
+  }
+
+  /**
+   * Limits the reads per stream and wakeup, so that a busy stream doesn't starve the others.
+   */
+  static final int MAX_READS_PER_WAKEUP = 16;
+
+  static final int SHARED_THREADS = Math.min(2, Runtime.getRuntime().availableProcessors());
+
+  private static final ReentrantLock sharedLock = new ReentrantLock();
+  private static volatile UnixSocketEventLoopGroup shared = null;
+
+  private final SelectorLoop[] loops;
+  private final AtomicInteger next = new AtomicInteger();
+
+  public UnixSocketEventLoopGroup(int threads) throws IOException {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+    loops = new SelectorLoop[threads];
+    try {
+      for (int i = 0; i < threads; i++) {
+        loops[i] = new SelectorLoop("unix-socket-event-loop-" + i);
+      }
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return a small group created on first use and shared within the library, which is never closed.
+   */
+  static UnixSocketEventLoopGroup shared() throws IOException {
+    UnixSocketEventLoopGroup group = shared;
+    if (group == null) {
+      sharedLock.lock();
+      try {
+        if (shared == null) {
+          shared = new UnixSocketEventLoopGroup(Math.max(1, SHARED_THREADS));
+        }
+        group = shared;
+      } finally {
+        sharedLock.unlock();
+      }
+    }
+    return group;
+  }
+
+  /**
+   * Starts delivering the socket's incoming data to the handler.
+   *
+   * @return closing the registration stops the delivery and closes the socket
+   * @throws IOException if the group has been closed
+   */
+  public Closeable register(UnixSocket socket, StreamHandler handler) throws IOException {
+    ByteBuffer readAhead = socket.takeReadAhead();
+    SocketChannel channel = socket.getSelectableChannel();
+    SelectorLoop loop = nextLoop();
+    StreamRegistration registration = new StreamRegistration(socket, handler, loop);
+    try {
+      if (readAhead != null) {
+        // data read ahead by the streams, e.g. for available(), comes first, as tasks run in order
+        loop.execute(() -> {
+          socket.bytesRead(readAhead.remaining());
+          handler.onData(readAhead);
+        });
+      }
+      loop.register(channel, SelectionKey.OP_READ, registration).whenComplete((key, error) -> {
+        if (error != null && registration.failSocket()) {
+          handler.onError(error instanceof IOException ? (IOException) error : new IOException("Registration failed", error));
+        }
+      });
+    } catch (IllegalStateException e) {
+      // the group has been closed, or all of its loops have shut down after failures
+      throw new IOException("The event loop group has been closed", e);
+    }
+    return registration;
+  }
+
+  /**
+   * @return the loops in turn, so that registrations are spread evenly, skipping loops which shut down after failures
+   */
+  SelectorLoop nextLoop() {
+    SelectorLoop loop = null;
+    for (int i = 0; i < loops.length; i++) {
+      loop = loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+      if (!loop.isClosed()) {
+        break;
+      }
+    }
+    return loop;
+  }
+
+  /**
+   * @return the number of currently registered streams
+   */
+  public int registrations() {
+    int registrations = 0;
+    for (SelectorLoop loop : loops) {
+      if (loop != null) {
+        registrations += loop.registrations();
+      }
+    }
+    return registrations;
+  }
+
+  @Override
+  public void close() {
+    for (SelectorLoop loop : loops) {
+      if (loop != null) {
+        loop.close();
+      }
+    }
+  }
+
+  private static class StreamRegistration implements SelectorLoop.ReadyHandler, Closeable {
+
+    private final UnixSocket socket;
+    private final StreamHandler handler;
+    private final SelectorLoop loop;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    StreamRegistration(UnixSocket socket, StreamHandler handler, SelectorLoop loop) {
+      this.socket = socket;
+      this.handler = handler;
+      this.loop = loop;
+    }
+
+    @Override
+    public void ready(SelectionKey key) {
+      SocketChannel channel = (SocketChannel) key.channel();
+      ByteBuffer buffer = loop.readBuffer();
+      try {
+        for (int i = 0; i < MAX_READS_PER_WAKEUP; i++) {
+          buffer.clear();
+          int read = channel.read(buffer);
+          if (read == -1) {
+            socket.endOfStream();
+            closeSocket();
+            handler.onEndOfStream();
+            return;
+          }
+          if (read == 0) {
+            return;
+          }
+          buffer.flip();
+          socket.bytesRead(read);
+          handler.onData(buffer);
+          if (read < buffer.capacity()) {
+            return;
+          }
+        }
+      } catch (IOException e) {
+        if (failSocket()) {
+          handler.onError(e);
+        }
+      }
+    }
+
+    /**
+     * Like {@link #closeSocket()}, but reports the close as caused by an error.
+     */
+    private boolean failSocket() {
+      if (closed.get()) {
+        return false;
+      }
+      socket.failed();
+      return closeSocket();
+    }
+
+    @Override
+    public void close() {
+      closeSocket();
+    }
+
+    private boolean closeSocket() {
+      if (!closed.compareAndSet(false, true)) {
+        return false;
+      }
+      try {
+        socket.close();
+      } catch (IOException e) {
+        log.debug("close failed", e);
+      }
+      if (!loop.inLoop()) {
+        // lets the selector release the closed channel
+        loop.wakeup();
+      }
+      return true;
+    }
+  }
+}
@@ -1,11 +1,187 @@
 package de.gesellix.docker.client.filesocket;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class UnixSocketFactory extends FileSocketFactory {
+public class UnixSocketFactory extends FileSocketFactory implements Closeable {
+
+  private final UnixSocketBackend backend;
+  private final ReentrantLock poolLock = new ReentrantLock();
+  private volatile PrewarmedUnixSocketPool pool = null;
+  private final Map<SocketOption<?>, Object> socketOptions = new ConcurrentHashMap<>();
+  private volatile boolean gatheringWrites = false;
+  private volatile Duration writeTimeout = Duration.ZERO;
+
+  public UnixSocketFactory() {
+    this(UnixSocketBackend.preferred());
+  }
+
+  public UnixSocketFactory(UnixSocketBackend backend) {
+    this.backend = backend;
+  }
+
+  public UnixSocketBackend getBackend() {
+    return backend;
+  }
+
+  /**
+   * Keeps the given number of already connected sockets per socket path,
+   * which are handed out on <code>connect()</code> and refilled in the background.
+   * Socket paths are kept warm after their first connect, or after {@link #prewarm(String)},
+   * until they haven't been used for five minutes.
+   *
+   * @param connectionsPerPath <code>0</code> disables prewarming and closes idle connections.
+   */
+  public void setPrewarmedConnections(int connectionsPerPath) {
+    setPrewarmedConnections(connectionsPerPath, PrewarmedUnixSocketPool.DEFAULT_IDLE_TIMEOUT);
+  }
+
+  /**
+   * Like {@link #setPrewarmedConnections(int)}, but stops keeping a socket path warm
+   * once no socket has connected to it for the given idle timeout.
+   */
+  public void setPrewarmedConnections(int connectionsPerPath, Duration idleTimeout) {
+    if (connectionsPerPath < 0) {
+      throw new IllegalArgumentException("connectionsPerPath must not be negative");
+    }
+    if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+      throw new IllegalArgumentException("idleTimeout must be positive");
+    }
+    poolLock.lock();
+    try {
+      closePool();
+      if (connectionsPerPath > 0) {
+        pool = new PrewarmedUnixSocketPool(backend, connectionsPerPath, idleTimeout);
+      }
+    } finally {
+      poolLock.unlock();
+    }
+  }
+
+  /**
+   * Starts connecting to the socket path in the background, e.g. <code>/var/run/docker.sock</code>.
+   * Requires {@link #setPrewarmedConnections(int)} to be configured.
+   */
+  public void prewarm(String socketPath) {
+    poolLock.lock();
+    try {
+      if (pool == null) {
+        throw new IllegalStateException("Prewarmed connections are not enabled");
+      }
+      pool.prewarm(socketPath);
+    } finally {
+      poolLock.unlock();
+    }
+  }
+
+  /**
+   * Sets an option on all sockets created afterwards, e.g. a larger {@link StandardSocketOptions#SO_RCVBUF}
+   * and {@link StandardSocketOptions#SO_SNDBUF} for image transfers. Options set by the client, like OkHttp, take precedence.
+   *
+   * @param value <code>null</code> removes the default
+   * @throws UnsupportedOperationException for options which don't apply to Unix domain sockets, see {@link UnixSocket#supportedOptions()}
+   */
+  public <T> void setDefaultSocketOption(SocketOption<T> name, T value) {
+    if (!UnixSocketTransport.SUPPORTED_OPTIONS.contains(name)) {
+      throw new UnsupportedOperationException("'" + name + "' not supported");
+    }
+    if (value == null) {
+      socketOptions.remove(name);
+    } else {
+      socketOptions.put(name, value);
+    }
+  }
+
+  public <T> T getDefaultSocketOption(SocketOption<T> name) {
+    return name.type().cast(socketOptions.get(name));
+  }
+
+  /**
+   * Collects the writes of each request until OkHttp flushes them and sends them with a single gathering write,
+   * instead of one write per segment, see {@link UnixSocket#setGatheringWrites(boolean)}.
+   */
+  public void setGatheringWrites(boolean gatheringWrites) {
+    this.gatheringWrites = gatheringWrites;
+  }
+
+  public boolean isGatheringWrites() {
+    return gatheringWrites;
+  }
+
+  /**
+   * Lets writes to a stuck daemon fail instead of blocking OkHttp's threads, see {@link UnixSocket#setWriteTimeout(int)}.
+   * OkHttp's own write timeout only applies while a request is sent, this one applies to all writes,
+   * e.g. to the stdin of hijacked connections.
+   *
+   * @param writeTimeout {@link Duration#ZERO} waits without a timeout
+   */
+  public void setWriteTimeout(Duration writeTimeout) {
+    if (writeTimeout.isNegative()) {
+      throw new IllegalArgumentException("writeTimeout must not be negative");
+    }
+    this.writeTimeout = writeTimeout;
+  }
+
+  public Duration getWriteTimeout() {
+    return writeTimeout;
+  }
 
   @Override
   public Socket createSocket() {
-    return new UnixSocket();
+    UnixSocket socket = configured(newSocket(backend, pool));
+    socket.setGatheringWrites(gatheringWrites);
+    try {
+      socket.setWriteTimeout((int) Math.min(writeTimeout.toMillis(), Integer.MAX_VALUE));
+    } catch (SocketException e) {
+      // an unconnected socket only records the timeout
+      throw new UncheckedIOException(e);
+    }
+    for (Map.Entry<SocketOption<?>, Object> option : socketOptions.entrySet()) {
+      setOption(socket, option.getKey(), option.getValue());
+    }
+    return socket;
+  }
+
+  UnixSocket newSocket(UnixSocketBackend backend, PrewarmedUnixSocketPool pool) {
+    return new UnixSocket(backend, pool);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void setOption(UnixSocket socket, SocketOption<T> name, Object value) {
+    try {
+      socket.setOption(name, (T) value);
+    } catch (IOException e) {
+      // an unconnected socket only records the option
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Stops prewarming and closes idle connections. Sockets already handed out are not affected.
+   */
+  @Override
+  public void close() {
+    poolLock.lock();
+    try {
+      closePool();
+    } finally {
+      poolLock.unlock();
+    }
+  }
+
+  private void closePool() {
+    if (pool != null) {
+      pool.close();
+      pool = null;
+    }
   }
 }
@@ -1,6 +1,5 @@
 package de.gesellix.docker.client.filesocket;
 
-import org.newsclub.net.unix.AFUNIXSocket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,7 +14,7 @@ public class UnixSocketFactorySupport {
   public boolean isSupported(String osName) {
     try {
       boolean isWindows = osName.toLowerCase().contains("windows");
-      return !isWindows && AFUNIXSocket.isSupported();
+      return !isWindows && UnixSocketBackend.preferred().isAvailable();
     } catch (Throwable reason) {
       log.info("Unix socket not supported", reason);
       return false;
@@ -0,0 +1,292 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import okio.AsyncTimeout;
+
+/**
+ * The connection behind a {@link UnixSocket}, implemented by one of the {@link UnixSocketBackend}s.
+ */
+abstract class UnixSocketTransport {
+
+  /**
+   * The standard options which apply to Unix domain sockets, TCP specific ones like SO_KEEPALIVE don't.
+   */
+  static final Set<SocketOption<?>> SUPPORTED_OPTIONS = Set.of(
+      StandardSocketOptions.SO_SNDBUF,
+      StandardSocketOptions.SO_RCVBUF,
+      StandardSocketOptions.SO_LINGER);
+
+  private volatile int writeTimeout = 0;
+
+  abstract void connect(FileSocketAddress address, int timeout) throws IOException;
+
+  abstract void bind(SocketAddress bindpoint) throws IOException;
+
+  abstract InputStream getInputStream() throws IOException;
+
+  abstract OutputStream getOutputStream() throws IOException;
+
+  /**
+   * Reads like a blocking channel, honoring the SO_TIMEOUT. Direct buffers are read into without an intermediate copy.
+   *
+   * @return the number of bytes read, <code>-1</code> at the end of stream
+   */
+  int read(ByteBuffer dst) throws IOException {
+    return read(dst, 0);
+  }
+
+  /**
+   * Like {@link #read(ByteBuffer)}, but fails once the deadline has passed, even before the SO_TIMEOUT.
+   *
+   * @param deadline {@link System#nanoTime()} based, <code>0</code> only applies the SO_TIMEOUT
+   */
+  abstract int read(ByteBuffer dst, long deadline) throws IOException;
+
+  /**
+   * Writes all remaining bytes of the buffer, honoring the {@link #setWriteTimeout(int) write timeout}.
+   *
+   * @return the number of bytes written
+   */
+  int write(ByteBuffer src) throws IOException {
+    return write(src, 0);
+  }
+
+  /**
+   * Like {@link #write(ByteBuffer)}, but fails once the deadline has passed, even before the write timeout.
+   *
+   * @param deadline {@link System#nanoTime()} based, <code>0</code> only applies the write timeout
+   */
+  abstract int write(ByteBuffer src, long deadline) throws IOException;
+
+  /**
+   * Writes all remaining bytes of the buffers, backends should prefer a single gathering write (<code>writev</code>).
+   *
+   * @return the number of bytes written
+   */
+  long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    return write(srcs, offset, length, 0);
+  }
+
+  /**
+   * @param deadline {@link System#nanoTime()} based, <code>0</code> only applies the write timeout
+   */
+  long write(ByteBuffer[] srcs, int offset, int length, long deadline) throws IOException {
+    long written = 0;
+    for (int i = offset; i < offset + length; i++) {
+      written += write(srcs[i], deadline);
+    }
+    return written;
+  }
+
+  /**
+   * @param name one of the {@link #SUPPORTED_OPTIONS}
+   */
+  abstract <T> void setOption(SocketOption<T> name, T value) throws IOException;
+
+  /**
+   * @param name one of the {@link #SUPPORTED_OPTIONS}
+   */
+  abstract <T> T getOption(SocketOption<T> name) throws IOException;
+
+  /**
+   * @return an estimate of the bytes which can be read without blocking
+   */
+  abstract int available() throws IOException;
+
+  abstract void setSoTimeout(int timeout) throws IOException;
+
+  abstract int getSoTimeout() throws IOException;
+
+  /**
+   * Limits the time a write waits for the peer to take more data, e.g. a daemon which doesn't read anymore.
+   * A timed out write fails with a {@link SocketTimeoutException} after an unknown number of bytes has been sent.
+   *
+   * @param timeout milliseconds, <code>0</code> waits without a timeout
+   */
+  void setWriteTimeout(int timeout) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("timeout < 0");
+    }
+    writeTimeout = timeout;
+  }
+
+  int getWriteTimeout() {
+    return writeTimeout;
+  }
+
+  /**
+   * @return the non-blocking channel of a connected transport, or <code>null</code> if the backend doesn't use channels.
+   */
+  SocketChannel getChannel() {
+    return null;
+  }
+
+  /**
+   * Hands out the data which has been read ahead, e.g. by {@link #available()}, so that it isn't lost
+   * when the {@link #getChannel() channel} is read directly afterwards.
+   *
+   * @return <code>null</code> when no data has been read ahead
+   */
+  ByteBuffer takeReadAhead() {
+    return null;
+  }
+
+  boolean hasReadAhead() {
+    return false;
+  }
+
+  /**
+   * Copies the file region through the {@link #getOutputStream()}, backends should prefer a zero-copy path.
+   */
+  long transferFrom(FileChannel src, long position, long count) throws IOException {
+    return FileTransfers.copy(src, position, count, getOutputStream());
+  }
+
+  /**
+   * Copies from the {@link #getInputStream()} into the file, backends should prefer to skip the heap.
+   */
+  long transferTo(FileChannel dst, long position, long count) throws IOException {
+    return FileTransfers.copy(getInputStream(), dst, position, count);
+  }
+
+  /**
+   * Checks an idle connection without blocking, e.g. whether the daemon has closed it.
+   * Unexpected pending data is reported as not alive, so the connection must not be in use.
+   */
+  abstract boolean isAlive();
+
+  /**
+   * Checks without blocking and without consuming pending data whether the peer has closed the connection,
+   * e.g. the daemon after a restart. Doesn't probe while a read is in progress, which sees the end of stream itself.
+   * Backends which can't probe without blocking report <code>false</code>.
+   *
+   * @return <code>true</code> once the end of stream is the next thing to read
+   * @throws IOException when the connection has failed, e.g. has been reset
+   */
+  boolean isPeerClosed() throws IOException {
+    return false;
+  }
+
+  /**
+   * Half-closes the connection for reading, further reads report the end of stream.
+   */
+  abstract void shutdownInput() throws IOException;
+
+  /**
+   * Half-closes the connection for writing, the peer reads the end of stream while it can still send.
+   */
+  abstract void shutdownOutput() throws IOException;
+
+  abstract boolean isInputShutdown();
+
+  abstract boolean isOutputShutdown();
+
+  abstract boolean isConnected();
+
+  abstract boolean isClosed();
+
+  abstract void close() throws IOException;
+
+  /**
+   * Runs a blocking operation, which can't wait with a deadline itself, on Okio's watchdog.
+   * Like Okio does for plain sockets, the transport is closed when the deadline passes, which fails the operation.
+   *
+   * @param deadline {@link System#nanoTime()} based, <code>0</code> runs the operation without a deadline
+   * @throws SocketTimeoutException when the deadline has passed
+   */
+  <T> T withDeadline(long deadline, String timeoutMessage, Operation<T> operation) throws IOException {
+    return withDeadline(deadline, timeoutMessage, this::close, operation);
+  }
+
+  /**
+   * Like {@link #withDeadline(long, String, Operation)}, but closes the given resource when the deadline passes,
+   * e.g. a channel which is still being connected.
+   */
+  static <T> T withDeadline(long deadline, String timeoutMessage, Closeable resource, Operation<T> operation) throws IOException {
+    if (deadline == 0) {
+      return operation.run();
+    }
+    if (deadline - System.nanoTime() <= 0) {
+      throw new SocketTimeoutException(timeoutMessage);
+    }
+    AsyncTimeout watchdog = new AsyncTimeout() {
+      @Override
+      protected void timedOut() {
+        try {
+          resource.close();
+        } catch (IOException ignored) {
+        }
+      }
+    };
+    watchdog.deadlineNanoTime(deadline);
+    watchdog.enter();
+    T result;
+    try {
+      result = operation.run();
+    } catch (IOException e) {
+      if (watchdog.exit()) {
+        SocketTimeoutException timeout = new SocketTimeoutException(timeoutMessage);
+        timeout.initCause(e);
+        throw timeout;
+      }
+      throw e;
+    } catch (RuntimeException e) {
+      watchdog.exit();
+      throw e;
+    }
+    if (watchdog.exit()) {
+      throw new SocketTimeoutException(timeoutMessage);
+    }
+    return result;
+  }
+
+  /**
+   * @param timeout milliseconds, <code>0</code> for no timeout
+   * @return the {@link System#nanoTime()} based deadline, <code>0</code> for none
+   */
+  static long deadlineAfter(int timeout) {
+    return timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+  }
+
+  /**
+   * @return the earlier of both {@link System#nanoTime()} based deadlines, <code>0</code> standing for none
+   */
+  static long earliest(long deadline, long other) {
+    if (deadline == 0) {
+      return other;
+    }
+    if (other == 0) {
+      return deadline;
+    }
+    return deadline - other < 0 ? deadline : other;
+  }
+
+  static long remaining(ByteBuffer[] buffers, int offset, int length) {
+    long remaining = 0;
+    for (int i = offset; i < offset + length; i++) {
+      remaining += buffers[i].remaining();
+    }
+    return remaining;
+  }
+
+  /**
+   * A blocking operation, see {@link #withDeadline(long, String, Operation)}.
+   */
+  interface Operation<T> {
+
+    T run() throws IOException;
+  }
+}
@@ -0,0 +1,279 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.ReadPendingException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class AsynchronousUnixSocketChannelTest {
+
+  @Test
+  void echoesViaFutures() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         AsynchronousUnixSocketChannel channel = AsynchronousUnixSocketChannel.open()) {
+      channel.connect(server.getSocketFile().toString()).get(5, TimeUnit.SECONDS);
+      assertTrue(channel.isConnected());
+
+      ByteBuffer message = StandardCharsets.UTF_8.encode("hello async unix socket");
+      int length = message.remaining();
+      while (message.hasRemaining()) {
+        channel.write(message).get(5, TimeUnit.SECONDS);
+      }
+
+      ByteBuffer received = ByteBuffer.allocate(length);
+      while (received.hasRemaining()) {
+        assertTrue(channel.read(received).get(5, TimeUnit.SECONDS) > 0);
+      }
+      received.flip();
+      assertEquals("hello async unix socket", StandardCharsets.UTF_8.decode(received).toString());
+    }
+  }
+
+  @Test
+  void readsUntilEndOfStreamViaCompletionHandlers() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.start(connection -> {
+      Channels.newOutputStream(connection).write("line 1\nline 2\n".getBytes(StandardCharsets.UTF_8));
+    });
+         UnixSocketEventLoopGroup group = new UnixSocketEventLoopGroup(1);
+         AsynchronousUnixSocketChannel channel = AsynchronousUnixSocketChannel.open(group)) {
+      channel.connect(server.getSocketFile().toString()).get(5, TimeUnit.SECONDS);
+
+      StringBuilder received = new StringBuilder();
+      CompletableFuture<Integer> endOfStream = new CompletableFuture<>();
+      ByteBuffer buffer = ByteBuffer.allocate(4);
+      channel.read(buffer, received, new CompletionHandler<Integer, StringBuilder>() {
+        @Override
+        public void completed(Integer read, StringBuilder attachment) {
+          if (read == -1) {
+            endOfStream.complete(attachment.length());
+            return;
+          }
+          buffer.flip();
+          attachment.append(StandardCharsets.UTF_8.decode(buffer));
+          buffer.clear();
+          channel.read(buffer, attachment, this);
+        }
+
+        @Override
+        public void failed(Throwable exc, StringBuilder attachment) {
+          endOfStream.completeExceptionally(exc);
+        }
+      });
+
+      assertEquals(14, endOfStream.get(5, TimeUnit.SECONDS));
+      assertEquals("line 1\nline 2\n", received.toString());
+    }
+  }
+
+  @Test
+  void allowsOnlyOnePendingRead() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         AsynchronousUnixSocketChannel channel = AsynchronousUnixSocketChannel.open()) {
+      channel.connect(server.getSocketFile().toString()).get(5, TimeUnit.SECONDS);
+
+      CompletableFuture<Integer> pendingRead = channel.read(ByteBuffer.allocate(16));
+      assertThrows(ReadPendingException.class, () -> channel.read(ByteBuffer.allocate(16)));
+
+      channel.close();
+      ExecutionException failure = assertThrows(ExecutionException.class, () -> pendingRead.get(5, TimeUnit.SECONDS));
+      assertInstanceOf(AsynchronousCloseException.class, failure.getCause());
+      assertFalse(channel.isOpen());
+    }
+  }
+
+  @Test
+  void failsToConnectWithoutServer() throws Exception {
+    try (AsynchronousUnixSocketChannel channel = AsynchronousUnixSocketChannel.open()) {
+      CompletableFuture<Void> connect = channel.connect(UnixSocketTestServer.newSocketPath().toString());
+      ExecutionException failure = assertThrows(ExecutionException.class, () -> connect.get(5, TimeUnit.SECONDS));
+      assertInstanceOf(IOException.class, failure.getCause());
+    }
+  }
+
+  @Test
+  @EnabledOnOs(OS.LINUX)
+  void closesTheReplacedChannelAfterABlockingConnect() throws Exception {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    List<SocketChannel> queued = new ArrayList<>();
+    try (UnixSocketEventLoopGroup group = new UnixSocketEventLoopGroup(1);
+         ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      fillBacklog(server, socketFile, queued);
+      long openFiles = countOpenFiles();
+
+      try (AsynchronousUnixSocketChannel channel = AsynchronousUnixSocketChannel.open(group)) {
+        CompletableFuture<Void> connect = channel.connect(socketFile.toString());
+        server.configureBlocking(false);
+        while (!connect.isDone()) {
+          // makes space in the backlog for the blocking connect
+          SocketChannel accepted = server.accept();
+          if (accepted != null) {
+            accepted.close();
+          } else {
+            Thread.sleep(10);
+          }
+        }
+        connect.get(5, TimeUnit.SECONDS);
+        assertTrue(channel.isConnected());
+      }
+      assertEquals(openFiles, countOpenFiles());
+    } finally {
+      for (SocketChannel channel : queued) {
+        channel.close();
+      }
+      Files.deleteIfExists(socketFile);
+    }
+  }
+
+  @Test
+  @EnabledOnOs(OS.LINUX)
+  void closingCancelsTheBlockingConnect() throws Exception {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    List<SocketChannel> queued = new ArrayList<>();
+    try (UnixSocketEventLoopGroup group = new UnixSocketEventLoopGroup(1);
+         ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      fillBacklog(server, socketFile, queued);
+      long openFiles = countOpenFiles();
+
+      AsynchronousUnixSocketChannel channel = AsynchronousUnixSocketChannel.open(group);
+      CompletableFuture<Void> connect = channel.connect(socketFile.toString());
+      // waits for the blocking connect's channel
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (countOpenFiles() < openFiles + 1 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      channel.close();
+
+      ExecutionException failure = assertThrows(ExecutionException.class, () -> connect.get(5, TimeUnit.SECONDS));
+      assertInstanceOf(AsynchronousCloseException.class, failure.getCause());
+      while (countOpenFiles() > openFiles && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(openFiles, countOpenFiles());
+    } finally {
+      for (SocketChannel channel : queued) {
+        channel.close();
+      }
+      Files.deleteIfExists(socketFile);
+    }
+  }
+
+  @Test
+  void timesOutTheBlockingConnect() throws Exception {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    List<SocketChannel> queued = new ArrayList<>();
+    try (UnixSocketEventLoopGroup group = new UnixSocketEventLoopGroup(1);
+         ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+         AsynchronousUnixSocketChannel channel = AsynchronousUnixSocketChannel.open(group)) {
+      fillBacklog(server, socketFile, queued);
+      channel.setConnectTimeout(Duration.ofMillis(200));
+
+      CompletableFuture<Void> connect = channel.connect(socketFile.toString());
+      ExecutionException failure = assertThrows(ExecutionException.class, () -> connect.get(5, TimeUnit.SECONDS));
+      assertInstanceOf(SocketTimeoutException.class, failure.getCause());
+      assertFalse(channel.isConnected());
+    } finally {
+      for (SocketChannel channel : queued) {
+        channel.close();
+      }
+      Files.deleteIfExists(socketFile);
+    }
+  }
+
+  /**
+   * Fills the backlog of the server, which never accepts, so that non-blocking connects fail and are retried as blocking connect.
+   */
+  private static void fillBacklog(ServerSocketChannel server, Path socketFile, List<SocketChannel> queued) throws IOException {
+    server.bind(UnixDomainSocketAddress.of(socketFile), 1);
+    while (queued.size() < 1000) {
+      SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+      queued.add(channel);
+      channel.configureBlocking(false);
+      try {
+        channel.connect(UnixDomainSocketAddress.of(socketFile));
+      } catch (IOException e) {
+        break;
+      }
+    }
+  }
+
+  private static long countOpenFiles() throws IOException {
+    try (Stream<Path> files = Files.list(Paths.get("/proc/self/fd"))) {
+      return files.count();
+    }
+  }
+
+  @Test
+  void servesManyConcurrentCallsOnTheSharedThreads() throws Exception {
+    int calls = 200;
+    Thread testThread = Thread.currentThread();
+    Set<Thread> completingThreads = ConcurrentHashMap.newKeySet();
+    CountDownLatch started = new CountDownLatch(calls);
+    try (UnixSocketTestServer server = UnixSocketTestServer.start(connection -> {
+      started.countDown();
+      try {
+        // answers only once all calls are in flight
+        if (!started.await(10, TimeUnit.SECONDS)) {
+          return;
+        }
+      } catch (InterruptedException e) {
+        return;
+      }
+      Channels.newOutputStream(connection).write("OK".getBytes(StandardCharsets.UTF_8));
+    })) {
+      List<AsynchronousUnixSocketChannel> channels = new ArrayList<>();
+      List<CompletableFuture<Integer>> responses = new ArrayList<>();
+      for (int i = 0; i < calls; i++) {
+        AsynchronousUnixSocketChannel channel = AsynchronousUnixSocketChannel.open();
+        channels.add(channel);
+        ByteBuffer response = ByteBuffer.allocate(2);
+        responses.add(channel.connect(server.getSocketFile().toString())
+                          .thenCompose(connected -> channel.read(response))
+                          .whenComplete((read, error) -> {
+                            // stages of already completed futures run on the test thread
+                            if (Thread.currentThread() != testThread) {
+                              completingThreads.add(Thread.currentThread());
+                            }
+                          }));
+      }
+      for (CompletableFuture<Integer> response : responses) {
+        assertEquals(2, response.get(10, TimeUnit.SECONDS));
+      }
+      for (AsynchronousUnixSocketChannel channel : channels) {
+        channel.close();
+      }
+      assertTrue(completingThreads.size() <= UnixSocketEventLoopGroup.SHARED_THREADS);
+    }
+  }
+}
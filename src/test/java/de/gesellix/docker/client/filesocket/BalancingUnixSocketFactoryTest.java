@@ -0,0 +1,156 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class BalancingUnixSocketFactoryTest {
+
+  @Test
+  void requiresEndpoints() {
+    assertThrows(IllegalArgumentException.class, () -> new BalancingUnixSocketFactory(List.of()));
+  }
+
+  @Test
+  void spreadsConnectionsByOpenConnections() throws Exception {
+    try (UnixSocketTestServer first = UnixSocketTestServer.echo();
+         UnixSocketTestServer second = UnixSocketTestServer.echo()) {
+      String firstPath = first.getSocketFile().toString();
+      String secondPath = second.getSocketFile().toString();
+      BalancingUnixSocketFactory factory = new BalancingUnixSocketFactory(List.of(firstPath, secondPath));
+      List<Socket> sockets = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        sockets.add(connect(factory));
+      }
+      assertEquals(2, factory.getOpenConnections(firstPath));
+      assertEquals(2, factory.getOpenConnections(secondPath));
+
+      Socket closed = sockets.stream()
+          .filter(socket -> firstPath.equals(((UnixSocket) socket).getSocketPath()))
+          .findFirst().orElseThrow();
+      closed.close();
+      closed.close();
+      assertEquals(1, factory.getOpenConnections(firstPath));
+      sockets.add(connect(factory));
+      assertEquals(2, factory.getOpenConnections(firstPath));
+
+      for (Socket socket : sockets) {
+        socket.close();
+      }
+      assertEquals(0, factory.getOpenConnections(firstPath));
+      assertEquals(0, factory.getOpenConnections(secondPath));
+    }
+  }
+
+  @Test
+  void takesFailingEndpointsOutOfRotationAndProbesThemBackIn() throws Exception {
+    Path missing = UnixSocketTestServer.newSocketPath();
+    try (UnixSocketTestServer available = UnixSocketTestServer.echo()) {
+      String availablePath = available.getSocketFile().toString();
+      BalancingUnixSocketFactory factory = new BalancingUnixSocketFactory(List.of(missing.toString(), availablePath));
+      factory.setBackoff(Duration.ofMillis(200), Duration.ofSeconds(1));
+
+      // the failed connect moves on to the other endpoint
+      try (Socket socket = connect(factory)) {
+        assertEquals(availablePath, ((UnixSocket) socket).getSocketPath());
+      }
+      assertFalse(factory.isInRotation(missing.toString()));
+      assertEquals(0, factory.getOpenConnections(missing.toString()));
+      try (Socket socket = connect(factory)) {
+        assertEquals(availablePath, ((UnixSocket) socket).getSocketPath());
+      }
+
+      try (UnixSocketTestServer restarted = UnixSocketTestServer.start(missing, connection -> {
+      })) {
+        Thread.sleep(250);
+        try (Socket socket = connect(factory)) {
+          assertEquals(restarted.getSocketFile().toString(), ((UnixSocket) socket).getSocketPath());
+        }
+        assertTrue(factory.isInRotation(missing.toString()));
+      }
+    }
+  }
+
+  @Test
+  void throwsWhenAllEndpointsFail() throws IOException {
+    BalancingUnixSocketFactory factory = new BalancingUnixSocketFactory(List.of(
+        UnixSocketTestServer.newSocketPath().toString(),
+        UnixSocketTestServer.newSocketPath().toString()));
+    Socket socket = factory.createSocket();
+    IOException failure = assertThrows(IOException.class, () -> socket.connect(address(factory), 1000));
+    assertEquals(1, failure.getSuppressed().length);
+    for (String socketPath : factory.getSocketPaths()) {
+      assertFalse(factory.isInRotation(socketPath));
+      assertEquals(0, factory.getOpenConnections(socketPath));
+    }
+  }
+
+  @Test
+  void keepsEndpointsRejectedByTheBulkheadInRotation() throws Exception {
+    assertBusyEndpointsStayInRotation(new FileSocketBulkhead(1, 0, Duration.ZERO));
+  }
+
+  @Test
+  void keepsEndpointsTimedOutByTheBulkheadInRotation() throws Exception {
+    assertBusyEndpointsStayInRotation(new FileSocketBulkhead(1, 1, Duration.ofMillis(50)));
+  }
+
+  private void assertBusyEndpointsStayInRotation(FileSocketBulkhead bulkhead) throws Exception {
+    try (UnixSocketTestServer first = UnixSocketTestServer.echo();
+         UnixSocketTestServer second = UnixSocketTestServer.echo()) {
+      String firstPath = first.getSocketFile().toString();
+      String secondPath = second.getSocketFile().toString();
+      BalancingUnixSocketFactory factory = new BalancingUnixSocketFactory(List.of(firstPath, secondPath));
+      factory.setBulkhead(bulkhead);
+      Socket firstSocket = connect(factory);
+      try (Socket secondSocket = connect(factory)) {
+        assertNotEquals(((UnixSocket) firstSocket).getSocketPath(), ((UnixSocket) secondSocket).getSocketPath());
+        // both endpoints are at the bulkhead's limit
+        IOException failure = assertThrows(IOException.class, () -> connect(factory));
+        assertTrue(FileSocketBulkhead.isBulkheadFailure(failure));
+        assertEquals(1, failure.getSuppressed().length);
+        for (String socketPath : factory.getSocketPaths()) {
+          assertTrue(factory.isInRotation(socketPath));
+          assertEquals(1, factory.getOpenConnections(socketPath));
+        }
+
+        String freedPath = ((UnixSocket) firstSocket).getSocketPath();
+        firstSocket.close();
+        try (Socket socket = connect(factory)) {
+          assertEquals(freedPath, ((UnixSocket) socket).getSocketPath());
+        }
+      } finally {
+        firstSocket.close();
+      }
+      assertEquals(0, factory.getOpenConnections(firstPath));
+      assertEquals(0, factory.getOpenConnections(secondPath));
+    }
+  }
+
+  private static Socket connect(BalancingUnixSocketFactory factory) throws IOException {
+    Socket socket = factory.createSocket();
+    socket.connect(address(factory), 1000);
+    return socket;
+  }
+
+  private static InetSocketAddress address(BalancingUnixSocketFactory factory) throws IOException {
+    InetAddress address = factory.lookup(factory.getHostname()).get(0);
+    return new InetSocketAddress(address, 0);
+  }
+}
@@ -0,0 +1,163 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+class CoalescingOutputStreamTest {
+
+  @Test
+  void coalescesSmallWritesIntoBatches() throws IOException {
+    RecordingOutputStream target = new RecordingOutputStream();
+    CoalescingOutputStream out = new CoalescingOutputStream(target, 64, Duration.ofMinutes(1));
+    for (int i = 0; i < 100; i++) {
+      out.write('a' + i % 26);
+    }
+    assertEquals(1, target.writes);
+    assertEquals(64, target.size());
+    assertEquals(36, out.getBufferedCount());
+
+    out.flush();
+    assertEquals(2, target.writes);
+    assertEquals(1, target.flushes);
+    assertEquals(100, target.size());
+  }
+
+  @Test
+  void passesLargeWritesThroughInOrder() throws IOException {
+    RecordingOutputStream target = new RecordingOutputStream();
+    CoalescingOutputStream out = new CoalescingOutputStream(target, 8, Duration.ofMinutes(1));
+    out.write("abc".getBytes(StandardCharsets.UTF_8));
+    out.write("defghijklmnop".getBytes(StandardCharsets.UTF_8));
+    assertEquals(2, target.writes);
+    assertEquals("abcdefghijklmnop", target.toString(StandardCharsets.UTF_8));
+    assertEquals(0, out.getBufferedCount());
+  }
+
+  @Test
+  void writesBufferedBytesAfterTheMaximumDelay() throws Exception {
+    RecordingOutputStream target = new RecordingOutputStream();
+    CoalescingOutputStream out = new CoalescingOutputStream(target, 1024, Duration.ofMillis(50));
+    long startedAt = System.nanoTime();
+    out.write("ls\n".getBytes(StandardCharsets.UTF_8));
+    assertEquals(0, target.size());
+
+    awaitCondition(() -> target.size() == 3);
+    assertTrue(System.nanoTime() - startedAt >= TimeUnit.MILLISECONDS.toNanos(50));
+    assertEquals(1, target.writes);
+    assertEquals(1, target.flushes);
+  }
+
+  @Test
+  void reportsFailedDelayedWritesOnTheNextCall() throws Exception {
+    RecordingOutputStream target = new RecordingOutputStream();
+    target.failure = new IOException("Broken pipe");
+    CoalescingOutputStream out = new CoalescingOutputStream(target, 1024, Duration.ofMillis(10));
+    out.write(42);
+
+    awaitCondition(() -> target.writes == 1);
+    IOException failure = assertThrows(IOException.class, () -> {
+      // the failure is recorded right after the write attempt
+      for (int i = 0; i < 100; i++) {
+        out.write(42);
+        Thread.sleep(10);
+      }
+    });
+    assertEquals(target.failure, failure.getCause());
+  }
+
+  @Test
+  void writesBufferedBytesOnClose() throws IOException {
+    RecordingOutputStream target = new RecordingOutputStream();
+    CoalescingOutputStream out = new CoalescingOutputStream(target, 1024, Duration.ofMinutes(1));
+    out.write(42);
+    out.close();
+    assertArrayEquals(new byte[]{42}, target.toByteArray());
+    assertTrue(target.closed);
+    assertThrows(IOException.class, () -> out.write(42));
+  }
+
+  @Test
+  @EnabledOnOs({OS.LINUX, OS.MAC})
+  void coalescesWritesOfSocketsCreatedByTheFactory() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocketFactory factory = new UnixSocketFactory()) {
+      factory.setWriteCoalescing(1024, Duration.ofMillis(20));
+      Socket socket = factory.createSocket();
+      socket.connect(server.address(), 5000);
+      OutputStream out = socket.getOutputStream();
+      for (byte b : "hello\n".getBytes(StandardCharsets.UTF_8)) {
+        out.write(b);
+      }
+      // arrives without an explicit flush, once the delay has passed
+      InputStream in = socket.getInputStream();
+      assertArrayEquals("hello\n".getBytes(StandardCharsets.UTF_8), UnixSocketTest.readFully(in, 6));
+
+      // the end of stdin follows the buffered bytes
+      out.write("bye".getBytes(StandardCharsets.UTF_8));
+      socket.shutdownOutput();
+      assertArrayEquals("bye".getBytes(StandardCharsets.UTF_8), UnixSocketTest.readFully(in, 3));
+      assertEquals(-1, in.read());
+      socket.close();
+    }
+  }
+
+  private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("condition not met within 5 seconds");
+      }
+      Thread.sleep(5);
+    }
+  }
+
+  private static class RecordingOutputStream extends ByteArrayOutputStream {
+
+    volatile int writes;
+    volatile int flushes;
+    volatile boolean closed;
+    volatile IOException failure;
+
+    @Override
+    public synchronized void write(int b) {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+      writes++;
+      if (failure == null) {
+        super.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (failure != null) {
+        throw failure;
+      }
+      flushes++;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+class ConnectRetryPolicyTest {
+
+  @Test
+  void doublesTheDelayUpToTheCap() {
+    ConnectRetryPolicy policy = new ConnectRetryPolicy(Duration.ofMinutes(1), Duration.ofMillis(10), Duration.ofMillis(50), 0.5, ConnectRetryPolicy::isTransient, () -> 0);
+    ConnectRetryPolicy.Attempts attempts = policy.start();
+    assertEquals(10, attempts.nextDelayMillis());
+    assertEquals(20, attempts.nextDelayMillis());
+    assertEquals(40, attempts.nextDelayMillis());
+    assertEquals(50, attempts.nextDelayMillis());
+    assertEquals(50, attempts.nextDelayMillis());
+
+    attempts.resetBackoff();
+    assertEquals(10, attempts.nextDelayMillis());
+  }
+
+  @Test
+  void shortensDelaysByTheJitter() {
+    ConnectRetryPolicy policy = new ConnectRetryPolicy(Duration.ofMinutes(1), Duration.ofMillis(100), Duration.ofMillis(100), 0.5, ConnectRetryPolicy::isTransient, () -> 0.999);
+    long delay = policy.start().nextDelayMillis();
+    assertTrue(delay >= 50 && delay < 100, "delay " + delay);
+  }
+
+  @Test
+  void limitsDelaysToTheDeadline() {
+    ConnectRetryPolicy policy = new ConnectRetryPolicy(Duration.ofMillis(30), Duration.ofSeconds(1), Duration.ofSeconds(1), 0);
+    ConnectRetryPolicy.Attempts attempts = policy.start();
+    assertTrue(attempts.nextDelayMillis() <= 30);
+  }
+
+  @Test
+  void classifiesTransientFailures() {
+    assertTrue(ConnectRetryPolicy.isTransient(new ConnectException("Connection refused")));
+    assertTrue(ConnectRetryPolicy.isTransient(new SocketException("Resource temporarily unavailable")));
+    assertTrue(ConnectRetryPolicy.isTransient(new NoSuchFileException("/var/run/docker.sock")));
+    assertTrue(ConnectRetryPolicy.isTransient(new FileSystemException("\\\\.\\pipe\\docker_engine", null, "All pipe instances are busy")));
+    assertFalse(ConnectRetryPolicy.isTransient(new SocketTimeoutException("Connect timed out")));
+    assertFalse(ConnectRetryPolicy.isTransient(new AccessDeniedException("/var/run/docker.sock")));
+    assertFalse(ConnectRetryPolicy.isTransient(new IOException("Unexpected")));
+  }
+
+  @Test
+  void failsOnTheFirstErrorWithoutTimeout() {
+    AtomicInteger attempts = new AtomicInteger();
+    IOException failure = new ConnectException("Connection refused");
+    IOException thrown = assertThrows(IOException.class, () -> ConnectRetryPolicy.NONE.connect(() -> {
+      attempts.incrementAndGet();
+      throw failure;
+    }));
+    assertSame(failure, thrown);
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  void failsOnErrorsWhichArentRetryable() {
+    AtomicInteger attempts = new AtomicInteger();
+    assertThrows(SocketTimeoutException.class, () -> ConnectRetryPolicy.retryFor(Duration.ofSeconds(10)).connect(() -> {
+      attempts.incrementAndGet();
+      throw new SocketTimeoutException("Connect timed out");
+    }));
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  void throwsTheLastFailureAfterTheDeadline() {
+    AtomicInteger attempts = new AtomicInteger();
+    long startedAt = System.nanoTime();
+    IOException thrown = assertThrows(IOException.class, () -> ConnectRetryPolicy.retryFor(Duration.ofMillis(200)).connect(() -> {
+      throw new ConnectException("attempt " + attempts.incrementAndGet());
+    }));
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    assertTrue(elapsedMillis >= 200 && elapsedMillis < 2000, "elapsed " + elapsedMillis);
+    assertTrue(attempts.get() > 2);
+    assertEquals("attempt " + attempts.get(), thrown.getMessage());
+  }
+
+  @Test
+  @EnabledOnOs({OS.LINUX, OS.MAC})
+  void connectsToAUnixSocketWhichAppearsLate() throws Exception {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    CompletableFuture<UnixSocketTestServer> server = CompletableFuture.supplyAsync(() -> {
+      try {
+        Thread.sleep(300);
+        return UnixSocketTestServer.start(socketFile, connection -> {
+        });
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    AtomicInteger attempts = new AtomicInteger();
+    try (UnixSocket socket = new UnixSocket()) {
+      ConnectRetryPolicy.retryFor(Duration.ofSeconds(10)).connect(() -> {
+        attempts.incrementAndGet();
+        socket.connect(UnixSocketTestServer.address(socketFile), 1000);
+      });
+      assertTrue(socket.isConnected());
+      assertTrue(attempts.get() > 1);
+    } finally {
+      server.get(5, TimeUnit.SECONDS).close();
+    }
+  }
+}
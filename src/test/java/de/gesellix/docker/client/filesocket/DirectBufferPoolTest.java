@@ -0,0 +1,72 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class DirectBufferPoolTest {
+
+  @Test
+  void reusesReleasedBuffersOnTheSameThread() {
+    DirectBufferPool pool = new DirectBufferPool(1024, 4, 0);
+    ByteBuffer first;
+    try (DirectBufferPool.Lease lease = pool.acquire()) {
+      first = lease.buffer();
+      assertTrue(first.isDirect());
+      assertEquals(1024, first.capacity());
+      first.put((byte) 42);
+      assertEquals(1, pool.getLeasedCount());
+    }
+    try (DirectBufferPool.Lease lease = pool.acquire()) {
+      assertSame(first, lease.buffer());
+      assertEquals(0, lease.buffer().position());
+    }
+    assertEquals(1, pool.getAllocationCount());
+    assertEquals(0, pool.getLeasedCount());
+  }
+
+  @Test
+  void keepsAtMostMaxPooledBuffers() {
+    DirectBufferPool pool = new DirectBufferPool(64, 2, 0);
+    List<DirectBufferPool.Lease> leases = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      leases.add(pool.acquire());
+    }
+    assertEquals(5, pool.getLeasedCount());
+    leases.forEach(DirectBufferPool.Lease::close);
+    assertTrue(pool.getPooledCount() <= 2);
+    assertEquals(0, pool.getLeasedCount());
+  }
+
+  @Test
+  void rejectsUseAfterRelease() {
+    DirectBufferPool pool = new DirectBufferPool(64, 2, 0);
+    DirectBufferPool.Lease lease = pool.acquire();
+    lease.close();
+    lease.close();
+    assertThrows(IllegalStateException.class, lease::buffer);
+    assertEquals(0, pool.getLeasedCount());
+  }
+
+  @Test
+  void detectsLeasesWhichHaveNotBeenClosed() throws InterruptedException {
+    DirectBufferPool pool = new DirectBufferPool(64, 2, 1);
+    pool.acquire().close();
+    pool.acquire();
+
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (pool.getLeakCount() == 0 && System.currentTimeMillis() < deadline) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertEquals(1, pool.getLeakCount());
+    assertEquals(0, pool.getLeasedCount());
+  }
+}
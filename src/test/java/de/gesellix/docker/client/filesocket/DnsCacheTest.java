@@ -0,0 +1,122 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import okhttp3.Dns;
+
+class DnsCacheTest {
+
+  private final AtomicLong now = new AtomicLong();
+  private final AtomicInteger resolved = new AtomicInteger();
+  private final AtomicBoolean known = new AtomicBoolean(true);
+
+  private final Dns delegate = hostname -> {
+    resolved.incrementAndGet();
+    if (!known.get()) {
+      throw new UnknownHostException(hostname);
+    }
+    return Collections.singletonList(InetAddress.getByAddress(hostname, new byte[]{10, 0, 0, (byte) resolved.get()}));
+  };
+
+  private DnsCache newCache(Duration positiveTtl, Duration negativeTtl) {
+    return new DnsCache(delegate, positiveTtl, negativeTtl, now::get, Runnable::run);
+  }
+
+  @Test
+  void cachesResolvedHostsForTheirTtl() throws Exception {
+    DnsCache cache = newCache(Duration.ofSeconds(10), Duration.ZERO);
+
+    List<InetAddress> first = cache.lookup("registry.example.com");
+    assertSame(first, cache.lookup("registry.example.com"));
+    assertEquals(1, resolved.get());
+
+    now.addAndGet(Duration.ofSeconds(10).toNanos());
+    cache.lookup("registry.example.com");
+    assertEquals(2, resolved.get());
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  void cachesUnknownHostsForTheNegativeTtl() {
+    DnsCache cache = newCache(Duration.ofSeconds(10), Duration.ofSeconds(1));
+    known.set(false);
+
+    assertThrows(UnknownHostException.class, () -> cache.lookup("unknown.example.com"));
+    assertThrows(UnknownHostException.class, () -> cache.lookup("unknown.example.com"));
+    assertEquals(1, resolved.get());
+
+    now.addAndGet(Duration.ofSeconds(1).toNanos());
+    assertThrows(UnknownHostException.class, () -> cache.lookup("unknown.example.com"));
+    assertEquals(2, resolved.get());
+  }
+
+  @Test
+  void doesNotCacheUnknownHostsWithoutNegativeTtl() {
+    DnsCache cache = newCache(Duration.ofSeconds(10), Duration.ZERO);
+    known.set(false);
+
+    assertThrows(UnknownHostException.class, () -> cache.lookup("unknown.example.com"));
+    assertThrows(UnknownHostException.class, () -> cache.lookup("unknown.example.com"));
+    assertEquals(2, resolved.get());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void refreshesPopularHostsBeforeTheyExpire() throws Exception {
+    DnsCache cache = newCache(Duration.ofSeconds(10), Duration.ZERO);
+    cache.lookup("registry.example.com");
+    cache.lookup("registry.example.com");
+
+    // within the refresh ahead window
+    now.addAndGet(Duration.ofSeconds(9).toNanos());
+    cache.lookup("registry.example.com");
+    assertEquals(2, resolved.get());
+    assertEquals(1, cache.getRefreshes());
+
+    // the refreshed entry is still valid after the original TTL
+    now.addAndGet(Duration.ofSeconds(5).toNanos());
+    assertEquals(10, cache.lookup("registry.example.com").get(0).getAddress()[0]);
+    assertEquals(2, resolved.get());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  void keepsTheEntryWhenRefreshingFails() throws Exception {
+    DnsCache cache = newCache(Duration.ofSeconds(10), Duration.ofSeconds(10));
+    List<InetAddress> addresses = cache.lookup("registry.example.com");
+    cache.lookup("registry.example.com");
+
+    known.set(false);
+    now.addAndGet(Duration.ofSeconds(9).toNanos());
+    assertSame(addresses, cache.lookup("registry.example.com"));
+    assertSame(addresses, cache.lookup("registry.example.com"));
+    assertEquals(0, cache.getRefreshes());
+  }
+
+  @Test
+  void isUsedByTheFactoryForHostnamesWithoutSocketMarker() throws Exception {
+    DnsCache cache = newCache(Duration.ofSeconds(10), Duration.ZERO);
+    UnixSocketFactory factory = new UnixSocketFactory();
+    factory.setDnsCache(cache);
+
+    factory.lookup("registry.example.com");
+    factory.lookup("registry.example.com");
+    factory.lookup(new UnixSocket().encodeHostname("/var/run/docker.sock"));
+    assertEquals(1, resolved.get());
+    assertEquals(1, cache.getHits());
+  }
+}
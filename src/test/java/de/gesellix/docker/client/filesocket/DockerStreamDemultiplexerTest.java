@@ -0,0 +1,93 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import okio.Buffer;
+
+class DockerStreamDemultiplexerTest {
+
+  private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+  @Test
+  void routesFramesToStdoutAndStderr() throws IOException {
+    Buffer frames = new Buffer();
+    frame(frames, 1, "out 1\n");
+    frame(frames, 2, "err 1\n");
+    frame(frames, 0, "in 1\n");
+    frame(frames, 1, "out 2\n");
+
+    long payload = new DockerStreamDemultiplexer(stdout, stderr).demultiplex(new ByteArrayInputStream(frames.readByteArray()));
+
+    assertEquals("out 1\nin 1\nout 2\n", stdout.toString(StandardCharsets.UTF_8));
+    assertEquals("err 1\n", stderr.toString(StandardCharsets.UTF_8));
+    assertEquals(23, payload);
+  }
+
+  @Test
+  void handlesFramesLargerThanTheBuffer() throws IOException {
+    byte[] large = new byte[300 * 1024];
+    Arrays.fill(large, (byte) 'x');
+    Buffer frames = new Buffer();
+    frame(frames, 1, large);
+    frame(frames, 2, new byte[0]);
+
+    new DockerStreamDemultiplexer(stdout, stderr).demultiplex(frames);
+
+    assertEquals(large.length, stdout.size());
+    assertEquals(0, stderr.size());
+  }
+
+  @Test
+  void discardsFramesWithoutSink() throws IOException {
+    Buffer frames = new Buffer();
+    frame(frames, 1, "out\n");
+    frame(frames, 2, "err\n");
+
+    new DockerStreamDemultiplexer(null, stderr).demultiplex(frames);
+
+    assertEquals("err\n", stderr.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void failsOnTruncatedFrames() {
+    Buffer payload = new Buffer();
+    frame(payload, 1, "out\n");
+    Buffer truncated = new Buffer();
+    truncated.write(payload, payload.size() - 2);
+    assertThrows(EOFException.class, () -> new DockerStreamDemultiplexer(stdout, stderr).demultiplex(truncated));
+
+    Buffer truncatedHeader = new Buffer().write(new byte[]{1, 0, 0});
+    assertThrows(EOFException.class, () -> new DockerStreamDemultiplexer(stdout, stderr).demultiplex(truncatedHeader));
+  }
+
+  @Test
+  void reportsDaemonErrors() {
+    Buffer frames = new Buffer();
+    frame(frames, 1, "out\n");
+    frame(frames, 3, "something went wrong");
+
+    IOException error = assertThrows(IOException.class, () -> new DockerStreamDemultiplexer(stdout, stderr).demultiplex(frames));
+    assertTrue(error.getMessage().contains("something went wrong"));
+    assertEquals("out\n", stdout.toString(StandardCharsets.UTF_8));
+  }
+
+  static void frame(Buffer frames, int streamType, String payload) {
+    frame(frames, streamType, payload.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static void frame(Buffer frames, int streamType, byte[] payload) {
+    frames.writeByte(streamType).writeByte(0).writeByte(0).writeByte(0).writeInt(payload.length).write(payload);
+  }
+}
@@ -0,0 +1,126 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+class FileSocketBulkheadTest {
+
+  private static final String SOCKET_PATH = "/var/run/docker.sock";
+
+  @Test
+  void rejectsConnectsWhenTheQueueIsFull() throws IOException {
+    FileSocketBulkhead bulkhead = new FileSocketBulkhead(1, 0, Duration.ofSeconds(10));
+    FileSocketBulkhead.Permit permit = bulkhead.acquire(SOCKET_PATH);
+    assertThrows(ConnectException.class, () -> bulkhead.acquire(SOCKET_PATH));
+    // other paths have their own limit
+    bulkhead.acquire("/run/user/1000/docker.sock").release();
+
+    permit.release();
+    permit.release();
+    bulkhead.acquire(SOCKET_PATH);
+    FileSocketBulkhead.PathMetrics metrics = bulkhead.getPathMetrics(SOCKET_PATH);
+    assertEquals(1, metrics.getOpenSockets());
+    assertEquals(1, metrics.getRejectedConnects());
+    assertEquals(0, metrics.getQueuedConnects());
+  }
+
+  @Test
+  void timesOutWaitingForASlot() throws IOException {
+    FileSocketBulkhead bulkhead = new FileSocketBulkhead(1, 1, Duration.ofMillis(50));
+    bulkhead.acquire(SOCKET_PATH);
+    assertThrows(SocketTimeoutException.class, () -> bulkhead.acquire(SOCKET_PATH));
+
+    FileSocketBulkhead.PathMetrics metrics = bulkhead.getPathMetrics(SOCKET_PATH);
+    assertEquals(1, metrics.getQueuedConnects());
+    assertEquals(1, metrics.getTimedOutConnects());
+    assertEquals(0, metrics.getQueueDepth());
+    assertTrue(metrics.getMaxWaitTimeMillis() >= 50);
+  }
+
+  @Test
+  void servesQueuedConnectsInArrivalOrder() throws Exception {
+    FileSocketBulkhead bulkhead = new FileSocketBulkhead(1, 3, Duration.ofSeconds(10));
+    FileSocketBulkhead.Permit permit = bulkhead.acquire(SOCKET_PATH);
+    List<Integer> served = new CopyOnWriteArrayList<>();
+    List<CompletableFuture<Void>> waiting = new CopyOnWriteArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      int id = i;
+      waiting.add(CompletableFuture.runAsync(() -> {
+        try {
+          FileSocketBulkhead.Permit next = bulkhead.acquire(SOCKET_PATH);
+          served.add(id);
+          next.release();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }));
+      UnixSocketFactoryTest.awaitCondition(() -> bulkhead.getPathMetrics(SOCKET_PATH).getQueueDepth() == id + 1);
+    }
+    permit.release();
+    CompletableFuture.allOf(waiting.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+    assertEquals(List.of(0, 1, 2), served);
+    assertEquals(3, bulkhead.getPathMetrics(SOCKET_PATH).getQueuedConnects());
+  }
+
+  @Test
+  @EnabledOnOs({OS.LINUX, OS.MAC})
+  void holdsSlotsUntilSocketsAreClosed() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocketFactory factory = new UnixSocketFactory()) {
+      FileSocketBulkhead bulkhead = new FileSocketBulkhead(1, 1, Duration.ofSeconds(10));
+      factory.setBulkhead(bulkhead);
+      String socketPath = server.getSocketFile().toString();
+
+      Socket first = factory.createSocket();
+      first.connect(server.address(), 1000);
+      Socket second = factory.createSocket();
+      CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+        try {
+          second.connect(server.address(), 1000);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      UnixSocketFactoryTest.awaitCondition(() -> bulkhead.getPathMetrics(socketPath).getQueueDepth() == 1);
+      assertFalse(second.isConnected());
+
+      first.close();
+      waiting.get(5, TimeUnit.SECONDS);
+      assertTrue(second.isConnected());
+      second.close();
+      assertEquals(0, bulkhead.getPathMetrics(socketPath).getOpenSockets());
+    }
+  }
+
+  @Test
+  @EnabledOnOs({OS.LINUX, OS.MAC})
+  void releasesSlotsOfFailedConnects() throws IOException {
+    try (UnixSocketFactory factory = new UnixSocketFactory()) {
+      FileSocketBulkhead bulkhead = new FileSocketBulkhead(1, 0, Duration.ZERO);
+      factory.setBulkhead(bulkhead);
+      InetSocketAddress missing = UnixSocketTestServer.address(UnixSocketTestServer.newSocketPath());
+      for (int i = 0; i < 2; i++) {
+        Socket socket = factory.createSocket();
+        IOException failure = assertThrows(IOException.class, () -> socket.connect(missing, 100));
+        assertFalse(failure instanceof ConnectException && failure.getMessage().startsWith("Too many"));
+      }
+    }
+  }
+}
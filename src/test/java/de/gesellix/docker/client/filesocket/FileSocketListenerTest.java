@@ -0,0 +1,129 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class FileSocketListenerTest {
+
+  private final List<String> events = new CopyOnWriteArrayList<>();
+
+  private final FileSocketListener listener = new FileSocketListener() {
+    @Override
+    public void connectStart(FileSocket socket, String socketPath) {
+      events.add("connectStart " + socketPath);
+    }
+
+    @Override
+    public void connectEnd(FileSocket socket, String socketPath, long durationNanos) {
+      events.add("connectEnd " + socketPath);
+    }
+
+    @Override
+    public void connectFailed(FileSocket socket, String socketPath, long durationNanos, IOException error) {
+      events.add("connectFailed " + socketPath);
+    }
+
+    @Override
+    public void firstByteRead(FileSocket socket) {
+      events.add("firstByteRead");
+    }
+
+    @Override
+    public void bytesRead(FileSocket socket, long byteCount) {
+      events.add("bytesRead " + byteCount);
+    }
+
+    @Override
+    public void bytesWritten(FileSocket socket, long byteCount) {
+      events.add("bytesWritten " + byteCount);
+    }
+
+    @Override
+    public void closed(FileSocket socket, CloseReason reason) {
+      events.add("closed " + reason);
+    }
+  };
+
+  @Test
+  void reportsConnectTrafficAndClose() throws IOException {
+    byte[] message = "ping".getBytes(StandardCharsets.UTF_8);
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocketFactory factory = new UnixSocketFactory()) {
+      factory.setListener(listener);
+      String socketPath = server.getSocketFile().toString();
+      Socket socket = factory.createSocket();
+      socket.connect(server.address(), 1000);
+      socket.getOutputStream().write(message);
+      assertArrayEquals(message, UnixSocketTest.readFully(socket.getInputStream(), message.length));
+      socket.close();
+      socket.close();
+
+      assertEquals(socketPath, ((FileSocket) socket).getSocketPath());
+      assertEquals(Arrays.asList(
+          "connectStart " + socketPath,
+          "connectEnd " + socketPath,
+          "bytesWritten 4",
+          "firstByteRead",
+          "bytesRead 4",
+          "closed LOCAL"), events);
+    }
+  }
+
+  @Test
+  void reportsCoalescedWritesOnceWritten() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocketFactory factory = new UnixSocketFactory()) {
+      factory.setListener(listener);
+      factory.setWriteCoalescing(1024, Duration.ofMillis(50));
+      try (Socket socket = factory.createSocket()) {
+        socket.connect(server.address(), 1000);
+        socket.getOutputStream().write("pi".getBytes(StandardCharsets.UTF_8));
+        socket.getOutputStream().write("ng".getBytes(StandardCharsets.UTF_8));
+        assertFalse(events.contains("bytesWritten 2"));
+        // the delayed flush writes both parts at once
+        assertArrayEquals("ping".getBytes(StandardCharsets.UTF_8), UnixSocketTest.readFully(socket.getInputStream(), 4));
+        UnixSocketFactoryTest.awaitCondition(() -> events.contains("bytesWritten 4"));
+        assertFalse(events.contains("bytesWritten 2"));
+      }
+    }
+  }
+
+  @Test
+  void reportsFailedConnect() throws IOException {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    try (UnixSocketFactory factory = new UnixSocketFactory()) {
+      factory.setListener(listener);
+      Socket socket = factory.createSocket();
+      assertThrows(IOException.class, () -> socket.connect(UnixSocketTestServer.address(socketFile), 1000));
+      assertEquals(Arrays.asList("connectStart " + socketFile, "connectFailed " + socketFile), events);
+    }
+  }
+
+  @Test
+  void doesNotWrapStreamsWithoutListener() throws IOException {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocketFactory factory = new UnixSocketFactory();
+         Socket socket = factory.createSocket()) {
+      socket.connect(server.address(), 1000);
+      assertSame(socket.getInputStream(), socket.getInputStream());
+      assertSame(socket.getOutputStream(), socket.getOutputStream());
+    }
+  }
+}
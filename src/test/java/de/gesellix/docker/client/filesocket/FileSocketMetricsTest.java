@@ -0,0 +1,104 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class FileSocketMetricsTest {
+
+  private final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+  private final FileSocketMetrics metrics = new FileSocketMetrics(mBeanServer);
+
+  @Test
+  void collectsStatisticsPerSocketPath() throws Exception {
+    byte[] message = "ping".getBytes(StandardCharsets.UTF_8);
+    try (UnixSocketTestServer server = UnixSocketTestServer.start(connection -> {
+      ByteBuffer buffer = ByteBuffer.allocate(message.length);
+      while (buffer.hasRemaining() && connection.read(buffer) != -1) {
+      }
+      buffer.flip();
+      connection.write(buffer);
+    });
+         UnixSocketFactory factory = new UnixSocketFactory()) {
+      factory.setListener(metrics);
+      String socketPath = server.getSocketFile().toString();
+
+      Socket endOfStream = factory.createSocket();
+      endOfStream.connect(server.address(), 1000);
+      endOfStream.getOutputStream().write(message);
+      InputStream in = endOfStream.getInputStream();
+      UnixSocketTest.readFully(in, message.length);
+      assertEquals(-1, in.read());
+
+      Socket local = factory.createSocket();
+      local.connect(server.address(), 1000);
+
+      FileSocketPathMetricsMXBean pathMetrics = metrics.getPathMetrics(socketPath);
+      assertEquals(2, pathMetrics.getOpenConnections());
+      endOfStream.close();
+      local.close();
+
+      assertEquals(0, pathMetrics.getOpenConnections());
+      assertEquals(2, pathMetrics.getConnects());
+      assertTrue(pathMetrics.getConnectsPerSecond() > 0);
+      assertEquals(2, pathMetrics.getConnectTimeHistogram().values().stream().mapToLong(Long::longValue).sum());
+      assertEquals(4, pathMetrics.getBytesWritten());
+      assertEquals(4, pathMetrics.getBytesRead());
+      assertEquals(1, pathMetrics.getCloseReasons().get("END_OF_STREAM"));
+      assertEquals(1, pathMetrics.getCloseReasons().get("LOCAL"));
+
+      ObjectName name = FileSocketMetrics.objectName(socketPath);
+      assertEquals(4L, mBeanServer.getAttribute(name, "BytesRead"));
+      TabularData closeReasons = (TabularData) mBeanServer.getAttribute(name, "CloseReasons");
+      CompositeData closedLocally = closeReasons.get(new Object[]{"LOCAL"});
+      assertEquals(1L, closedLocally.get("value"));
+    }
+  }
+
+  @Test
+  void countsConnectFailures() throws Exception {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    try (UnixSocketFactory factory = new UnixSocketFactory()) {
+      factory.setListener(metrics);
+      Socket socket = factory.createSocket();
+      assertThrows(IOException.class, () -> socket.connect(UnixSocketTestServer.address(socketFile), 1000));
+
+      FileSocketPathMetricsMXBean pathMetrics = metrics.getPathMetrics(socketFile.toString());
+      assertEquals(1, pathMetrics.getConnectFailures());
+      assertEquals(0, pathMetrics.getConnects());
+      assertEquals(0, pathMetrics.getOpenConnections());
+      assertTrue(mBeanServer.isRegistered(FileSocketMetrics.objectName(socketFile.toString())));
+    }
+  }
+
+  @Test
+  void bucketsConnectTimes() {
+    assertEquals(0, FileSocketPathMetrics.bucket(10));
+    assertEquals(4, FileSocketPathMetrics.bucket(1_000));
+    assertEquals(5, FileSocketPathMetrics.bucket(1_001));
+    assertEquals(FileSocketPathMetrics.CONNECT_TIME_BOUNDS_MICROS.length, FileSocketPathMetrics.bucket(5_000_000));
+
+    Map<String, Long> histogram = new FileSocketPathMetrics("/tmp/test.sock").getConnectTimeHistogram();
+    assertTrue(histogram.containsKey("<= 2.5ms"));
+    assertTrue(histogram.containsKey("> 1s"));
+  }
+}
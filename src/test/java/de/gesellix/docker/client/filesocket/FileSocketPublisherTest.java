@@ -0,0 +1,160 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class FileSocketPublisherTest {
+
+  private static final int STREAM_SIZE = 1024 * 1024;
+
+  private static UnixSocketTestServer streamingServer() throws Exception {
+    return UnixSocketTestServer.start(connection -> {
+      OutputStream out = Channels.newOutputStream(connection);
+      byte[] chunk = new byte[4096];
+      for (int written = 0; written < STREAM_SIZE; written += chunk.length) {
+        out.write(chunk);
+      }
+    });
+  }
+
+  @Test
+  void readsOnlyAsMuchAsRequestedWithJdkBackend() throws Exception {
+    assertBackpressure(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void readsOnlyAsMuchAsRequestedWithJunixsocketBackend() throws Exception {
+    assertBackpressure(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertBackpressure(UnixSocketBackend backend) throws Exception {
+    try (UnixSocketTestServer server = streamingServer();
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.connect(server.address(), 0);
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      new FileSocketPublisher(socket).subscribe(subscriber);
+
+      subscriber.subscription.request(1);
+      assertTrue(subscriber.firstItem.await(5, TimeUnit.SECONDS));
+      Thread.sleep(200);
+      assertEquals(1, subscriber.items.get());
+
+      subscriber.subscription.request(Long.MAX_VALUE);
+      subscriber.terminated.get(5, TimeUnit.SECONDS);
+      assertEquals(STREAM_SIZE, subscriber.bytes.get());
+      assertTrue(socket.isClosed());
+    }
+  }
+
+  @Test
+  void publishesDataReadAheadByTheStreams() throws Exception {
+    try (UnixSocketTestServer server = streamingServer();
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 0);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (socket.getInputStream().available() == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      new FileSocketPublisher(socket).subscribe(subscriber);
+
+      subscriber.subscription.request(Long.MAX_VALUE);
+      subscriber.terminated.get(5, TimeUnit.SECONDS);
+      assertEquals(STREAM_SIZE, subscriber.bytes.get());
+    }
+  }
+
+  @Test
+  void cancelClosesTheSocket() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 0);
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      new FileSocketPublisher(socket).subscribe(subscriber);
+      subscriber.subscription.request(10);
+
+      socket.getOutputStream().write(42);
+      assertTrue(subscriber.firstItem.await(5, TimeUnit.SECONDS));
+      subscriber.subscription.cancel();
+      assertTrue(socket.isClosed());
+      assertEquals(1, subscriber.bytes.get());
+    }
+  }
+
+  @Test
+  void signalsIllegalRequests() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 0);
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      new FileSocketPublisher(socket).subscribe(subscriber);
+
+      subscriber.subscription.request(0);
+      Throwable error = subscriber.terminated.handle((ignored, e) -> e).get(5, TimeUnit.SECONDS);
+      assertInstanceOf(IllegalArgumentException.class, error);
+      assertTrue(socket.isClosed());
+    }
+  }
+
+  @Test
+  void rejectsASecondSubscriber() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 0);
+      FileSocketPublisher publisher = new FileSocketPublisher(socket);
+      publisher.subscribe(new RecordingSubscriber());
+
+      RecordingSubscriber second = new RecordingSubscriber();
+      publisher.subscribe(second);
+      Throwable error = second.terminated.handle((ignored, e) -> e).get(5, TimeUnit.SECONDS);
+      assertInstanceOf(IllegalStateException.class, error);
+    }
+  }
+
+  static class RecordingSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+    volatile Flow.Subscription subscription;
+    final AtomicInteger items = new AtomicInteger();
+    final AtomicLong bytes = new AtomicLong();
+    final CountDownLatch firstItem = new CountDownLatch(1);
+    final CompletableFuture<Void> terminated = new CompletableFuture<>();
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+      items.incrementAndGet();
+      bytes.addAndGet(item.remaining());
+      firstItem.countDown();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      terminated.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      terminated.complete(null);
+    }
+  }
+}
@@ -1,8 +1,13 @@
 package de.gesellix.docker.client.filesocket;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
@@ -35,6 +40,31 @@ class FileSocketTest {
     }
   }
 
+  @Test
+  public void shouldCacheResolvedAddresses() throws Exception {
+    final String encodedHostname = "666f722e74657374.socket";
+    FileSocketAddress address = FileSocketAddress.resolve(encodedHostname);
+    assertSame(address, FileSocketAddress.resolve(encodedHostname));
+    assertEquals("for.test", address.getSocketPath());
+
+    List<InetAddress> lookup = new UnixSocketFactory().lookup(encodedHostname);
+    assertSame(lookup, new UnixSocketFactory().lookup(encodedHostname));
+    assertEquals(encodedHostname, lookup.get(0).getHostName());
+  }
+
+  @Test
+  public void shouldBoundTheAddressCache() {
+    for (int i = 0; i < FileSocketAddress.MAX_CACHED_ADDRESSES * 2; i++) {
+      FileSocketAddress.forSocketPath("/tmp/test-" + i + ".sock");
+    }
+    assertTrue(FileSocketAddress.cacheSize() <= FileSocketAddress.MAX_CACHED_ADDRESSES);
+  }
+
+  @Test
+  public void shouldRejectInvalidSocketHostnames() {
+    assertThrows(UnknownHostException.class, () -> new UnixSocketFactory().lookup("6g.socket"));
+  }
+
   static class TestSocket extends FileSocket {
   }
 
@@ -0,0 +1,194 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class FileTransfersTest {
+
+  private static final int FILE_SIZE = 5 * 1024 * 1024 + 17;
+
+  @TempDir
+  Path tempDir;
+
+  private Path file;
+  private UnixSocketTestServer server;
+
+  @BeforeEach
+  void setup() throws IOException {
+    byte[] content = new byte[FILE_SIZE];
+    new Random(42).nextBytes(content);
+    file = Files.write(tempDir.resolve("upload.tar"), content);
+
+    // replies with the number of received bytes and their checksum after the expected amount of bytes
+    server = UnixSocketTestServer.start(connection -> {
+      InputStream in = Channels.newInputStream(connection);
+      DataOutputStream out = new DataOutputStream(Channels.newOutputStream(connection));
+      while (true) {
+        DataInputStream header = new DataInputStream(in);
+        long expected;
+        try {
+          expected = header.readLong();
+        } catch (IOException e) {
+          return;
+        }
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        long received = 0;
+        while (received < expected) {
+          int read = in.read(buffer, 0, (int) Math.min(buffer.length, expected - received));
+          if (read == -1) {
+            break;
+          }
+          crc.update(buffer, 0, read);
+          received += read;
+        }
+        out.writeLong(received);
+        out.writeLong(crc.getValue());
+        out.flush();
+      }
+    });
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    server.close();
+  }
+
+  @Test
+  void sendsFileWithJdkBackend() throws IOException {
+    assertTransfersFile(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void sendsFileWithJunixsocketBackend() throws IOException {
+    assertTransfersFile(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  @Test
+  void sendsFileRegion() throws IOException {
+    try (UnixSocket socket = new UnixSocket();
+         FileChannel source = FileChannel.open(file)) {
+      socket.connect(server.address(), 1000);
+      DataOutputStream header = new DataOutputStream(socket.getOutputStream());
+      header.writeLong(1000);
+      header.flush();
+
+      assertEquals(1000, FileTransfers.sendFile(socket, source, 4096, 1000));
+      assertEquals(0, source.position());
+
+      CRC32 expected = new CRC32();
+      expected.update(Files.readAllBytes(file), 4096, 1000);
+      DataInputStream reply = new DataInputStream(socket.getInputStream());
+      assertEquals(1000, reply.readLong());
+      assertEquals(expected.getValue(), reply.readLong());
+    }
+  }
+
+  @Test
+  void sendsCoalescedHeaderBeforeTheFile() throws IOException {
+    AtomicLong bytesWritten = new AtomicLong();
+    AtomicInteger writesBlocked = new AtomicInteger();
+    try (UnixSocket socket = new UnixSocket();
+         FileChannel source = FileChannel.open(file)) {
+      socket.setListener(new FileSocketListener() {
+        @Override
+        public void bytesWritten(FileSocket socket, long byteCount) {
+          bytesWritten.addAndGet(byteCount);
+        }
+
+        @Override
+        public void writeBlocked(FileSocket socket, long durationNanos) {
+          writesBlocked.incrementAndGet();
+        }
+      });
+      // keeps the header in the batch until it's flushed
+      socket.setWriteCoalescing(64, Duration.ofMinutes(1));
+      socket.connect(server.address(), 1000);
+      new DataOutputStream(socket.getOutputStream()).writeLong(1000);
+
+      assertEquals(1000, FileTransfers.sendFile(socket, source, 4096, 1000));
+
+      CRC32 expected = new CRC32();
+      expected.update(Files.readAllBytes(file), 4096, 1000);
+      DataInputStream reply = new DataInputStream(socket.getInputStream());
+      assertEquals(1000, reply.readLong());
+      assertEquals(expected.getValue(), reply.readLong());
+      assertEquals(8 + 1000, bytesWritten.get());
+      assertEquals(2, writesBlocked.get());
+    }
+  }
+
+  @Test
+  void receivesFileWithJdkBackend() throws IOException {
+    assertReceivesFile(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void receivesFileWithJunixsocketBackend() throws IOException {
+    assertReceivesFile(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  @Test
+  void receivesLimitedRegion() throws IOException {
+    try (UnixSocketTestServer archiveServer = UnixSocketTestServer.start(connection -> Files.copy(file, Channels.newOutputStream(connection)));
+         UnixSocket socket = new UnixSocket();
+         FileChannel target = FileChannel.open(tempDir.resolve("region.tar"), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+      socket.connect(archiveServer.address(), 5000);
+
+      assertEquals(1000, FileTransfers.receiveFile(socket, target, 10, 1000));
+      assertEquals(1010, target.size());
+      assertEquals(0, target.position());
+    }
+  }
+
+  private void assertReceivesFile(UnixSocketBackend backend) throws IOException {
+    Path received = tempDir.resolve("received-" + backend + ".tar");
+    try (UnixSocketTestServer archiveServer = UnixSocketTestServer.start(connection -> Files.copy(file, Channels.newOutputStream(connection)));
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.connect(archiveServer.address(), 5000);
+
+      assertEquals(FILE_SIZE, FileTransfers.receiveFile(socket, received));
+    }
+    assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(received));
+  }
+
+  private void assertTransfersFile(UnixSocketBackend backend) throws IOException {
+    try (UnixSocket socket = new UnixSocket(backend)) {
+      socket.connect(server.address(), 5000);
+      DataOutputStream header = new DataOutputStream(socket.getOutputStream());
+      header.writeLong(FILE_SIZE);
+      header.flush();
+
+      assertEquals(FILE_SIZE, FileTransfers.sendFile(socket, file));
+
+      CRC32 expected = new CRC32();
+      expected.update(Files.readAllBytes(file));
+      DataInputStream reply = new DataInputStream(socket.getInputStream());
+      assertEquals(FILE_SIZE, reply.readLong());
+      assertEquals(expected.getValue(), reply.readLong());
+    }
+  }
+}
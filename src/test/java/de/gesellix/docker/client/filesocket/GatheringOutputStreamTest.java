@@ -0,0 +1,156 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+class GatheringOutputStreamTest {
+
+  @Test
+  void collectsWritesUntilFlush() throws IOException {
+    RecordingChannel channel = new RecordingChannel();
+    DirectBufferPool pool = new DirectBufferPool(1024, 1);
+    GatheringOutputStream out = new GatheringOutputStream(channel, pool);
+    out.write("POST /containers/json HTTP/1.1\r\n".getBytes(StandardCharsets.US_ASCII));
+    out.write("Content-Length: 2\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+    out.write('{');
+    out.write('}');
+    assertEquals(0, channel.writes);
+    assertEquals(55, out.getCollectedCount());
+
+    out.flush();
+    assertEquals(1, channel.writes);
+    assertEquals("POST /containers/json HTTP/1.1\r\nContent-Length: 2\r\n\r\n{}", channel.received.toString(StandardCharsets.US_ASCII));
+    // the buffer goes back to the pool between requests
+    assertEquals(0, pool.getLeasedCount());
+    assertEquals(0, out.getCollectedCount());
+  }
+
+  @Test
+  void sendsWritesWhichDontFitAlongWithCollectedBytes() throws IOException {
+    RecordingChannel channel = new RecordingChannel();
+    DirectBufferPool pool = new DirectBufferPool(16, 1);
+    GatheringOutputStream out = new GatheringOutputStream(channel, pool);
+    out.write("header\n".getBytes(StandardCharsets.US_ASCII));
+    out.write("a body larger than the buffer".getBytes(StandardCharsets.US_ASCII));
+
+    assertEquals(1, channel.writes);
+    assertEquals(2, channel.lastBufferCount);
+    assertEquals("header\na body larger than the buffer", channel.received.toString(StandardCharsets.US_ASCII));
+    assertEquals(0, pool.getLeasedCount());
+  }
+
+  @Test
+  void returnsTheBufferOnClose() throws IOException {
+    RecordingChannel channel = new RecordingChannel();
+    DirectBufferPool pool = new DirectBufferPool(1024, 1);
+    GatheringOutputStream out = new GatheringOutputStream(channel, pool);
+    out.write(42);
+    out.close();
+    assertArrayEquals(new byte[]{42}, channel.received.toByteArray());
+    assertEquals(0, pool.getLeasedCount());
+    assertThrows(IOException.class, () -> out.write(42));
+  }
+
+  @Test
+  @EnabledOnOs({OS.LINUX, OS.MAC})
+  void gathersWritesWithJdkBackend() throws IOException {
+    assertGatheredEcho(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  @EnabledOnOs({OS.LINUX, OS.MAC})
+  void gathersWritesWithJunixsocketBackend() throws IOException {
+    assertGatheredEcho(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertGatheredEcho(UnixSocketBackend backend) throws IOException {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocketFactory factory = new UnixSocketFactory(backend)) {
+      factory.setGatheringWrites(true);
+      UnixSocket socket = (UnixSocket) factory.createSocket();
+      socket.connect(server.address(), 1000);
+      OutputStream out = socket.getOutputStream();
+      InputStream in = socket.getInputStream();
+      out.write("GET /_ping HTTP/1.1\r\n".getBytes(StandardCharsets.US_ASCII));
+      out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+      assertEquals("GET /_ping HTTP/1.1\r\n\r\n", new String(UnixSocketTest.readFully(in, 23), StandardCharsets.US_ASCII));
+
+      // heap and direct buffers of a single gathering write
+      try (DirectBufferPool.Lease lease = DirectBufferPool.shared().acquire()) {
+        ByteBuffer body = lease.buffer().put("{}".getBytes(StandardCharsets.US_ASCII)).flip();
+        ByteBuffer[] request = {
+            ByteBuffer.wrap("POST /containers/create HTTP/1.1\r\n".getBytes(StandardCharsets.US_ASCII)),
+            ByteBuffer.wrap("Content-Length: 2\r\n\r\n".getBytes(StandardCharsets.US_ASCII)),
+            body};
+        assertEquals(57, socket.getWritableChannel().write(request));
+        assertTrue(!body.hasRemaining());
+      }
+      assertEquals("POST /containers/create HTTP/1.1\r\nContent-Length: 2\r\n\r\n{}", new String(UnixSocketTest.readFully(in, 57), StandardCharsets.US_ASCII));
+      socket.close();
+    }
+  }
+
+  private static class RecordingChannel implements GatheringByteChannel {
+
+    final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    int writes;
+    int lastBufferCount;
+    boolean open = true;
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+      writes++;
+      lastBufferCount = length;
+      long written = 0;
+      for (int i = offset; i < offset + length; i++) {
+        written += drain(srcs[i]);
+      }
+      return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      writes++;
+      lastBufferCount = 1;
+      return drain(src);
+    }
+
+    private int drain(ByteBuffer src) {
+      int count = src.remaining();
+      byte[] bytes = new byte[count];
+      src.get(bytes);
+      received.writeBytes(bytes);
+      return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() {
+      open = false;
+    }
+  }
+}
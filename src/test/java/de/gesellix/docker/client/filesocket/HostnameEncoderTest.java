@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class HostnameEncoderTest {
 
@@ -39,4 +40,22 @@ class HostnameEncoderTest {
     String label = new HostnameEncoder().decode(encoded);
     assertEquals("C:\\Users\\gesellix\\AppData\\Local\\Temp\\named-pipe9191419262972291772.tmp", label);
   }
+
+  @Test
+  @DisplayName("Should round trip non-ASCII paths and accept upper case hex")
+  void roundTripNonAscii(TestInfo testInfo) {
+    String label = "/tmp/dockér/docker.sock";
+    HostnameEncoder encoder = new HostnameEncoder();
+    String encoded = encoder.encode(label);
+    assertEquals(label, encoder.decode(encoded));
+    assertEquals(label, encoder.decode(encoded.toUpperCase()));
+  }
+
+  @Test
+  @DisplayName("Should reject invalid hex")
+  void rejectInvalidHex(TestInfo testInfo) {
+    HostnameEncoder encoder = new HostnameEncoder();
+    assertThrows(IllegalArgumentException.class, () -> encoder.decode("6e7"));
+    assertThrows(IllegalArgumentException.class, () -> encoder.decode("6g"));
+  }
 }
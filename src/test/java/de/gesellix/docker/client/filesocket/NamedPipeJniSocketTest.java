@@ -18,6 +18,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -47,6 +48,16 @@ import okio.Timeout;
 
 class NamedPipeJniSocketTest {
 
+  @Test
+  void keepsTheDefaultWaitsForBusyAndMissingPipes() throws IOException {
+    try (NamedPipeJniSocket namedPipeSocket = new NamedPipeJniSocket()) {
+      ConnectRetryPolicy policy = namedPipeSocket.getConnectRetryPolicy();
+      assertEquals(Duration.ofSeconds(10), policy.getTimeout());
+      assertEquals(Duration.ofMillis(50), policy.getInitialDelay());
+      assertEquals(Duration.ofMillis(500), policy.getMaxDelay());
+    }
+  }
+
   @Test
   @EnabledOnOs(OS.WINDOWS)
   void canConnect() throws IOException {
@@ -12,6 +12,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -21,9 +22,30 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import static java.net.InetAddress.getByAddress;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class NamedPipeSocketTest {
 
+  @Test
+  void derivesTheDefaultConnectRetryPolicyFromTheConnectTimeout() throws IOException {
+    try (NamedPipeSocket namedPipeSocket = new NamedPipeSocket()) {
+      assertEquals(Duration.ofSeconds(30), namedPipeSocket.getConnectRetryPolicy(30_000).getTimeout());
+      assertSame(ConnectRetryPolicy.DEFAULT, namedPipeSocket.getConnectRetryPolicy(500));
+      assertSame(ConnectRetryPolicy.DEFAULT, namedPipeSocket.getConnectRetryPolicy(0));
+      assertSame(ConnectRetryPolicy.DEFAULT, namedPipeSocket.getConnectRetryPolicy());
+    }
+  }
+
+  @Test
+  void prefersAnExplicitConnectRetryPolicyOverTheConnectTimeout() throws IOException {
+    try (NamedPipeSocket namedPipeSocket = new NamedPipeSocket()) {
+      ConnectRetryPolicy policy = ConnectRetryPolicy.retryFor(Duration.ofSeconds(2));
+      namedPipeSocket.setConnectRetryPolicy(policy);
+      assertSame(policy, namedPipeSocket.getConnectRetryPolicy(30_000));
+    }
+  }
+
   @Test
   @EnabledOnOs(OS.WINDOWS)
   void canConnect() throws IOException {
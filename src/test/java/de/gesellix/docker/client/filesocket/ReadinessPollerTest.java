@@ -0,0 +1,57 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ReadinessPollerTest {
+
+  @Test
+  void failsToAwaitOnAClosedLoop() throws Exception {
+    SelectorLoop loop = new SelectorLoop("closed-readiness-poller");
+    loop.close();
+    Pipe pipe = Pipe.open();
+    try (Pipe.SourceChannel source = pipe.source();
+         Pipe.SinkChannel ignored = pipe.sink()) {
+      source.configureBlocking(false);
+      ReadinessPoller.Registration registration = new ReadinessPoller(loop).newRegistration(source);
+      assertThrows(IOException.class, () -> registration.await(SelectionKey.OP_READ, 0));
+    }
+  }
+
+  @Test
+  void wakesUpWaitingThreadsWhenTheLoopShutsDown() throws Exception {
+    SelectorLoop loop = new SelectorLoop("closing-readiness-poller");
+    Pipe pipe = Pipe.open();
+    try (Pipe.SourceChannel source = pipe.source();
+         Pipe.SinkChannel ignored = pipe.sink()) {
+      source.configureBlocking(false);
+      ReadinessPoller.Registration registration = new ReadinessPoller(loop).newRegistration(source);
+      CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+        try {
+          registration.await(SelectionKey.OP_READ, 0);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (loop.registrations() == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      loop.close();
+
+      ExecutionException failure = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+      assertInstanceOf(IOException.class, failure.getCause().getCause());
+    } finally {
+      loop.close();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+class SelectorLoopTest {
+
+  @Test
+  void shutsDownAfterRepeatedSelectFailures() throws Exception {
+    FailingSelector selector = new FailingSelector(Selector.open());
+    SelectorLoop loop = new SelectorLoop("failing-selector-loop", selector);
+    long startedAt = System.nanoTime();
+    while (!loop.isClosed() && System.nanoTime() - startedAt < TimeUnit.SECONDS.toNanos(10)) {
+      Thread.sleep(10);
+    }
+    assertTrue(loop.isClosed());
+    assertEquals(SelectorLoop.MAX_SELECT_FAILURES, selector.selects.get());
+    assertThrows(IllegalStateException.class, () -> loop.execute(() -> {
+    }));
+  }
+
+  @Test
+  @EnabledOnOs({OS.LINUX, OS.MAC})
+  void failsQueuedRegistrationsOnClose() throws Exception {
+    SelectorLoop loop = new SelectorLoop("closing-selector-loop");
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.configureBlocking(false);
+      // keeps the loop busy, so that the registration is still queued when the loop is closed
+      loop.execute(() -> {
+        blocked.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      assertTrue(blocked.await(5, TimeUnit.SECONDS));
+      CompletableFuture<SelectionKey> registration = loop.register(channel, SelectionKey.OP_READ, key -> {
+      });
+      loop.close();
+      release.countDown();
+
+      ExecutionException failure = assertThrows(ExecutionException.class, () -> registration.get(5, TimeUnit.SECONDS));
+      assertInstanceOf(ClosedSelectorException.class, failure.getCause());
+    } finally {
+      release.countDown();
+      loop.close();
+    }
+  }
+
+  private static class FailingSelector extends Selector {
+
+    private final Selector delegate;
+    private final AtomicInteger selects = new AtomicInteger();
+
+    FailingSelector(Selector delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public int select() throws IOException {
+      selects.incrementAndGet();
+      throw new IOException("select failed");
+    }
+
+    @Override
+    public int select(long timeout) throws IOException {
+      return select();
+    }
+
+    @Override
+    public int selectNow() throws IOException {
+      return select();
+    }
+
+    @Override
+    public boolean isOpen() {
+      return delegate.isOpen();
+    }
+
+    @Override
+    public SelectorProvider provider() {
+      return delegate.provider();
+    }
+
+    @Override
+    public Set<SelectionKey> keys() {
+      return delegate.keys();
+    }
+
+    @Override
+    public Set<SelectionKey> selectedKeys() {
+      return delegate.selectedKeys();
+    }
+
+    @Override
+    public Selector wakeup() {
+      delegate.wakeup();
+      return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+}
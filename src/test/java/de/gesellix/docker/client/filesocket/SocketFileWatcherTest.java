@@ -0,0 +1,114 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.SocketException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class SocketFileWatcherTest {
+
+  @Test
+  void connectsOnceTheSocketFileAppears() throws Exception {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    UnixSocketFactory factory = new UnixSocketFactory();
+    factory.setConnectRetryPolicy(ConnectRetryPolicy.retryFor(Duration.ofSeconds(10)));
+
+    CompletableFuture<UnixSocketTestServer> server = startLater(socketFile, 300);
+    try (UnixSocket socket = (UnixSocket) factory.createSocket()) {
+      socket.connect(UnixSocketTestServer.address(socketFile), 1000);
+      assertTrue(socket.isConnected());
+    } finally {
+      server.get(5, TimeUnit.SECONDS).close();
+    }
+  }
+
+  @Test
+  void connectsOnceAStaleSocketFileHasBeenReplaced() throws Exception {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    // a socket file left behind by a stopped daemon refuses connections
+    ServerSocketChannel stale = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    stale.bind(UnixDomainSocketAddress.of(socketFile));
+    stale.close();
+    assertTrue(Files.exists(socketFile));
+
+    UnixSocketFactory factory = new UnixSocketFactory(UnixSocketBackend.JUNIXSOCKET);
+    factory.setConnectRetryPolicy(ConnectRetryPolicy.retryFor(Duration.ofSeconds(10)));
+    CompletableFuture<UnixSocketTestServer> server = CompletableFuture.supplyAsync(() -> {
+      try {
+        Thread.sleep(300);
+        Files.delete(socketFile);
+        return UnixSocketTestServer.start(socketFile, connection -> {
+        });
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    try (UnixSocket socket = (UnixSocket) factory.createSocket()) {
+      socket.connect(UnixSocketTestServer.address(socketFile), 1000);
+      assertTrue(socket.isConnected());
+    } finally {
+      server.get(5, TimeUnit.SECONDS).close();
+    }
+  }
+
+  @Test
+  void failsOnceTheTimeoutHasPassed() throws Exception {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    UnixSocketFactory factory = new UnixSocketFactory();
+    factory.setConnectRetryPolicy(ConnectRetryPolicy.retryFor(Duration.ofMillis(300)));
+
+    long startedAt = System.nanoTime();
+    try (UnixSocket socket = (UnixSocket) factory.createSocket()) {
+      assertThrows(SocketException.class, () -> socket.connect(UnixSocketTestServer.address(socketFile), 1000));
+    }
+    assertTrue(System.nanoTime() - startedAt >= TimeUnit.MILLISECONDS.toNanos(300));
+  }
+
+  @Test
+  void failsImmediatelyWithoutTimeout() throws Exception {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    try (UnixSocket socket = (UnixSocket) new UnixSocketFactory().createSocket()) {
+      assertThrows(SocketException.class, () -> socket.connect(UnixSocketTestServer.address(socketFile), 1000));
+    }
+  }
+
+  @Test
+  void doesNotWaitForSocketFilesWithoutPermission() throws Exception {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    assertTrue(SocketFileWatcher.isRetryable(socketFile));
+    Files.createFile(socketFile);
+    try {
+      Files.setPosixFilePermissions(socketFile, PosixFilePermissions.fromString("r--r--r--"));
+      assertEquals(Files.isWritable(socketFile), SocketFileWatcher.isRetryable(socketFile));
+    } finally {
+      Files.delete(socketFile);
+    }
+  }
+
+  private static CompletableFuture<UnixSocketTestServer> startLater(Path socketFile, long delayMillis) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        Thread.sleep(delayMillis);
+        return UnixSocketTestServer.start(socketFile, connection -> {
+        });
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+  }
+}
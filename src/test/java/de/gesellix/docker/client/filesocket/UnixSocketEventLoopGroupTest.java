@@ -0,0 +1,268 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class UnixSocketEventLoopGroupTest {
+
+  @Test
+  void deliversDataAndEndOfStream() throws Exception {
+    StringBuffer received = new StringBuffer();
+    CountDownLatch endOfStream = new CountDownLatch(1);
+    try (UnixSocketTestServer server = UnixSocketTestServer.start(connection -> {
+      Channels.newOutputStream(connection).write("line 1\nline 2\n".getBytes(StandardCharsets.UTF_8));
+    });
+         UnixSocketEventLoopGroup group = new UnixSocketEventLoopGroup(1);
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 1000);
+      group.register(socket, new UnixSocketEventLoopGroup.StreamHandler() {
+        @Override
+        public void onData(ByteBuffer data) {
+          received.append(StandardCharsets.UTF_8.decode(data));
+        }
+
+        @Override
+        public void onEndOfStream() {
+          endOfStream.countDown();
+        }
+      });
+
+      assertTrue(endOfStream.await(5, TimeUnit.SECONDS));
+      assertEquals("line 1\nline 2\n", received.toString());
+      assertTrue(socket.isClosed());
+    }
+  }
+
+  @Test
+  void deliversDataReadAheadByTheStreamsFirst() throws Exception {
+    StringBuffer received = new StringBuffer();
+    CountDownLatch endOfStream = new CountDownLatch(1);
+    try (UnixSocketTestServer server = UnixSocketTestServer.start(connection -> {
+      OutputStream out = Channels.newOutputStream(connection);
+      out.write("line 1\n".getBytes(StandardCharsets.UTF_8));
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException e) {
+        return;
+      }
+      out.write("line 2\n".getBytes(StandardCharsets.UTF_8));
+    });
+         UnixSocketEventLoopGroup group = new UnixSocketEventLoopGroup(1);
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 1000);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (socket.getInputStream().available() < 7 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertFalse(socket.isClosed());
+      assertFalse(socket.isPeerClosed());
+      group.register(socket, new UnixSocketEventLoopGroup.StreamHandler() {
+        @Override
+        public void onData(ByteBuffer data) {
+          received.append(StandardCharsets.UTF_8.decode(data));
+        }
+
+        @Override
+        public void onEndOfStream() {
+          endOfStream.countDown();
+        }
+      });
+
+      assertTrue(endOfStream.await(5, TimeUnit.SECONDS));
+      assertEquals("line 1\nline 2\n", received.toString());
+    }
+  }
+
+  @Test
+  void reportsReadsAndEndOfStreamToTheListener() throws Exception {
+    AtomicLong bytesRead = new AtomicLong();
+    AtomicInteger firstBytesRead = new AtomicInteger();
+    List<FileSocketListener.CloseReason> closeReasons = new CopyOnWriteArrayList<>();
+    CountDownLatch closed = new CountDownLatch(1);
+    try (UnixSocketTestServer server = UnixSocketTestServer.start(connection -> {
+      OutputStream out = Channels.newOutputStream(connection);
+      out.write("line 1\n".getBytes(StandardCharsets.UTF_8));
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException e) {
+        return;
+      }
+      out.write("line 2\n".getBytes(StandardCharsets.UTF_8));
+    });
+         UnixSocketEventLoopGroup group = new UnixSocketEventLoopGroup(1);
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.setListener(new FileSocketListener() {
+        @Override
+        public void firstByteRead(FileSocket socket) {
+          firstBytesRead.incrementAndGet();
+        }
+
+        @Override
+        public void bytesRead(FileSocket socket, long byteCount) {
+          bytesRead.addAndGet(byteCount);
+        }
+
+        @Override
+        public void closed(FileSocket socket, CloseReason reason) {
+          closeReasons.add(reason);
+          closed.countDown();
+        }
+      });
+      socket.connect(server.address(), 1000);
+      // the first line is read ahead and handed over on registration
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (socket.getInputStream().available() < 7 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      group.register(socket, data -> {
+      });
+
+      assertTrue(closed.await(5, TimeUnit.SECONDS));
+      assertEquals(14, bytesRead.get());
+      assertEquals(1, firstBytesRead.get());
+      assertEquals(List.of(FileSocketListener.CloseReason.END_OF_STREAM), closeReasons);
+    }
+  }
+
+  @Test
+  void closingTheRegistrationClosesTheSocket() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocketEventLoopGroup group = new UnixSocketEventLoopGroup(1);
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 1000);
+      Closeable registration = group.register(socket, data -> {
+      });
+      registration.close();
+
+      assertTrue(socket.isClosed());
+      UnixSocketFactoryTest.awaitCondition(() -> group.registrations() == 0);
+    }
+  }
+
+  @Test
+  void failsToRegisterOnAClosedGroup() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 1000);
+      UnixSocketEventLoopGroup group = new UnixSocketEventLoopGroup(2);
+      group.close();
+      assertThrows(IOException.class, () -> group.register(socket, data -> {
+      }));
+    }
+  }
+
+  @Test
+  void requiresJdkBackend() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocketEventLoopGroup group = new UnixSocketEventLoopGroup(1);
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JUNIXSOCKET)) {
+      socket.connect(server.address(), 1000);
+      assertThrows(UnsupportedOperationException.class, () -> group.register(socket, data -> {
+      }));
+    }
+  }
+
+  /**
+   * Load test, the number of streams can be raised via <code>./gradlew test -Dfilesocket.loadtest.streams=5000</code>.
+   * The default stays well below common file descriptor limits, as each stream needs one on both ends.
+   */
+  @Test
+  void followsManyStreamsOnAFixedNumberOfThreads() throws Exception {
+    int streams = Integer.getInteger("filesocket.loadtest.streams", 200);
+    int threads = 4;
+    byte[] message = "log line 0123456789\n".getBytes(StandardCharsets.UTF_8);
+    int messagesPerStream = 10;
+
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    List<SocketChannel> serverConnections = new CopyOnWriteArrayList<>();
+    List<UnixSocket> clients = new ArrayList<>(streams);
+    AtomicLong receivedBytes = new AtomicLong();
+    CountDownLatch endOfStreams = new CountDownLatch(streams);
+    Set<String> callbackThreads = ConcurrentHashMap.newKeySet();
+
+    try (ServerSocketChannel serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+         UnixSocketEventLoopGroup group = new UnixSocketEventLoopGroup(threads)) {
+      serverChannel.bind(UnixDomainSocketAddress.of(socketFile), streams);
+      Thread acceptor = new Thread(() -> {
+        try {
+          for (int i = 0; i < streams; i++) {
+            SocketChannel connection = serverChannel.accept();
+            serverConnections.add(connection);
+            for (int m = 0; m < messagesPerStream; m++) {
+              connection.write(ByteBuffer.wrap(message));
+            }
+          }
+        } catch (IOException ignored) {
+        }
+      });
+      acceptor.start();
+
+      UnixSocketEventLoopGroup.StreamHandler handler = new UnixSocketEventLoopGroup.StreamHandler() {
+        @Override
+        public void onData(ByteBuffer data) {
+          callbackThreads.add(Thread.currentThread().getName());
+          receivedBytes.addAndGet(data.remaining());
+        }
+
+        @Override
+        public void onEndOfStream() {
+          endOfStreams.countDown();
+        }
+      };
+      for (int i = 0; i < streams; i++) {
+        UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK);
+        clients.add(socket);
+        socket.connect(UnixSocketTestServer.address(socketFile), 5000);
+        group.register(socket, handler);
+      }
+
+      long expectedBytes = (long) streams * messagesPerStream * message.length;
+      UnixSocketFactoryTest.awaitCondition(() -> receivedBytes.get() == expectedBytes, 60_000);
+      assertEquals(streams, group.registrations());
+      assertTrue(callbackThreads.size() <= threads, "callbacks ran on " + callbackThreads);
+
+      acceptor.join(5_000);
+      for (SocketChannel connection : serverConnections) {
+        connection.close();
+      }
+      assertTrue(endOfStreams.await(60, TimeUnit.SECONDS));
+    } finally {
+      for (UnixSocket client : clients) {
+        client.close();
+      }
+      for (SocketChannel connection : serverConnections) {
+        connection.close();
+      }
+      Files.deleteIfExists(socketFile);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class UnixSocketFactoryTest {
+
+  private final List<SocketChannel> accepted = new CopyOnWriteArrayList<>();
+  private final AtomicInteger disconnected = new AtomicInteger();
+  private UnixSocketTestServer server;
+  private UnixSocketFactory factory;
+
+  @BeforeEach
+  void setup() throws IOException {
+    server = UnixSocketTestServer.start(connection -> {
+      accepted.add(connection);
+      InputStream in = Channels.newInputStream(connection);
+      OutputStream out = Channels.newOutputStream(connection);
+      byte[] buffer = new byte[1024];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      disconnected.incrementAndGet();
+    });
+    factory = new UnixSocketFactory();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    factory.close();
+    server.close();
+  }
+
+  @Test
+  void createsUnixSocket() {
+    assertTrue(factory.createSocket() instanceof UnixSocket);
+  }
+
+  @Test
+  void appliesDefaultSocketOptions() throws Exception {
+    factory.setDefaultSocketOption(StandardSocketOptions.SO_SNDBUF, 16 * 1024);
+    assertEquals(16 * 1024, factory.getDefaultSocketOption(StandardSocketOptions.SO_SNDBUF));
+    assertThrows(UnsupportedOperationException.class, () -> factory.setDefaultSocketOption(StandardSocketOptions.SO_KEEPALIVE, true));
+
+    try (Socket socket = factory.createSocket();
+         UnixSocket explicit = new UnixSocket()) {
+      socket.connect(server.address(), 1000);
+      explicit.connect(server.address(), 1000);
+      explicit.setSendBufferSize(16 * 1024);
+      assertEquals(explicit.getSendBufferSize(), socket.getSendBufferSize());
+      assertEchoes(socket);
+    }
+  }
+
+  @Test
+  void prewarmRequiresPrewarmedConnections() {
+    assertThrows(IllegalStateException.class, () -> factory.prewarm(server.getSocketFile().toString()));
+  }
+
+  @Test
+  void handsOutPrewarmedConnections() throws Exception {
+    factory.setPrewarmedConnections(2);
+    factory.prewarm(server.getSocketFile().toString());
+    awaitCondition(() -> accepted.size() == 2);
+
+    try (Socket socket = factory.createSocket()) {
+      socket.connect(server.address(), 1000);
+      assertEchoes(socket);
+      // the prewarmed connection has been handed out, a new one is refilled in the background
+      awaitCondition(() -> accepted.size() == 3);
+    }
+  }
+
+  @Test
+  void evictsConnectionsClosedByTheDaemon() throws Exception {
+    factory.setPrewarmedConnections(1);
+    factory.prewarm(server.getSocketFile().toString());
+    awaitCondition(() -> accepted.size() == 1);
+
+    accepted.get(0).close();
+    // the background maintenance evicts and replaces the closed connection
+    awaitCondition(() -> accepted.size() == 2);
+
+    try (Socket socket = factory.createSocket()) {
+      socket.connect(server.address(), 1000);
+      assertEchoes(socket);
+    }
+  }
+
+  @Test
+  void keepsSocketPathWarmAfterFirstConnect() throws Exception {
+    factory.setPrewarmedConnections(1);
+    try (Socket socket = factory.createSocket()) {
+      socket.connect(server.address(), 1000);
+      assertEchoes(socket);
+    }
+    // the first connection plus one prewarmed
+    awaitCondition(() -> accepted.size() == 2);
+  }
+
+  @Test
+  void stopsKeepingUnusedSocketPathsWarm() throws Exception {
+    factory.setPrewarmedConnections(1, Duration.ofMillis(100));
+    factory.prewarm(server.getSocketFile().toString());
+    awaitCondition(() -> accepted.size() == 1);
+
+    // the background maintenance closes the idle connection of the unused path
+    awaitCondition(() -> disconnected.get() == 1);
+    Thread.sleep(2 * PrewarmedUnixSocketPool.MAINTENANCE_INTERVAL_MILLIS);
+    assertEquals(1, accepted.size());
+  }
+
+  private static void assertEchoes(Socket socket) throws IOException {
+    byte[] message = "ping".getBytes(StandardCharsets.UTF_8);
+    socket.getOutputStream().write(message);
+    socket.getOutputStream().flush();
+    assertArrayEquals(message, UnixSocketTest.readFully(socket.getInputStream(), message.length));
+  }
+
+  static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    awaitCondition(condition, 5_000);
+  }
+
+  static void awaitCondition(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("condition not met in time");
+      }
+      Thread.sleep(20);
+    }
+  }
+}
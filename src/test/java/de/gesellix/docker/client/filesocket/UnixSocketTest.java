@@ -0,0 +1,600 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class UnixSocketTest {
+
+  @Test
+  @DisplayName("Prefers the JDK backend")
+  void prefersJdkBackend() {
+    assertEquals(UnixSocketBackend.JDK, UnixSocketBackend.preferred());
+    assertEquals(UnixSocketBackend.JDK, new UnixSocketFactory().getBackend());
+  }
+
+  @Test
+  void echoesWithJdkBackend() throws IOException {
+    assertEcho(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void echoesWithJunixsocketBackend() throws IOException {
+    assertEcho(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertEcho(UnixSocketBackend backend) throws IOException {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.connect(server.address(), 1000);
+      assertTrue(socket.isConnected());
+
+      byte[] message = "hello unix socket".getBytes(StandardCharsets.UTF_8);
+      socket.getOutputStream().write(message);
+      socket.getOutputStream().flush();
+
+      assertArrayEquals(message, readFully(socket.getInputStream(), message.length));
+    }
+  }
+
+  @Test
+  void readTimesOutWithJdkBackend() throws IOException {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 1000);
+      socket.setSoTimeout(200);
+      assertThrows(SocketTimeoutException.class, () -> socket.getInputStream().read());
+      // the connection is still usable after a timeout
+      socket.getOutputStream().write(42);
+      assertEquals(42, socket.getInputStream().read());
+    }
+  }
+
+  @Test
+  void closeUnblocksPendingReadWithJdkBackend() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 0);
+      InputStream inputStream = socket.getInputStream();
+      CompletableFuture<Integer> pendingRead = CompletableFuture.supplyAsync(() -> {
+        try {
+          return inputStream.read();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      Thread.sleep(100);
+      socket.close();
+
+      ExecutionException failure = assertThrows(ExecutionException.class, () -> pendingRead.get(5, TimeUnit.SECONDS));
+      assertTrue(failure.getCause().getCause() instanceof SocketException);
+      assertTrue(socket.isClosed());
+    }
+  }
+
+  @Test
+  void echoesViaChannelsWithJdkBackend() throws IOException {
+    assertChannelEcho(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void echoesViaChannelsWithJunixsocketBackend() throws IOException {
+    assertChannelEcho(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertChannelEcho(UnixSocketBackend backend) throws IOException {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.connect(server.address(), 1000);
+      WritableByteChannel out = socket.getWritableChannel();
+      ReadableByteChannel in = socket.getReadableChannel();
+
+      byte[] message = new byte[3 * DirectBufferPool.DEFAULT_BUFFER_SIZE + 17];
+      for (int i = 0; i < message.length; i++) {
+        message[i] = (byte) i;
+      }
+      // heap buffers are copied through pooled direct buffers
+      assertEquals(message.length, out.write(ByteBuffer.wrap(message)));
+      ByteBuffer received = ByteBuffer.allocate(message.length);
+      while (received.hasRemaining()) {
+        assertTrue(in.read(received) > 0);
+      }
+      assertArrayEquals(message, received.array());
+
+      try (DirectBufferPool.Lease lease = DirectBufferPool.shared().acquire()) {
+        ByteBuffer buffer = lease.buffer();
+        buffer.put(message, 0, 100).flip();
+        assertEquals(100, out.write(buffer));
+        buffer.clear().limit(100);
+        while (buffer.hasRemaining()) {
+          assertTrue(in.read(buffer) > 0);
+        }
+        assertEquals(message[99], buffer.get(99));
+      }
+    }
+  }
+
+  @Test
+  void channelReadTimesOutWithJdkBackend() throws IOException {
+    assertChannelReadTimesOut(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void channelReadTimesOutWithJunixsocketBackend() throws IOException {
+    assertChannelReadTimesOut(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertChannelReadTimesOut(UnixSocketBackend backend) throws IOException {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.connect(server.address(), 1000);
+      socket.setSoTimeout(200);
+      ReadableByteChannel in = socket.getReadableChannel();
+      assertThrows(SocketTimeoutException.class, () -> in.read(ByteBuffer.allocateDirect(16)));
+      in.close();
+      assertTrue(socket.isClosed());
+    }
+  }
+
+  @Test
+  void connectTimeoutDoesNotLimitReadsWithJdkBackend() throws IOException {
+    assertConnectTimeoutDoesNotLimitReads(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void connectTimeoutDoesNotLimitReadsWithJunixsocketBackend() throws IOException {
+    assertConnectTimeoutDoesNotLimitReads(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertConnectTimeoutDoesNotLimitReads(UnixSocketBackend backend) throws IOException {
+    try (UnixSocketTestServer server = UnixSocketTestServer.start(connection -> {
+      try {
+        Thread.sleep(300);
+      } catch (InterruptedException e) {
+        return;
+      }
+      connection.write(ByteBuffer.wrap(new byte[]{42}));
+    });
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.connect(server.address(), 100);
+      assertEquals(0, socket.getSoTimeout());
+      assertEquals(42, socket.getInputStream().read());
+    }
+  }
+
+  @Test
+  void writeTimesOutWhenTheDaemonDoesNotReadWithJdkBackend() throws Exception {
+    assertWriteTimesOut(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void writeTimesOutWhenTheDaemonDoesNotReadWithJunixsocketBackend() throws Exception {
+    assertWriteTimesOut(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertWriteTimesOut(UnixSocketBackend backend) throws Exception {
+    try (UnixSocketTestServer server = stuckDaemon();
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.setWriteTimeout(200);
+      socket.connect(server.address(), 1000);
+      assertEquals(200, socket.getWriteTimeout());
+      OutputStream out = socket.getOutputStream();
+      CompletableFuture<Void> pendingWrites = CompletableFuture.runAsync(() -> {
+        try {
+          byte[] chunk = new byte[64 * 1024];
+          while (true) {
+            out.write(chunk);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+
+      ExecutionException failure = assertThrows(ExecutionException.class, () -> pendingWrites.get(5, TimeUnit.SECONDS));
+      assertTrue(failure.getCause().getCause() instanceof SocketTimeoutException);
+    }
+  }
+
+  @Test
+  void echoesViaOkioWithJdkBackend() throws IOException {
+    assertOkioEcho(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void echoesViaOkioWithJunixsocketBackend() throws IOException {
+    assertOkioEcho(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertOkioEcho(UnixSocketBackend backend) throws IOException {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.connect(server.address(), 1000);
+      BufferedSink sink = Okio.buffer(socket.sink());
+      BufferedSource source = Okio.buffer(socket.source());
+
+      String message = "hello okio ".repeat(20_000);
+      CompletableFuture<String> echo = CompletableFuture.supplyAsync(() -> {
+        try {
+          return source.readUtf8(message.length());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      sink.writeUtf8(message).flush();
+      assertEquals(message, echo.join());
+    }
+  }
+
+  @Test
+  void sourceDeadlineLimitsReadsWithJdkBackend() throws IOException {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 1000);
+      socket.getOutputStream().write(42);
+      Source source = socket.source();
+      source.timeout().deadline(300, TimeUnit.MILLISECONDS);
+
+      Buffer buffer = new Buffer();
+      assertEquals(1, source.read(buffer, 16));
+      long startedAt = System.nanoTime();
+      assertThrows(SocketTimeoutException.class, () -> source.read(buffer, 16));
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 1000);
+
+      // the connection is still usable without the deadline
+      source.timeout().clearDeadline();
+      socket.getOutputStream().write(43);
+      assertEquals(1, source.read(buffer, 16));
+      assertEquals(42, buffer.readByte());
+      assertEquals(43, buffer.readByte());
+    }
+  }
+
+  @Test
+  void sinkTimeoutLimitsWritesToAStuckDaemonWithJdkBackend() throws IOException {
+    try (UnixSocketTestServer server = stuckDaemon();
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 1000);
+      Sink sink = socket.sink();
+      sink.timeout().timeout(200, TimeUnit.MILLISECONDS);
+      Buffer chunk = new Buffer();
+      assertThrows(SocketTimeoutException.class, () -> {
+        while (true) {
+          chunk.write(new byte[64 * 1024]);
+          sink.write(chunk, chunk.size());
+        }
+      });
+    }
+  }
+
+  /**
+   * Accepts connections, but doesn't read from them.
+   */
+  private static UnixSocketTestServer stuckDaemon() throws IOException {
+    return UnixSocketTestServer.start(connection -> {
+      try {
+        Thread.sleep(30_000);
+      } catch (InterruptedException ignored) {
+      }
+    });
+  }
+
+  /**
+   * Simulates a hijacked <code>exec</code> session, which processes stdin until its end and then writes its last output.
+   */
+  private static UnixSocketTestServer hijackedExec() throws IOException {
+    return UnixSocketTestServer.start(connection -> {
+      InputStream in = Channels.newInputStream(connection);
+      OutputStream out = Channels.newOutputStream(connection);
+      StringBuilder request = new StringBuilder();
+      while (!request.toString().endsWith("\r\n\r\n")) {
+        int read = in.read();
+        if (read == -1) {
+          return;
+        }
+        request.append((char) read);
+      }
+      out.write(("HTTP/1.1 101 UPGRADED\r\n"
+                 + "Content-Type: application/vnd.docker.raw-stream\r\n"
+                 + "Connection: Upgrade\r\n"
+                 + "Upgrade: tcp\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+      byte[] buffer = new byte[1024];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(new String(buffer, 0, read, StandardCharsets.UTF_8).toUpperCase().getBytes(StandardCharsets.UTF_8));
+      }
+      out.write("exit 0\n".getBytes(StandardCharsets.UTF_8));
+    });
+  }
+
+  @Test
+  void shutdownOutputEndsStdinOfHijackedSessionWithJdkBackend() throws IOException {
+    assertShutdownOutputEndsStdin(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void shutdownOutputEndsStdinOfHijackedSessionWithJunixsocketBackend() throws IOException {
+    assertShutdownOutputEndsStdin(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertShutdownOutputEndsStdin(UnixSocketBackend backend) throws IOException {
+    try (UnixSocketTestServer server = hijackedExec();
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.connect(server.address(), 5000);
+      OutputStream out = socket.getOutputStream();
+      InputStream in = socket.getInputStream();
+      out.write(("POST /exec/4711/start HTTP/1.1\r\n"
+                 + "Host: localhost\r\n"
+                 + "Connection: Upgrade\r\n"
+                 + "Upgrade: tcp\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+      String response = readUntil(in, "\r\n\r\n");
+      assertTrue(response.startsWith("HTTP/1.1 101"), response);
+
+      out.write("hello\n".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+      socket.shutdownOutput();
+      assertTrue(socket.isOutputShutdown());
+      assertFalse(socket.isInputShutdown());
+      assertThrows(SocketException.class, () -> out.write(42));
+      assertThrows(SocketException.class, socket::shutdownOutput);
+
+      // the session ends right away instead of waiting for a timeout
+      assertEquals("HELLO\nexit 0\n", readUntil(in, null));
+      assertFalse(socket.isClosed());
+    }
+  }
+
+  @Test
+  void shutdownInputEndsPendingReadWithJdkBackend() throws Exception {
+    assertShutdownInputEndsPendingRead(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void shutdownInputEndsPendingReadWithJunixsocketBackend() throws Exception {
+    assertShutdownInputEndsPendingRead(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertShutdownInputEndsPendingRead(UnixSocketBackend backend) throws Exception {
+    CompletableFuture<Integer> received = new CompletableFuture<>();
+    try (UnixSocketTestServer server = UnixSocketTestServer.start(connection -> received.complete(Channels.newInputStream(connection).read()));
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.connect(server.address(), 0);
+      InputStream inputStream = socket.getInputStream();
+      CompletableFuture<Integer> pendingRead = CompletableFuture.supplyAsync(() -> {
+        try {
+          return inputStream.read();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      Thread.sleep(100);
+      socket.shutdownInput();
+
+      assertEquals(-1, pendingRead.get(5, TimeUnit.SECONDS));
+      assertEquals(-1, inputStream.read());
+      assertTrue(socket.isInputShutdown());
+      // the socket can still send
+      socket.getOutputStream().write(42);
+      assertEquals(42, received.get(5, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void delegatesSocketOptionsWithJdkBackend() throws IOException {
+    assertSocketOptions(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void delegatesSocketOptionsWithJunixsocketBackend() throws IOException {
+    assertSocketOptions(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertSocketOptions(UnixSocketBackend backend) throws IOException {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.setReceiveBufferSize(16 * 1024);
+      socket.setSoTimeout(200);
+      assertEquals(16 * 1024, socket.getReceiveBufferSize());
+      socket.connect(server.address(), 0);
+
+      // the kernel may round or double the requested sizes
+      int small = socket.getReceiveBufferSize();
+      assertTrue(small >= 16 * 1024, "SO_RCVBUF " + small);
+      socket.setReceiveBufferSize(64 * 1024);
+      assertTrue(socket.getReceiveBufferSize() > small);
+      socket.setSendBufferSize(16 * 1024);
+      int smallSend = socket.getSendBufferSize();
+      socket.setOption(StandardSocketOptions.SO_SNDBUF, 64 * 1024);
+      assertTrue(socket.getOption(StandardSocketOptions.SO_SNDBUF) > smallSend);
+
+      // the read timeout set before connect replaces the connect timeout
+      assertEquals(200, socket.getSoTimeout());
+      assertThrows(SocketTimeoutException.class, () -> socket.getInputStream().read());
+      socket.setSoTimeout(0);
+      assertEquals(0, socket.getSoTimeout());
+
+      assertThrows(UnsupportedOperationException.class, () -> socket.setOption(StandardSocketOptions.TCP_NODELAY, true));
+      socket.setKeepAlive(true);
+      assertFalse(socket.getKeepAlive());
+      assertEquals(server.address(), socket.getRemoteSocketAddress());
+    }
+  }
+
+  @Test
+  void reportsAvailableBytesWithJdkBackend() throws Exception {
+    assertAvailable(UnixSocketBackend.JDK);
+  }
+
+  @Test
+  void reportsAvailableBytesWithJunixsocketBackend() throws Exception {
+    assertAvailable(UnixSocketBackend.JUNIXSOCKET);
+  }
+
+  private void assertAvailable(UnixSocketBackend backend) throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(backend)) {
+      socket.connect(server.address(), 1000);
+      InputStream in = socket.getInputStream();
+      assertEquals(0, in.available());
+
+      byte[] message = "hello".getBytes(StandardCharsets.UTF_8);
+      socket.getOutputStream().write(message);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (in.available() < message.length && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(message.length, in.available());
+      assertArrayEquals(message, readFully(in, message.length));
+      assertEquals(0, in.available());
+    }
+  }
+
+  @Test
+  void probesIdleConnectionWithoutConsumingDataWithJdkBackend() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 1000);
+      assertFalse(socket.isPeerClosed());
+      assertFalse(socket.isClosed());
+      assertFalse(socket.isInputShutdown());
+
+      socket.getOutputStream().write("ping".getBytes(StandardCharsets.UTF_8));
+      Thread.sleep(100);
+      assertFalse(socket.isPeerClosed());
+      assertEquals("ping", new String(readFully(socket.getInputStream(), 4), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void detectsConnectionClosedByTheDaemonWithJdkBackend() throws Exception {
+    try (UnixSocketTestServer server = UnixSocketTestServer.start(connection -> connection.write(ByteBuffer.wrap("bye".getBytes(StandardCharsets.UTF_8))));
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 1000);
+      InputStream in = socket.getInputStream();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (in.available() < 3 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      // the remaining response comes first
+      assertFalse(socket.isPeerClosed());
+      assertEquals("bye", new String(readFully(in, 3), StandardCharsets.UTF_8));
+
+      // OkHttp's reuse check
+      while (!socket.isInputShutdown() && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertTrue(socket.isInputShutdown());
+      assertTrue(socket.isPeerClosed());
+      assertFalse(socket.isClosed());
+      assertEquals(-1, in.read());
+    }
+  }
+
+  @Test
+  void connectTimesOutWhenTheAcceptBacklogIsFullWithJdkBackend() throws IOException {
+    Path socketFile = UnixSocketTestServer.newSocketPath();
+    List<SocketChannel> queued = new ArrayList<>();
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(socketFile), 1);
+      // fills the backlog of the server, which never accepts
+      while (queued.size() < 1000) {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        queued.add(channel);
+        channel.configureBlocking(false);
+        try {
+          channel.connect(UnixDomainSocketAddress.of(socketFile));
+        } catch (IOException e) {
+          break;
+        }
+      }
+
+      try (UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+        long startedAt = System.nanoTime();
+        assertThrows(SocketTimeoutException.class, () -> socket.connect(UnixSocketTestServer.address(socketFile), 300));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 5000);
+        assertFalse(socket.isConnected());
+      }
+    } finally {
+      for (SocketChannel channel : queued) {
+        channel.close();
+      }
+      Files.deleteIfExists(socketFile);
+    }
+  }
+
+  @Test
+  void failsWithoutServer() throws IOException {
+    try (UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      assertThrows(IOException.class, () -> socket.connect(UnixSocketTestServer.address(UnixSocketTestServer.newSocketPath()), 100));
+    }
+  }
+
+  /**
+   * @param terminator <code>null</code> reads until the end of stream
+   */
+  private static String readUntil(InputStream inputStream, String terminator) throws IOException {
+    StringBuilder result = new StringBuilder();
+    while (terminator == null || !result.toString().endsWith(terminator)) {
+      int read = inputStream.read();
+      if (read == -1) {
+        if (terminator != null) {
+          throw new IOException("Unexpected end of stream after " + result);
+        }
+        break;
+      }
+      result.append((char) read);
+    }
+    return result.toString();
+  }
+
+  static byte[] readFully(InputStream inputStream, int length) throws IOException {
+    byte[] result = new byte[length];
+    int offset = 0;
+    while (offset < length) {
+      int read = inputStream.read(result, offset, length - offset);
+      if (read == -1) {
+        throw new IOException("Unexpected end of stream after " + offset + " bytes");
+      }
+      offset += read;
+    }
+    return result;
+  }
+}
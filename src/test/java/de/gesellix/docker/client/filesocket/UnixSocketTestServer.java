@@ -0,0 +1,105 @@
+package de.gesellix.docker.client.filesocket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Unix domain socket server for tests, handling each accepted connection on its own thread.
+ */
+class UnixSocketTestServer implements Closeable {
+
+  interface ConnectionHandler {
+
+    void handle(SocketChannel connection) throws IOException;
+  }
+
+  private final Path socketFile;
+  private final ServerSocketChannel serverChannel;
+  private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, "unix-socket-test-server");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private UnixSocketTestServer(Path socketFile, ConnectionHandler handler) throws IOException {
+    this.socketFile = socketFile;
+    this.serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    serverChannel.bind(UnixDomainSocketAddress.of(socketFile));
+    executor.submit(() -> {
+      while (serverChannel.isOpen()) {
+        SocketChannel connection;
+        try {
+          connection = serverChannel.accept();
+        } catch (IOException e) {
+          return;
+        }
+        executor.submit(() -> {
+          try (SocketChannel ignored = connection) {
+            handler.handle(connection);
+          } catch (IOException ignored) {
+          }
+          return null;
+        });
+      }
+    });
+  }
+
+  static UnixSocketTestServer start(ConnectionHandler handler) throws IOException {
+    return new UnixSocketTestServer(newSocketPath(), handler);
+  }
+
+  static UnixSocketTestServer start(Path socketFile, ConnectionHandler handler) throws IOException {
+    return new UnixSocketTestServer(socketFile, handler);
+  }
+
+  static UnixSocketTestServer echo() throws IOException {
+    return start(connection -> {
+      InputStream in = Channels.newInputStream(connection);
+      OutputStream out = Channels.newOutputStream(connection);
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+    });
+  }
+
+  static Path newSocketPath() throws IOException {
+    Path socketFile = Files.createTempFile("filesocket-test", ".sock");
+    Files.delete(socketFile);
+    return socketFile;
+  }
+
+  static InetSocketAddress address(Path socketFile) throws IOException {
+    String hostname = new UnixSocket().encodeHostname(socketFile.toString());
+    return new InetSocketAddress(InetAddress.getByAddress(hostname, new byte[]{0, 0, 0, 0}), 0);
+  }
+
+  Path getSocketFile() {
+    return socketFile;
+  }
+
+  InetSocketAddress address() throws IOException {
+    return address(socketFile);
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverChannel.close();
+    executor.shutdownNow();
+    Files.deleteIfExists(socketFile);
+  }
+}
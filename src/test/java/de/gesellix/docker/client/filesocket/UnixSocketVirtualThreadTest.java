@@ -0,0 +1,140 @@
+package de.gesellix.docker.client.filesocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.api.condition.OS;
+
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Performs blocking I/O from virtual threads. The <code>virtualThreadTest</code> task runs these tests on a single carrier thread,
+ * so that blocking the carrier stalls them, and with <code>-Djdk.tracePinnedThreads=full</code>,
+ * which reports virtual threads blocking while pinned to their carrier.
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+@EnabledForJreRange(min = JRE.JAVA_21)
+class UnixSocketVirtualThreadTest {
+
+  private static final byte[] RESPONSE = ("HTTP/1.1 200 OK\r\n"
+                                          + "Content-Length: 2\r\n"
+                                          + "\r\n"
+                                          + "OK").getBytes(StandardCharsets.US_ASCII);
+
+  @Test
+  void blockingReadUnmountsFromTheCarrierThread() throws Exception {
+    byte[] message = "ping".getBytes(StandardCharsets.UTF_8);
+    try (UnixSocketTestServer server = UnixSocketTestServer.echo();
+         UnixSocket socket = new UnixSocket(UnixSocketBackend.JDK)) {
+      socket.connect(server.address(), 1000);
+      ExecutorService executor = newVirtualThreadPerTaskExecutor();
+      try {
+        Future<byte[]> echoed = executor.submit(() -> UnixSocketTest.readFully(socket.getInputStream(), message.length));
+        // only gets a carrier thread when the reader doesn't block it
+        executor.submit(() -> {
+          socket.getOutputStream().write(message);
+          return null;
+        });
+        assertArrayEquals(message, echoed.get(10, TimeUnit.SECONDS));
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * The number of virtual threads can be changed via <code>-Dfilesocket.stresstest.threads=...</code>.
+   */
+  @Test
+  void performsRequestsFromThousandsOfVirtualThreadsWithoutPinning() throws Exception {
+    int threads = Integer.getInteger("filesocket.stresstest.threads", 10_000);
+    // bounds the number of connections, each of them needs a file descriptor on both ends
+    int maxConnections = 256;
+    Semaphore connections = new Semaphore(maxConnections);
+
+    PrintStream stdout = System.out;
+    ByteArrayOutputStream pinnedThreadTraces = new ByteArrayOutputStream();
+    List<Future<String>> responses = new ArrayList<>(threads);
+    try (UnixSocketTestServer server = UnixSocketTestServer.start(UnixSocketVirtualThreadTest::serveKeepAlive);
+         UnixSocketFactory factory = new UnixSocketFactory(UnixSocketBackend.JDK)) {
+      OkHttpClient client = new OkHttpClient.Builder()
+          .socketFactory(factory)
+          .dns(factory)
+          .connectionPool(new ConnectionPool(maxConnections, 1, TimeUnit.MINUTES))
+          .build();
+      HttpUrl url = new HttpUrl.Builder()
+          .scheme("http")
+          .host(new UnixSocket().encodeHostname(server.getSocketFile().toString()))
+          .addPathSegment("_ping")
+          .build();
+
+      System.setOut(new PrintStream(pinnedThreadTraces, true, StandardCharsets.UTF_8));
+      ExecutorService executor = newVirtualThreadPerTaskExecutor();
+      try {
+        for (int i = 0; i < threads; i++) {
+          responses.add(executor.submit(() -> {
+            connections.acquire();
+            try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+              return response.body().string();
+            } finally {
+              connections.release();
+            }
+          }));
+        }
+      } finally {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        System.setOut(stdout);
+      }
+      for (Future<String> response : responses) {
+        assertEquals("OK", response.get());
+      }
+    } finally {
+      System.setOut(stdout);
+    }
+    assertFalse(pinnedThreadTraces.toString(StandardCharsets.UTF_8).contains("onPinned"), pinnedThreadTraces::toString);
+  }
+
+  private static void serveKeepAlive(SocketChannel connection) throws IOException {
+    BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(connection), StandardCharsets.US_ASCII));
+    OutputStream out = Channels.newOutputStream(connection);
+    String line;
+    while ((line = in.readLine()) != null) {
+      if (line.isEmpty()) {
+        out.write(RESPONSE);
+      }
+    }
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor() throws ReflectiveOperationException {
+    // the tests are compiled for Java 17
+    return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+  }
+}